@@ -194,20 +194,20 @@ public class DefaultFingerprintFactory implements FingerprintFactory {
 
   /**
    * Converts an RDKit bit vector into a Java BitSet object.
+   * The bits are exported with a single native call (bit i is stored in byte i / 8 at position i % 8, the layout of {@link BitSet#valueOf(byte[])}),
+   * afterwards the native bit vector is deleted.
    *
    * @param rdkitBitVector RDKit (C++ based) bit vector. Can be null.
    * @return BitSet or null, if null was passed in.
    */
-  private BitSet convert(final ExplicitBitVect rdkitBitVector) {
+  static BitSet convert(final ExplicitBitVect rdkitBitVector) {
     BitSet fingerprint = null;
 
     if (rdkitBitVector != null) {
-      final int iLength = (int) rdkitBitVector.getNumBits();
-      fingerprint = new BitSet(iLength);
-      for (int i = 0; i < iLength; i++) {
-        if (rdkitBitVector.getBit(i)) {
-          fingerprint.set(i);
-        }
+      try {
+        fingerprint = BitSet.valueOf(rdkitBitVector.toByteArray());
+      } finally {
+        rdkitBitVector.delete();
       }
     }
 
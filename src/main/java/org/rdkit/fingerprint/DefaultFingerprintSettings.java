@@ -400,6 +400,15 @@ public class DefaultFingerprintSettings implements FingerprintSettings {
 		return result;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * Settings are equal to other settings with the same values, used by {@link FingerprintType#isCompatible(FingerprintSettings, FingerprintSettings)}.
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		return obj instanceof FingerprintSettings && equals((FingerprintSettings) obj);
+	}
+
 	public synchronized boolean equals(final FingerprintSettings objSettingsToCompare) {
 		boolean bRet = false;
 
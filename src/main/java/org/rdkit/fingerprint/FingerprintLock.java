@@ -0,0 +1,111 @@
+package org.rdkit.fingerprint;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Guards native fingerprint functions which are not safe to be called concurrently.
+ *
+ * In warm-up mode only the first call is serialized: it initializes the static data of the native function
+ * (e.g. the query patterns of the pattern fingerprint), afterwards calls run concurrently.
+ * In serialized mode every call holds the lock, as it was done before for all pattern fingerprints.
+ *
+ * The lock counts calls, calls which had to wait for the lock and the total wait time.
+ */
+public class FingerprintLock {
+  private final String name;
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile boolean serialized;
+  private volatile boolean initialized;
+
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder contended = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+
+  /**
+   * @param name - of the guarded function
+   * @param serialized - flag, whether every call is serialized, otherwise only the first call
+   */
+  public FingerprintLock(final String name, final boolean serialized) {
+    this.name = name;
+    this.serialized = serialized;
+  }
+
+  /**
+   * Execute the native function, holding the lock if required
+   *
+   * @param function - native call
+   * @param <T> result type
+   * @return result of the function
+   */
+  public <T> T run(final Supplier<T> function) {
+    calls.increment();
+    if (initialized && !serialized) {
+      return function.get();
+    }
+
+    if (!lock.tryLock()) {
+      final long start = System.nanoTime();
+      lock.lock();
+      contended.increment();
+      waitNanos.add(System.nanoTime() - start);
+    }
+    try {
+      final T result = function.get();
+      initialized = true;
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Force every call to be serialized (`server.rdkit.fingerprint.pattern_serialized`), e.g. for an RDKit build without thread-safe initialization
+   *
+   * @param serialized - flag
+   */
+  public void setSerialized(final boolean serialized) {
+    this.serialized = serialized;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isSerialized() {
+    return serialized;
+  }
+
+  public boolean isInitialized() {
+    return initialized;
+  }
+
+  public long getCalls() {
+    return calls.sum();
+  }
+
+  public long getContended() {
+    return contended.sum();
+  }
+
+  public long getWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+  }
+}
@@ -50,6 +50,7 @@ package org.rdkit.fingerprint;
 import org.RDKit.ExplicitBitVect;
 import org.RDKit.RDKFuncs;
 import org.RDKit.ROMol;
+import org.RDKit.UInt_Vect;
 
 /** Defines supported fingerprint types. */
 public enum FingerprintType {
@@ -84,9 +85,7 @@ public enum FingerprintType {
 
 		@Override
 		public ExplicitBitVect calculate(final ROMol mol, final FingerprintSettings settings) {
-			synchronized (PATTERN_FP_LOCK) {
-				return RDKFuncs.PatternFingerprintMol(mol, settings.getNumBits());
-			}
+			return PATTERN_FP_LOCK.run(() -> RDKFuncs.PatternFingerprintMol(mol, settings.getNumBits()));
 		}
 	},
 
@@ -169,6 +168,211 @@ public enum FingerprintType {
 
 			return RDKFuncs.getHashedTopologicalTorsionFingerprintAsBitVect(mol, settings.getNumBits(), iTorsionPathLength);
 		}
+	},
+
+	atompair("AtomPair") {
+		@Override
+		public FingerprintSettings getSpecification(final int iTorsionPathLength, final int iMinPath,
+				final int iMaxPath, final int iAtomPairMinPath, final int iAtomPairMaxPath,
+				final int iNumBits, final int iRadius, final int iLayerFlags,
+				final int iAvalonQueryFlag, final int iAvalonBitFlags) {
+			return new DefaultFingerprintSettings(toString(),
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					iAtomPairMinPath,
+					iAtomPairMaxPath,
+					iNumBits,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE);
+		}
+
+		@Override
+		public void validateSpecification(final FingerprintSettings settings)
+				throws InvalidFingerprintSettingsException {
+			super.validateSpecification(settings);
+			if (settings.getNumBits() <= 0) {
+				throw new InvalidFingerprintSettingsException("Number of bits must be a positive number > 0.");
+			}
+			if (settings.getAtomPairMinPath() <= 0) {
+				throw new InvalidFingerprintSettingsException("AtomPair minimum path must be a positive number > 0.");
+			}
+			if (settings.getAtomPairMaxPath() < settings.getAtomPairMinPath() || settings.getAtomPairMaxPath() >= 32) {
+				throw new InvalidFingerprintSettingsException("AtomPair maximum path must be between the minimum path and 31.");
+			}
+		}
+
+		@Override
+		public ExplicitBitVect calculate(final ROMol mol, final FingerprintSettings settings) {
+			return RDKFuncs.getHashedAtomPairFingerprintAsBitVect(mol, settings.getNumBits(),
+					settings.getAtomPairMinPath(), settings.getAtomPairMaxPath());
+		}
+	},
+
+	layered("Layered") {
+		@Override
+		public FingerprintSettings getSpecification(final int iTorsionPathLength, final int iMinPath,
+				final int iMaxPath, final int iAtomPairMinPath, final int iAtomPairMaxPath,
+				final int iNumBits, final int iRadius, final int iLayerFlags,
+				final int iAvalonQueryFlag, final int iAvalonBitFlags) {
+			return new DefaultFingerprintSettings(toString(),
+					FingerprintSettings.UNAVAILABLE,
+					iMinPath,
+					iMaxPath,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					iNumBits,
+					FingerprintSettings.UNAVAILABLE,
+					iLayerFlags,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE);
+		}
+
+		@Override
+		public void validateSpecification(final FingerprintSettings settings)
+				throws InvalidFingerprintSettingsException {
+			super.validateSpecification(settings);
+			if (settings.getNumBits() <= 0) {
+				throw new InvalidFingerprintSettingsException("Number of bits must be a positive number > 0.");
+			}
+			if (settings.getMinPath() <= 0) {
+				throw new InvalidFingerprintSettingsException("Minimum path must be a positive number > 0.");
+			}
+			if (settings.getMaxPath() < settings.getMinPath()) {
+				throw new InvalidFingerprintSettingsException("Maximum path must not be smaller than the minimum path.");
+			}
+			if (settings.getLayerFlags() <= 0) {
+				throw new InvalidFingerprintSettingsException("Layer flags must be a positive number > 0.");
+			}
+		}
+
+		@Override
+		public ExplicitBitVect calculate(final ROMol mol, final FingerprintSettings settings) {
+			return RDKFuncs.LayeredFingerprintMol(mol, settings.getLayerFlags(), settings.getMinPath(),
+					settings.getMaxPath(), settings.getNumBits());
+		}
+	},
+
+	maccs("MACCS") {
+		@Override
+		public FingerprintSettings getSpecification(final int iTorsionPathLength, final int iMinPath,
+				final int iMaxPath, final int iAtomPairMinPath, final int iAtomPairMaxPath,
+				final int iNumBits, final int iRadius, final int iLayerFlags,
+				final int iAvalonQueryFlag, final int iAvalonBitFlags) {
+			// MACCS keys have a fixed length
+			return new DefaultFingerprintSettings(toString(),
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE);
+		}
+
+		@Override
+		public ExplicitBitVect calculate(final ROMol mol, final FingerprintSettings settings) {
+			return RDKFuncs.MACCSFingerprintMol(mol);
+		}
+	},
+
+	avalon("Avalon") {
+		@Override
+		public FingerprintSettings getSpecification(final int iTorsionPathLength, final int iMinPath,
+				final int iMaxPath, final int iAtomPairMinPath, final int iAtomPairMaxPath,
+				final int iNumBits, final int iRadius, final int iLayerFlags,
+				final int iAvalonQueryFlag, final int iAvalonBitFlags) {
+			return new DefaultFingerprintSettings(toString(),
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					iNumBits,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					iAvalonQueryFlag,
+					iAvalonBitFlags);
+		}
+
+		@Override
+		public void validateSpecification(final FingerprintSettings settings)
+				throws InvalidFingerprintSettingsException {
+			super.validateSpecification(settings);
+			if (settings.getNumBits() <= 0) {
+				throw new InvalidFingerprintSettingsException("Number of bits must be a positive number > 0.");
+			}
+			if (settings.getAvalonQueryFlag() != 0 && settings.getAvalonQueryFlag() != 1) {
+				throw new InvalidFingerprintSettingsException("Avalon query flag must be 0 or 1.");
+			}
+			if (settings.getAvalonBitFlags() <= 0) {
+				throw new InvalidFingerprintSettingsException("Avalon bit flags must be a positive number > 0.");
+			}
+		}
+
+		@Override
+		public ExplicitBitVect calculate(final ROMol mol, final FingerprintSettings settings) {
+			return AVALON_FP_LOCK.run(() -> {
+				final ExplicitBitVect fingerprint = new ExplicitBitVect(settings.getNumBits());
+				RDKFuncs.getAvalonFP(mol, fingerprint, settings.getNumBits(), settings.getAvalonQueryFlag() == 1,
+						true, settings.getAvalonBitFlags());
+				return fingerprint;
+			});
+		}
+	},
+
+	featmorgan("FeatMorgan") {
+		@Override
+		public FingerprintSettings getSpecification(final int iTorsionPathLength, final int iMinPath,
+				final int iMaxPath, final int iAtomPairMinPath, final int iAtomPairMaxPath,
+				final int iNumBits, final int iRadius, final int iLayerFlags,
+				final int iAvalonQueryFlag, final int iAvalonBitFlags) {
+			return new DefaultFingerprintSettings(toString(),
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					iNumBits,
+					iRadius,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE,
+					FingerprintSettings.UNAVAILABLE);
+		}
+
+		@Override
+		public void validateSpecification(final FingerprintSettings settings)
+				throws InvalidFingerprintSettingsException {
+			super.validateSpecification(settings);
+			if (settings.getNumBits() <= 0) {
+				throw new InvalidFingerprintSettingsException("Number of bits must be a positive number > 0.");
+			}
+			if (settings.getRadius() <= 0) {
+				throw new InvalidFingerprintSettingsException("Radius must be a positive number > 0.");
+			}
+		}
+
+		/**
+		 * Morgan fingerprint with feature invariants (FCFP), the atoms are typed by their pharmacophoric features
+		 */
+		@Override
+		public ExplicitBitVect calculate(final ROMol mol, final FingerprintSettings settings) {
+			final UInt_Vect invariants = new UInt_Vect(mol.getNumAtoms());
+			try {
+				FEATURE_INVARIANTS_LOCK.run(() -> {
+					RDKFuncs.getFeatureInvariants(mol, invariants);
+					return invariants;
+				});
+				return RDKFuncs.getMorganFingerprintAsBitVect(mol, settings.getRadius(), settings.getNumBits(), invariants);
+			} finally {
+				invariants.delete();
+			}
+		}
 	};
 
 	//
@@ -178,10 +382,10 @@ public enum FingerprintType {
 	/**
 	 * This lock prevents two calls at the same time into the Pattern Fingerprint functionality,
 	 * which is currently not thread-safe.
-	 * Once there is a fix implemented in the RDKit (or somewhere else?) we can
-	 * remove this lock again.
+	 * With `server.rdkit.fingerprint.pattern_serialized=false` only the first call (initialization of the query patterns)
+	 * is serialized, this has to be verified for the RDKit build in use with `DefaultFingerprintFactoryTest#concurrentPatternTest`.
 	 */
-	public static final Object PATTERN_FP_LOCK = new Object();
+	public static final FingerprintLock PATTERN_FP_LOCK = new FingerprintLock("pattern", true);
 
 	/**
 	 * This lock prevents two calls at the same time into the Avalon Fingerprint functionality,
@@ -189,7 +393,13 @@ public enum FingerprintType {
 	 * Once there is a fix implemented in the RDKit (or somewhere else?) we can
 	 * remove this lock again.
 	 */
-	public static final Object AVALON_FP_LOCK = new Object();
+	public static final FingerprintLock AVALON_FP_LOCK = new FingerprintLock("avalon", true);
+
+	/**
+	 * This lock prevents two calls at the same time into the feature invariants of the FeatMorgan Fingerprint
+	 * while the feature definitions are initialized by the first call, afterwards the calls run concurrently.
+	 */
+	public static final FingerprintLock FEATURE_INVARIANTS_LOCK = new FingerprintLock("featmorgan", false);
 
 	//
 	// Members
@@ -0,0 +1,279 @@
+package org.rdkit.neo4j.bin;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.RDKit.MolSanitizeException;
+import org.neo4j.logging.NullLog;
+import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.NodeParameters;
+import org.rdkit.neo4j.models.StructureRecord;
+import org.rdkit.neo4j.models.TokenEncoding;
+import org.rdkit.neo4j.utils.Converter;
+import org.rdkit.neo4j.utils.SdfReader;
+import org.rdkit.neo4j.utils.SmilesReader;
+import org.rdkit.neo4j.utils.StructureReader;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line tool which converts a structure file into node CSV files for `neo4j-admin database import`
+ * All node properties are computed on all available processors, the import does not need the event handler.
+ *
+ * Usage: `java -cp rdkit-index.jar:$NEO4J_HOME/lib/* org.rdkit.neo4j.bin.ImportCsvTool [options] <input.sdf|input.smi[.gz]> <output directory>`
+ *
+ * Output directory contains `nodes-header.csv`, `nodes.csv` and `failed.csv` (records which could not be converted).
+ * Molblocks span multiple lines, so the import must be executed with `--multiline-fields=true`.
+ * Fingerprints are written with `--encoding`, it has to match `server.rdkit.fingerprint.encoding` of the database.
+ */
+public class ImportCsvTool {
+  static final String[] COLUMNS = {":ID", ":LABEL", NodeFields.Smiles.getValue(), NodeFields.MdlMol.getValue(),
+      NodeFields.CanonicalSmiles.getValue(), NodeFields.InchiKey.getValue(), NodeFields.Formula.getValue(),
+      NodeFields.MolecularWeight.getValue() + ":double", NodeFields.FingerprintEncoded.getValue(),
+      NodeFields.FingerprintOnes.getValue() + ":long", NodeFields.Stamp.getValue(), SdfReader.NAME_PROPERTY};
+
+  private static final int IN_FLIGHT_BATCHES = 2;
+
+  private final List<String> labels;
+  private final List<String> dataFields;
+  private final int threads;
+  private final int batchSize;
+  private final boolean sanitize;
+  private final Converter converter;
+
+  ImportCsvTool(List<String> labels, List<String> dataFields, int threads, int batchSize, boolean sanitize, Converter converter) {
+    this.labels = labels;
+    this.dataFields = dataFields;
+    this.threads = threads;
+    this.batchSize = batchSize;
+    this.sanitize = sanitize;
+    this.converter = converter;
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<String> labels = Arrays.asList(Constants.Chemical.getValue(), Constants.Structure.getValue());
+    List<String> dataFields = Collections.emptyList();
+    int threads = Runtime.getRuntime().availableProcessors();
+    int batchSize = 10_000;
+    boolean sanitize = true;
+    String optionalFields = null;
+    final List<String> positional = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--labels": labels = Arrays.asList(args[++i].split(",")); break;
+          case "--fields": dataFields = Arrays.asList(args[++i].split(",")); break;
+          case "--threads": threads = Integer.parseInt(args[++i]); break;
+          case "--batch-size": batchSize = Integer.parseInt(args[++i]); break;
+          case "--optional-fields": optionalFields = args[++i]; break;
+          case "--no-sanitize": sanitize = false; break;
+          case "--encoding": TokenEncoding.use(TokenEncoding.valueOf(args[++i])); break;
+          default: positional.add(args[i]);
+        }
+      }
+      if (positional.size() != 2 || threads < 1 || batchSize < 1) {
+        throw new IllegalArgumentException("Input file and output directory are required");
+      }
+    } catch (RuntimeException e) {
+      System.err.println(e.getMessage());
+      printUsage();
+      System.exit(1);
+      return;
+    }
+
+    new LibraryLoaderLifecycle(NullLog.getInstance()).init();
+
+    final Converter converter = Converter.createDefault();
+    if (optionalFields != null) {
+      converter.withOptionalFields(NodeFields.parseOptional(Arrays.asList(optionalFields.split(","))));
+    }
+
+    final Path input = Paths.get(positional.get(0));
+    final Path output = Paths.get(positional.get(1));
+    final long start = System.nanoTime();
+    final long[] counters = new ImportCsvTool(labels, dataFields, threads, batchSize, sanitize, converter).run(input, output);
+    final long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+    System.out.printf("records=%d, failed=%d, %.1f records/s%n", counters[0], counters[1], 1000.0d * counters[0] / millis);
+    System.out.printf("neo4j-admin database import full --multiline-fields=true --nodes=%s,%s <database>%n",
+        output.resolve("nodes-header.csv"), output.resolve("nodes.csv"));
+    System.out.println("Afterwards create the fulltext index with `CALL org.rdkit.search.createIndex(" + labels + ")`");
+  }
+
+  private static void printUsage() {
+    System.err.println("Usage: ImportCsvTool [--labels Chemical,Structure] [--fields <sdf data fields>] [--threads <n>] "
+        + "[--batch-size <n>] [--optional-fields mdlmol,inchi_key,formula,molecular_weight] [--no-sanitize] [--encoding decimal|compact] "
+        + "<input.sdf|input.smi[.gz]> <output directory>");
+  }
+
+  /**
+   * Convert the input file into CSV files of the output directory
+   *
+   * @param input - SD file (`.sdf`, `.sd`, `.mol`) or SMILES file (any other extension), may be gzipped
+   * @param output - directory, created if absent
+   * @return amount of records and amount of failed records
+   * @throws Exception on read or write failure
+   */
+  long[] run(final Path input, final Path output) throws Exception {
+    Files.createDirectories(output);
+    Files.writeString(output.resolve("nodes-header.csv"), String.join(",", header()) + "\n");
+
+    final String name = input.getFileName().toString().toLowerCase().replaceFirst("\\.gz$", "");
+    final boolean sdf = name.endsWith(".sdf") || name.endsWith(".sd") || name.endsWith(".mol");
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "rdkit-import");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    long records = 0;
+    long failed = 0;
+    try (StructureReader reader = sdf ? SdfReader.open(input) : SmilesReader.open(input);
+         BufferedWriter nodes = Files.newBufferedWriter(output.resolve("nodes.csv"), StandardCharsets.UTF_8);
+         BufferedWriter failures = Files.newBufferedWriter(output.resolve("failed.csv"), StandardCharsets.UTF_8)) {
+      failures.write("record,error\n");
+
+      final Deque<List<Future<CsvLine>>> inFlight = new ArrayDeque<>();
+      while (true) {
+        while (inFlight.size() < IN_FLIGHT_BATCHES && reader.hasNext()) {
+          final List<Future<CsvLine>> batch = new ArrayList<>(batchSize);
+          while (batch.size() < batchSize && reader.hasNext()) {
+            final StructureRecord record = reader.next();
+            batch.add(executor.submit(() -> toCsvLine(record)));
+          }
+          inFlight.add(batch);
+        }
+        if (inFlight.isEmpty()) {
+          break;
+        }
+
+        for (Future<CsvLine> future: inFlight.poll()) {
+          final CsvLine line = getResult(future);
+          if (line.failed) {
+            failures.write(line.value);
+            failed++;
+          } else {
+            nodes.write(line.value);
+          }
+          records++;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return new long[]{records, failed};
+  }
+
+  List<String> header() {
+    final List<String> header = new ArrayList<>(Arrays.asList(COLUMNS));
+    header.addAll(dataFields);
+    return header;
+  }
+
+  /**
+   * Method converts a record into a CSV line of `nodes.csv`
+   * A failed record is converted into a line of `failed.csv`
+   */
+  CsvLine toCsvLine(final StructureRecord record) {
+    final NodeParameters block;
+    try {
+      block = convert(record);
+    } catch (Exception e) {
+      return new CsvLine(record.getIndex() + "," + quote(String.valueOf(e.getMessage())) + "\n", true);
+    }
+
+    final boolean smiles = record.getKind() == NodeFields.Smiles;
+    final StringBuilder line = new StringBuilder(4096);
+    line.append(record.getIndex()).append(',')
+        .append(quote(String.join(";", labels))).append(',')
+        .append(quote(smiles ? record.getStructure() : null)).append(',')
+        .append(quote(smiles ? block.getMolBlock() : record.getStructure())).append(',')
+        .append(quote(block.getCanonicalSmiles())).append(',')
+        .append(quote(block.getInchiKey())).append(',')
+        .append(quote(block.getFormula())).append(',')
+        .append(block.getMolecularWeight() == null ? "" : block.getMolecularWeight()).append(',')
+        .append(quote(block.getFingerprintEncoded())).append(',')
+        .append(block.getFingerpintOnes()).append(',')
+        .append(quote(block.getStamp())).append(',')
+        .append(quote(Objects.toString(record.getProperties().get(SdfReader.NAME_PROPERTY), null)));
+    for (String field: dataFields) {
+      line.append(',').append(quote(Objects.toString(record.getProperties().get(field), null)));
+    }
+    return new CsvLine(line.append('\n').toString(), false);
+  }
+
+  private NodeParameters convert(final StructureRecord record) {
+    final boolean molBlock = record.getKind() == NodeFields.MdlMol;
+    try {
+      return molBlock ? converter.convertMolBlock(record.getStructure(), true) : converter.convertSmiles(record.getStructure(), true);
+    } catch (MolSanitizeException e) {
+      if (sanitize) {
+        throw e;
+      }
+      return molBlock ? converter.convertMolBlock(record.getStructure(), false) : converter.convertSmiles(record.getStructure(), false);
+    }
+  }
+
+  /**
+   * Quote a CSV value, quotes within the value are doubled, null becomes an empty (absent) value
+   */
+  static String quote(final String value) {
+    if (value == null) {
+      return "";
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  private static CsvLine getResult(final Future<CsvLine> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw (Error) cause;
+    }
+  }
+
+  static final class CsvLine {
+    final String value;
+    final boolean failed;
+
+    CsvLine(String value, boolean failed) {
+      this.value = value;
+      this.failed = failed;
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package org.rdkit.neo4j.config;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+/**
+ * Defines when the event handler computes the properties of new chemical structures
+ */
+public enum HandlerMode {
+
+  /**
+   * Properties are computed before commit, within the transaction that created the structure
+   */
+  sync,
+
+  /**
+   * Only ids of the nodes are queued after commit, properties are computed by a background worker in separate transactions
+   */
+  deferred
+}
@@ -15,11 +15,104 @@ package org.rdkit.neo4j.config;
  * #L%
  */
 
+import org.neo4j.configuration.SettingConstraint;
+import org.neo4j.configuration.SettingConstraints;
 import org.neo4j.configuration.SettingImpl;
 import org.neo4j.configuration.SettingValueParsers;
 import org.neo4j.configuration.SettingsDeclaration;
+import org.neo4j.graphdb.config.Configuration;
 import org.neo4j.graphdb.config.Setting;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.TokenEncoding;
+
+import java.time.Duration;
+import java.util.List;
 
 public class RDKitSettings implements SettingsDeclaration {
     public static final Setting<Boolean> indexSanitize = SettingImpl.newBuilder("server.rdkit.index.sanitize", SettingValueParsers.BOOL, true).build();
+
+    /**
+     * Amount of worker threads used by the event handler to convert nodes of a single transaction
+     */
+    public static final Setting<Integer> handlerParallelism = SettingImpl.newBuilder("server.rdkit.handler.parallelism", SettingValueParsers.INT, Runtime.getRuntime().availableProcessors())
+            .addConstraint(SettingConstraints.min(1)).build();
+
+    /**
+     * Minimal amount of nodes in a transaction, starting from which the conversion is executed on the worker threads
+     */
+    public static final Setting<Integer> handlerParallelThreshold = SettingImpl.newBuilder("server.rdkit.handler.parallel_threshold", SettingValueParsers.INT, 1000)
+            .addConstraint(SettingConstraints.min(1)).build();
+
+    /**
+     * Defines whether properties are computed within the committing transaction or by a background worker, see {@link HandlerMode}
+     */
+    public static final Setting<HandlerMode> handlerMode = SettingImpl.newBuilder("server.rdkit.handler.mode", SettingValueParsers.ofEnum(HandlerMode.class), HandlerMode.sync).build();
+
+    /**
+     * Maximal amount of nodes updated by the background worker in one transaction
+     */
+    public static final Setting<Integer> deferredBatchSize = SettingImpl.newBuilder("server.rdkit.handler.deferred.batch_size", SettingValueParsers.INT, 1000)
+            .addConstraint(SettingConstraints.min(1)).build();
+
+    /**
+     * Delay between two runs of the background worker
+     */
+    public static final Setting<Duration> deferredInterval = SettingImpl.newBuilder("server.rdkit.handler.deferred.interval", SettingValueParsers.DURATION, Duration.ofSeconds(1)).build();
+
+    /**
+     * Maximal amount of converted structures cached by the event handler and `org.rdkit.update`, 0 disables the cache
+     */
+    public static final Setting<Integer> conversionCacheSize = SettingImpl.newBuilder("server.rdkit.conversion.cache_size", SettingValueParsers.INT, 10_000)
+            .addConstraint(SettingConstraints.min(0)).build();
+
+    /**
+     * Defines whether every pattern fingerprint computation holds a global lock (default), otherwise only the first (initializing) computation does
+     */
+    public static final Setting<Boolean> patternSerialized = SettingImpl.newBuilder("server.rdkit.fingerprint.pattern_serialized", SettingValueParsers.BOOL, true).build();
+
+    /**
+     * Encoding of fingerprint tokens written to node properties and used in fulltext queries, see {@link TokenEncoding}
+     * Existing properties are re-encoded with `org.rdkit.fingerprint.migrate`
+     */
+    public static final Setting<TokenEncoding> fingerprintEncoding = SettingImpl.newBuilder("server.rdkit.fingerprint.encoding", SettingValueParsers.ofEnum(TokenEncoding.class), TokenEncoding.decimal).build();
+
+    /**
+     * Defines whether the similarity search of registered fingerprints scans memory-mapped fingerprint stores
+     * instead of querying the fulltext index, stores are kept in `rdkit/<database>` of the data directory
+     */
+    public static final Setting<Boolean> fingerprintStore = SettingImpl.newBuilder("server.rdkit.fingerprint.store", SettingValueParsers.BOOL, false).build();
+
+    /**
+     * Defines whether the database is warmed up in the background after start, see `org.rdkit.warmup.status`
+     */
+    public static final Setting<Boolean> warmupEnabled = SettingImpl.newBuilder("server.rdkit.warmup.enabled", SettingValueParsers.BOOL, false).build();
+
+    /**
+     * Representative structures used by the warm-up as fingerprint inputs and search queries
+     */
+    public static final Setting<List<String>> warmupSmiles = SettingImpl.newBuilder("server.rdkit.warmup.smiles", SettingValueParsers.listOf(SettingValueParsers.STRING),
+            List.of("CC(=O)Oc1ccccc1C(=O)O", "CN1C=NC2=C1C(=O)N(C(=O)N2C)C", "CC(C)Cc1ccc(cc1)C(C)C(=O)O")).build();
+
+    /**
+     * Defines whether the warm-up reads fingerprint properties and fingerprint stores, so that their pages are cached
+     */
+    public static final Setting<Boolean> warmupPrefetch = SettingImpl.newBuilder("server.rdkit.warmup.prefetch", SettingValueParsers.BOOL, true).build();
+
+    /**
+     * Optional node properties computed during conversion, see {@link NodeFields#optional()}
+     * Properties which are not listed are not stored and can be computed on demand with `org.rdkit.utils.field`
+     */
+    public static final Setting<List<String>> optionalFields = SettingImpl.newBuilder("server.rdkit.conversion.optional_fields",
+                    SettingValueParsers.listOf(SettingValueParsers.STRING), List.of("mdlmol", "inchi_key", "formula", "molecular_weight"))
+            .addConstraint(new SettingConstraint<>() {
+                @Override
+                public void validate(List<String> value, Configuration config) {
+                    NodeFields.parseOptional(value);
+                }
+
+                @Override
+                public String getDescription() {
+                    return "is a list of optional node properties";
+                }
+            }).build();
 }
@@ -0,0 +1,215 @@
+package org.rdkit.neo4j.handlers;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.rdkit.fingerprint.FingerprintType;
+import org.rdkit.neo4j.metrics.PluginMetrics;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.TokenEncoding;
+import org.rdkit.neo4j.store.FingerprintStoreManager;
+import org.rdkit.neo4j.utils.ConversionCache;
+import org.rdkit.neo4j.utils.Converter;
+import org.rdkit.neo4j.utils.ConverterRegistry;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * State of the plugin scoped to one database: converters with their caches, the thread pool and the running batch jobs,
+ * the deferred worker, the fingerprint stores, the warm-up and the metrics.
+ *
+ * The context is created by {@link RDKitEventHandlerExtensionFactory} when the database starts and released when it stops,
+ * so stopping or dropping a database frees its memory and threads without affecting other databases of the DBMS.
+ * Procedures find the context of their database with {@link #of(GraphDatabaseService)}.
+ */
+public class DatabaseContext {
+  private static final Map<String, DatabaseContext> contexts = new ConcurrentHashMap<>();
+
+  private final String databaseName;
+  private final ConverterRegistry converters = new ConverterRegistry();
+  private final PluginMetrics metrics;
+  private final Converter converter;
+  private final ExecutorService jobExecutor;
+  private final Map<String, Object> jobs = new ConcurrentHashMap<>();
+  private final Map<String, TokenEncoding> migratedIndexes = new ConcurrentHashMap<>();
+
+  private volatile DeferredPropertyWorker deferredWorker;
+  private volatile FingerprintStoreManager storeManager;
+  private volatile DatabaseWarmup warmup;
+
+  /**
+   * @param databaseName - name of the database
+   * @param cache - conversion cache of the event handler, null disables caching
+   * @param optionalFields - optional properties computed by the event handler
+   */
+  public DatabaseContext(String databaseName, ConversionCache cache, Set<NodeFields> optionalFields) {
+    this.databaseName = databaseName;
+    this.metrics = new PluginMetrics(databaseName);
+    this.converter = Converter.createDefault()
+        .withCache(cache)
+        .withOptionalFields(optionalFields)
+        .withRegistry(converters)
+        .withMetrics(metrics, PluginMetrics.HANDLER);
+    // executes submitted jobs, each job uses its own workers for batches
+    this.jobExecutor = Executors.newCachedThreadPool(runnable -> {
+      final Thread thread = new Thread(runnable, "rdkit-job-" + databaseName);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Return the context of a running database
+   *
+   * @param databaseName - name of the database
+   * @return context or null, if the database is not started
+   */
+  public static DatabaseContext forDatabase(String databaseName) {
+    return contexts.get(databaseName);
+  }
+
+  /**
+   * Return the context of a running database
+   *
+   * @param db - database
+   * @return context
+   * @throws IllegalStateException if the plugin is not started for the database
+   */
+  public static DatabaseContext of(GraphDatabaseService db) {
+    final DatabaseContext context = contexts.get(db.databaseName());
+    if (context == null) {
+      throw new IllegalStateException(String.format("RDKit is not started for database=%s", db.databaseName()));
+    }
+    return context;
+  }
+
+  /**
+   * Make the context available to procedures and publish its metrics
+   */
+  public void start() {
+    contexts.put(databaseName, this);
+    metrics.register();
+  }
+
+  /**
+   * Release the context: running background jobs are interrupted, converters and cached conversions are dropped
+   * Components (worker, stores, warm-up) are stopped by their owner before.
+   */
+  public void stop() {
+    contexts.remove(databaseName, this);
+    metrics.unregister();
+    jobExecutor.shutdownNow();
+    jobs.clear();
+    deferredWorker = null;
+    storeManager = null;
+    warmup = null;
+    migratedIndexes.clear();
+    converters.clear();
+    if (converter.getCache() != null) {
+      converter.getCache().clear();
+    }
+  }
+
+  public String getDatabaseName() {
+    return databaseName;
+  }
+
+  /**
+   * @return converters of registered and requested fingerprints
+   */
+  public ConverterRegistry getConverters() {
+    return converters;
+  }
+
+  /**
+   * @return converter of the event handler, with the conversion cache and optional fields of the database
+   */
+  public Converter getConverter() {
+    return converter;
+  }
+
+  /**
+   * @return converter of exact and substructure search queries, shared default converter of {@link FingerprintType#pattern}
+   */
+  public Converter getSearchConverter() {
+    return converters.get(FingerprintType.pattern);
+  }
+
+  /**
+   * @return latency metrics of procedures and the event handler
+   */
+  public PluginMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Fulltext indexes found without fingerprint values of another than the configured token encoding
+   * New values are written in the configured encoding, so an index stays migrated until it is dropped or the encoding is changed.
+   *
+   * @return encodings by names of migrated indexes
+   */
+  public Map<String, TokenEncoding> getMigratedIndexes() {
+    return migratedIndexes;
+  }
+
+  public ExecutorService getJobExecutor() {
+    return jobExecutor;
+  }
+
+  /**
+   * @return batch jobs of the database executed by this instance, by job id
+   */
+  public Map<String, Object> getJobs() {
+    return jobs;
+  }
+
+  /**
+   * @return worker or null, if the database does not use the deferred mode
+   */
+  public DeferredPropertyWorker getDeferredWorker() {
+    return deferredWorker;
+  }
+
+  public void setDeferredWorker(DeferredPropertyWorker deferredWorker) {
+    this.deferredWorker = deferredWorker;
+  }
+
+  /**
+   * @return manager or null, if the database does not use fingerprint stores
+   */
+  public FingerprintStoreManager getStoreManager() {
+    return storeManager;
+  }
+
+  public void setStoreManager(FingerprintStoreManager storeManager) {
+    this.storeManager = storeManager;
+  }
+
+  /**
+   * @return warm-up or null, if it is disabled
+   */
+  public DatabaseWarmup getWarmup() {
+    return warmup;
+  }
+
+  public void setWarmup(DatabaseWarmup warmup) {
+    this.warmup = warmup;
+  }
+}
@@ -0,0 +1,293 @@
+package org.rdkit.neo4j.handlers;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.helpers.collection.MapUtil;
+import org.rdkit.fingerprint.FingerprintType;
+import org.rdkit.neo4j.metrics.PluginMetrics;
+import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.FingerprintDefinition;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.store.FingerprintStore;
+import org.rdkit.neo4j.store.FingerprintStoreManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Background warm-up of a database after start (`server.rdkit.warmup.enabled`)
+ *
+ * 1) every fingerprint type is computed for the representative structures, which initializes static data of RDKit
+ * 2) substructure search and similarity search of registered fingerprints are executed for them, which compiles the hot paths
+ * 3) fingerprint properties and fingerprint stores are read, so that their pages are cached
+ *
+ * The substructure search uses the labels of the fulltext index `fp_index` (see `org.rdkit.search.createIndex`).
+ * Failed queries (e.g. the index does not exist yet) are counted, the warm-up continues.
+ * The state is reported by `org.rdkit.warmup.status`, e.g. for a readiness probe.
+ */
+public class DatabaseWarmup {
+  private static final Logger logger = LoggerFactory.getLogger(DatabaseWarmup.class);
+
+  private static final double SIMILARITY_THRESHOLD = 0.7d;
+  private static final int SUBSTRUCTURE_LIMIT = 100;
+
+  /**
+   * State of the warm-up
+   */
+  public enum State {
+    waiting, running, done, failed
+  }
+
+  private final DatabaseContext context;
+  private final String databaseName;
+  private final GraphDatabaseService db;
+  private final List<String> smiles;
+  private final boolean prefetch;
+
+  private final AtomicLong queries = new AtomicLong();
+  private final AtomicLong failedQueries = new AtomicLong();
+  private final AtomicLong prefetched = new AtomicLong();
+  private volatile State state = State.waiting;
+  private volatile boolean stopped;
+  private volatile String error;
+  private volatile long startedMillis;
+  private volatile long finishedMillis;
+
+  private ExecutorService executor;
+
+  /**
+   * @param context - state of the database to warm up
+   * @param db - database
+   * @param smiles - representative structures used as queries
+   * @param prefetch - flag, whether fingerprint properties and stores are read
+   */
+  public DatabaseWarmup(DatabaseContext context, GraphDatabaseService db, List<String> smiles, boolean prefetch) {
+    this.context = context;
+    this.databaseName = context.getDatabaseName();
+    this.db = db;
+    this.smiles = List.copyOf(smiles);
+    this.prefetch = prefetch;
+  }
+
+  /**
+   * Start the warm-up in the background, it waits until the database is available
+   */
+  public synchronized void start() {
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "rdkit-warmup-" + databaseName);
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.execute(this::run);
+  }
+
+  /**
+   * Stop a running warm-up, it is interrupted and reported as failed
+   */
+  public synchronized void stop() {
+    stopped = true;
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  void run() {
+    if (!db.isAvailable(TimeUnit.MINUTES.toMillis(1))) {
+      fail(stopped ? "stopped" : "database is not available");
+      return;
+    }
+    startedMillis = System.currentTimeMillis();
+    state = State.running;
+    try {
+      computeFingerprints();
+      final List<FingerprintDefinition> fingerprints = loadFingerprints();
+      final List<String> labels = loadIndexLabels();
+      executeQueries(labels, fingerprints);
+      if (prefetch) {
+        prefetchFingerprints(labels, fingerprints);
+      }
+      finishedMillis = System.currentTimeMillis();
+      state = State.done;
+      logger.info("Database {} warmed up in {} ms: queries={}, failed={}, prefetched={}",
+          databaseName, getMillis(), queries.get(), failedQueries.get(), prefetched.get());
+    } catch (InterruptedException e) {
+      fail("stopped");
+    } catch (Exception e) {
+      fail(stopped ? "stopped" : e.getMessage());
+    }
+  }
+
+  private void computeFingerprints() throws InterruptedException {
+    for (FingerprintType type: FingerprintType.values()) {
+      for (String structure: smiles) {
+        checkStopped();
+        try {
+          context.getConverters().get(type).getLuceneFingerprint(structure, true);
+        } catch (RuntimeException e) {
+          logger.debug("Warm-up fingerprint type={} of smiles={} failed: {}", type, structure, e.getMessage());
+        }
+      }
+    }
+  }
+
+  private List<FingerprintDefinition> loadFingerprints() {
+    try (Transaction tx = db.beginTx()) {
+      final List<FingerprintDefinition> fingerprints = tx.findNodes(Label.label(Constants.FingerprintRegistry.getValue())).stream()
+          .map(FingerprintDefinition::from)
+          .collect(Collectors.toList());
+      tx.commit();
+      return fingerprints;
+    }
+  }
+
+  /**
+   * @return labels of the substructure index, the default labels if it does not exist
+   */
+  private List<String> loadIndexLabels() {
+    try (Transaction tx = db.beginTx()) {
+      final List<String> labels = StreamSupport.stream(tx.schema().getIndexes().spliterator(), false)
+          .filter(index -> index.getName().equals(Constants.IndexName.getValue()) && index.isNodeIndex())
+          .flatMap(index -> StreamSupport.stream(index.getLabels().spliterator(), false))
+          .map(Label::name)
+          .collect(Collectors.toList());
+      tx.commit();
+      return labels.isEmpty() ? List.of(Constants.Chemical.getValue(), Constants.Structure.getValue()) : labels;
+    }
+  }
+
+  private void executeQueries(final List<String> labels, final List<FingerprintDefinition> fingerprints) throws InterruptedException {
+    for (String structure: smiles) {
+      checkStopped();
+      execute(String.format("CALL org.rdkit.search.substructure.smiles($labels, $smiles) YIELD luri RETURN luri LIMIT %d", SUBSTRUCTURE_LIMIT),
+          MapUtil.map("labels", labels, "smiles", structure));
+      for (FingerprintDefinition definition: fingerprints) {
+        checkStopped();
+        execute("CALL org.rdkit.fingerprint.similarity.smiles($labels, $smiles, $type, $property, $threshold)",
+            MapUtil.map("labels", definition.getLabels(), "smiles", structure, "type", definition.getType().toString(),
+                "property", definition.getProperty(), "threshold", SIMILARITY_THRESHOLD));
+      }
+    }
+  }
+
+  /**
+   * Execute a query, the procedures record their latencies as {@link PluginMetrics#WARMUP} operations, not as user traffic
+   */
+  private void execute(final String query, final Map<String, Object> parameters) {
+    context.getMetrics().recordAs(PluginMetrics.WARMUP, () -> {
+      try (Transaction tx = db.beginTx(); Result result = tx.execute(query, parameters)) {
+        result.accept(row -> true);
+        tx.commit();
+        queries.incrementAndGet();
+      } catch (RuntimeException | AssertionError e) {
+        // e.g. the index does not exist yet, the procedures assert its existence
+        failedQueries.incrementAndGet();
+        logger.debug("Warm-up query failed: {}", e.getMessage());
+      }
+    });
+  }
+
+  private void prefetchFingerprints(final List<String> labels, final List<FingerprintDefinition> fingerprints) throws InterruptedException {
+    final String fp = NodeFields.FingerprintEncoded.getValue();
+    try (Transaction tx = db.beginTx(); ResourceIterator<Node> nodes = tx.findNodes(Label.label(labels.get(0)))) {
+      while (nodes.hasNext()) {
+        checkStopped();
+        final Node node = nodes.next();
+        node.getProperty(fp, null);
+        for (FingerprintDefinition definition: fingerprints) {
+          node.getProperty(definition.getProperty(), null);
+        }
+        prefetched.incrementAndGet();
+      }
+      tx.commit();
+    }
+
+    final FingerprintStoreManager storeManager = context.getStoreManager();
+    if (storeManager != null) {
+      for (FingerprintDefinition definition: fingerprints) {
+        checkStopped();
+        final FingerprintStore store = storeManager.get(definition);
+        if (store != null) {
+          store.load();
+        }
+      }
+    }
+  }
+
+  private void checkStopped() throws InterruptedException {
+    if (stopped || Thread.currentThread().isInterrupted()) {
+      throw new InterruptedException();
+    }
+  }
+
+  private void fail(final String message) {
+    error = message;
+    finishedMillis = System.currentTimeMillis();
+    state = State.failed;
+    logger.warn("Warm-up of database {} failed: {}", databaseName, message);
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * @return true, if the warm-up is finished (also if it failed)
+   */
+  public boolean isFinished() {
+    return state == State.done || state == State.failed;
+  }
+
+  /**
+   * @return duration of the warm-up in milliseconds, until now if it is running
+   */
+  public long getMillis() {
+    if (startedMillis == 0) {
+      return 0;
+    }
+    return (finishedMillis == 0 ? System.currentTimeMillis() : finishedMillis) - startedMillis;
+  }
+
+  public long getQueries() {
+    return queries.get();
+  }
+
+  public long getFailedQueries() {
+    return failedQueries.get();
+  }
+
+  public long getPrefetched() {
+    return prefetched.get();
+  }
+
+  public String getError() {
+    return error;
+  }
+}
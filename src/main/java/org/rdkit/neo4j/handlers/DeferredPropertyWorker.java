@@ -0,0 +1,263 @@
+package org.rdkit.neo4j.handlers;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.NodeParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Background worker of the {@link org.rdkit.neo4j.config.HandlerMode#deferred} mode
+ * Event handler only queues ids of committed nodes, the worker computes their properties in batched write transactions.
+ *
+ * The queue lives in memory only. It is rebuilt on start from the nodes which have a structure (`smiles` or `mdlmol`)
+ * but have no {@link NodeFields#CanonicalSmiles} property yet, so nodes queued before a restart are not lost.
+ * A structure which can not be converted is stored as {@link NodeFields#Failed}, such nodes are queued again only
+ * after their structure changes. A batch whose commit fails is queued again and retried with a growing delay.
+ */
+public class DeferredPropertyWorker {
+  private static final Logger logger = LoggerFactory.getLogger(DeferredPropertyWorker.class);
+
+  private static final String PENDING_NODES_QUERY = String.format(
+      "MATCH (n:%1$s:%2$s) WHERE n.%3$s IS NULL AND (n.%4$s IS NOT NULL OR n.%5$s IS NOT NULL) "
+          + "AND (n.%6$s IS NULL OR n.%6$s <> coalesce(n.%5$s, n.%4$s)) RETURN id(n) AS id",
+      Constants.Chemical.getValue(), Constants.Structure.getValue(), NodeFields.CanonicalSmiles.getValue(),
+      NodeFields.Smiles.getValue(), NodeFields.MdlMol.getValue(), NodeFields.Failed.getValue());
+  private static final int MAX_BACKOFF_SHIFT = 6;
+
+  private final String databaseName;
+  private final GraphDatabaseService db;
+  private final Function<Node, NodeParameters> conversion;
+  private final int batchSize;
+  private final Duration interval;
+  private final List<Label> labels;
+
+  private final ConcurrentLinkedQueue<PendingNode> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicLong processed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private int failedCommits;
+  private long retryAt;
+
+  private ScheduledExecutorService executor;
+
+  /**
+   * @param databaseName - name of the database the worker belongs to
+   * @param db - database to update
+   * @param conversion - creates properties of a node, executed within the worker transaction
+   * @param batchSize - maximal amount of nodes updated in one transaction
+   * @param interval - delay between two runs of the worker
+   */
+  public DeferredPropertyWorker(String databaseName, GraphDatabaseService db, Function<Node, NodeParameters> conversion, int batchSize, Duration interval) {
+    this.databaseName = databaseName;
+    this.db = db;
+    this.conversion = conversion;
+    this.batchSize = batchSize;
+    this.interval = interval;
+    this.labels = List.of(Label.label(Constants.Chemical.getValue()), Label.label(Constants.Structure.getValue()));
+  }
+
+  /**
+   * Start the worker, the queue is rebuilt from the database before the first batch
+   */
+  public synchronized void start() {
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "rdkit-deferred-" + databaseName);
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.execute(this::rebuild);
+    executor.scheduleWithFixedDelay(this::drain, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop the worker, not processed nodes are picked up by {@link #rebuild()} on the next start
+   */
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Queue nodes for the property computation
+   *
+   * @param nodeIds - ids of committed nodes
+   */
+  public void enqueue(final long[] nodeIds) {
+    final long now = System.currentTimeMillis();
+    for (long nodeId: nodeIds) {
+      queue.add(new PendingNode(nodeId, now));
+    }
+  }
+
+  /**
+   * @return amount of queued nodes
+   */
+  public int getQueued() {
+    return queue.size();
+  }
+
+  /**
+   * @return time in milliseconds the oldest queued node is waiting for its properties, 0 if the queue is empty
+   */
+  public long getLagMillis() {
+    final PendingNode oldest = queue.peek();
+    return oldest == null ? 0 : System.currentTimeMillis() - oldest.queuedAt;
+  }
+
+  /**
+   * @return amount of updated nodes since start
+   */
+  public long getProcessed() {
+    return processed.get();
+  }
+
+  /**
+   * @return amount of nodes which could not be converted since start
+   */
+  public long getFailed() {
+    return failed.get();
+  }
+
+  /**
+   * Queue all nodes which still miss their properties
+   */
+  void rebuild() {
+    if (!db.isAvailable(TimeUnit.MINUTES.toMillis(1))) {
+      logger.warn("Database {} is not available, deferred queue is not rebuilt", databaseName);
+      return;
+    }
+
+    final long now = System.currentTimeMillis();
+    long counter = 0;
+    try (Transaction tx = db.beginTx(); Result result = tx.execute(PENDING_NODES_QUERY)) {
+      while (result.hasNext()) {
+        queue.add(new PendingNode((Long) result.next().get("id"), now));
+        counter++;
+      }
+      tx.commit();
+      logger.info("Deferred queue of database {} rebuilt with {} nodes", databaseName, counter);
+    } catch (Exception e) {
+      logger.error("Unable to rebuild deferred queue of database {}", databaseName, e);
+    }
+  }
+
+  /**
+   * Update queued nodes batch by batch until the queue is empty
+   */
+  void drain() {
+    if (System.currentTimeMillis() < retryAt) {
+      return;
+    }
+    try {
+      while (!queue.isEmpty() && !Thread.currentThread().isInterrupted()) {
+        final List<PendingNode> batch = new ArrayList<>(batchSize);
+        PendingNode pending;
+        while (batch.size() < batchSize && (pending = queue.poll()) != null) {
+          batch.add(pending);
+        }
+        try {
+          processBatch(batch);
+          failedCommits = 0;
+        } catch (Exception e) {
+          // e.g. a deadlock with a user transaction, the batch is retried after a delay
+          queue.addAll(batch);
+          failedCommits++;
+          final long delay = interval.toMillis() << Math.min(failedCommits, MAX_BACKOFF_SHIFT);
+          retryAt = System.currentTimeMillis() + delay;
+          logger.warn("Deferred batch of {} nodes failed, retry in {} ms: {}", batch.size(), delay, e.getMessage());
+          return;
+        }
+      }
+    } catch (Exception e) {
+      // an exception would cancel the scheduled task
+      logger.error("Deferred property computation failed", e);
+    }
+  }
+
+  private void processBatch(final List<PendingNode> batch) {
+    long updated = 0;
+    long unconverted = 0;
+    try (Transaction tx = db.beginTx()) {
+      // properties written by the worker must not queue the nodes again
+      ((InternalTransaction) tx).setMetaData(Map.of(RDKitEventHandler.SKIP_METADATA_KEY, true));
+      for (PendingNode pending: batch) {
+        final Node node;
+        try {
+          node = tx.getNodeById(pending.nodeId);
+        } catch (NotFoundException e) {
+          continue; // node was deleted in the meantime
+        }
+
+        if (!labels.stream().allMatch(node::hasLabel)) {
+          continue;
+        }
+
+        try {
+          RDKitEventHandler.addProperties(node, conversion.apply(node));
+          node.removeProperty(NodeFields.Failed.getValue());
+          updated++;
+        } catch (Exception e) {
+          // the marker keeps the node out of the queue rebuilt on start, until its structure changes
+          final Object structure = node.getProperty(NodeFields.MdlMol.getValue(), node.getProperty(NodeFields.Smiles.getValue(), null));
+          if (structure != null) {
+            node.setProperty(NodeFields.Failed.getValue(), structure);
+          }
+          unconverted++;
+          logger.error("Unable to convert node with id={}", pending.nodeId, e);
+        }
+      }
+      tx.commit();
+    }
+    processed.addAndGet(updated);
+    failed.addAndGet(unconverted);
+    logger.debug("Deferred batch of {} nodes committed", updated);
+  }
+
+  /**
+   * Queued node id together with the moment it was queued
+   */
+  private static class PendingNode {
+    private final long nodeId;
+    private final long queuedAt;
+
+    PendingNode(long nodeId, long queuedAt) {
+      this.nodeId = nodeId;
+      this.queuedAt = queuedAt;
+    }
+  }
+}
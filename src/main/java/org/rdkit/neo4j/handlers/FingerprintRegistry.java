@@ -0,0 +1,127 @@
+package org.rdkit.neo4j.handlers;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.FingerprintDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registry of custom fingerprint properties of a database
+ * Definitions are stored in the graph (see {@link FingerprintDefinition}) and cached until a transaction changes them.
+ */
+public class FingerprintRegistry {
+  private static final Logger logger = LoggerFactory.getLogger(FingerprintRegistry.class);
+  private static final Label registryLabel = Label.label(Constants.FingerprintRegistry.getValue());
+
+  private final GraphDatabaseService db;
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(null));
+
+  public FingerprintRegistry(GraphDatabaseService db) {
+    this.db = db;
+  }
+
+  /**
+   * Return registered fingerprints, definitions are read in a separate transaction when the cache is empty
+   * Definitions loaded while the cache was invalidated are returned, but not cached, as they may miss the last change.
+   *
+   * @return list of definitions
+   */
+  public List<FingerprintDefinition> getDefinitions() {
+    Snapshot current = snapshot.get();
+    if (current.definitions != null) {
+      return current.definitions;
+    }
+    synchronized (this) {
+      current = snapshot.get();
+      if (current.definitions != null) {
+        return current.definitions;
+      }
+      final List<FingerprintDefinition> loaded = load();
+      snapshot.compareAndSet(current, new Snapshot(loaded));
+      return loaded;
+    }
+  }
+
+  /**
+   * Drop cached definitions, they are read again on the next access
+   * A load started before the invalidation does not publish its result.
+   */
+  public void invalidate() {
+    snapshot.set(new Snapshot(null));
+  }
+
+  /**
+   * Method checks whether a transaction changes registry nodes, must be called before commit
+   *
+   * @param data transaction
+   * @return true, if the cached definitions become stale after the commit
+   */
+  static boolean isChangedBy(final TransactionData data) {
+    for (LabelEntry entry: data.assignedLabels()) {
+      if (entry.label().equals(registryLabel)) return true;
+    }
+    for (LabelEntry entry: data.removedLabels()) {
+      if (entry.label().equals(registryLabel)) return true;
+    }
+    for (PropertyEntry<Node> entry: data.assignedNodeProperties()) {
+      if (!data.isDeleted(entry.entity()) && entry.entity().hasLabel(registryLabel)) return true;
+    }
+    for (PropertyEntry<Node> entry: data.removedNodeProperties()) {
+      if (!data.isDeleted(entry.entity()) && entry.entity().hasLabel(registryLabel)) return true;
+    }
+    return false;
+  }
+
+  private List<FingerprintDefinition> load() {
+    final List<FingerprintDefinition> loaded = new ArrayList<>();
+    try (Transaction tx = db.beginTx()) {
+      tx.findNodes(registryLabel).forEachRemaining(node -> {
+        try {
+          loaded.add(FingerprintDefinition.from(node));
+        } catch (RuntimeException e) {
+          logger.error("Invalid fingerprint definition node={}", node, e);
+        }
+      });
+      tx.commit();
+    }
+    logger.debug("Loaded fingerprint definitions: {}", loaded);
+    return List.copyOf(loaded);
+  }
+
+  /**
+   * Cached definitions, every invalidation creates a new instance
+   */
+  private static class Snapshot {
+    private final List<FingerprintDefinition> definitions;
+
+    Snapshot(List<FingerprintDefinition> definitions) {
+      this.definitions = definitions;
+    }
+  }
+}
@@ -21,93 +21,304 @@ import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
 import org.neo4j.graphdb.event.TransactionData;
 import org.neo4j.graphdb.event.TransactionEventListenerAdapter;
+import org.rdkit.neo4j.metrics.PluginMetrics;
 import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.FingerprintDefinition;
+import org.rdkit.neo4j.models.LuceneQuery;
 import org.rdkit.neo4j.models.NodeFields;
 import org.rdkit.neo4j.models.NodeParameters;
 import org.rdkit.neo4j.utils.Converter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * RDKit event handler
- * Handler tracks new nodes with property `smiles` or `mdlmol`
- * In case of new node - creates additional properties, the list of properties may be found in {@link org.rdkit.neo4j.models.NodeFields}
- *
- * todo: add functionality to track new properties during runtime (similarity search can create new properties)
+ * Handler tracks new nodes with property `smiles` or `mdlmol` and changes of those properties
+ * In case of new or changed structure - creates additional properties, the list of properties may be found in {@link org.rdkit.neo4j.models.NodeFields}
+ * In case of removed structure (both `smiles` and `mdlmol`) - removes them
+ * Big transactions (at least `parallelThreshold` nodes) are converted on a pool of worker threads,
+ * node properties are always read and written on the committing thread.
+ * In {@link org.rdkit.neo4j.config.HandlerMode#deferred} mode the handler only collects ids of the nodes,
+ * which are passed after commit to the {@link DeferredPropertyWorker}.
+ * Fingerprints registered by `org.rdkit.fingerprint.create` (see {@link FingerprintRegistry}) are computed in the same parse pass.
+ * Identical structures are converted once, as long as they stay in the {@link org.rdkit.neo4j.utils.ConversionCache} of the converter.
  */
 public class RDKitEventHandler extends TransactionEventListenerAdapter<Object> {
 
   private static final Logger logger = LoggerFactory.getLogger(RDKitEventHandler.class);
 
+  /**
+   * Transactions with this metadata key are ignored by the handler, e.g. transactions of the {@link DeferredPropertyWorker}
+   */
+  public static final String SKIP_METADATA_KEY = "rdkit.handler.skip";
+
+  private static final List<NodeFields> DERIVED_FIELDS = List.of(NodeFields.CanonicalSmiles, NodeFields.InchiKey,
+      NodeFields.Formula, NodeFields.MolecularWeight, NodeFields.FingerprintEncoded, NodeFields.FingerprintOnes, NodeFields.Stamp,
+      NodeFields.Failed);
+
   private final List<Label> labels;
   private final Converter converter;
   private final boolean sanitize;
+  private final int parallelThreshold;
+  private final ExecutorService executor;
+  private DeferredPropertyWorker deferredWorker;
+  private FingerprintRegistry fingerprintRegistry;
+  private PluginMetrics metrics;
 
   public RDKitEventHandler(boolean sanitize) {
+    this(sanitize, 1, Integer.MAX_VALUE);
+  }
+
+  public RDKitEventHandler(boolean sanitize, int parallelism, int parallelThreshold) {
+    this(sanitize, parallelism, parallelThreshold, Converter.createDefault());
+  }
+
+  /**
+   * @param sanitize - sanitize structures, if false, structures failing the sanitization are converted without it
+   * @param parallelism - amount of worker threads
+   * @param parallelThreshold - minimal amount of nodes in a transaction converted on the worker threads
+   * @param converter - creates node properties, defines the cache and the computed optional fields
+   */
+  public RDKitEventHandler(boolean sanitize, int parallelism, int parallelThreshold, Converter converter) {
     this.sanitize = sanitize;
     this.labels = Arrays.asList(Label.label(Constants.Chemical.getValue()), Label.label(Constants.Structure.getValue()));
-    this.converter = Converter.createDefault();
+    this.converter = converter;
+    this.parallelThreshold = parallelThreshold;
+    this.executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism, new ConverterThreadFactory()) : null;
   }
 
   /**
    * RDKitEventHandler tracks only before commit changes in db.
-   * If suitable item is found - new properties are added
-   * Suitable items are found by this method {@link #getNodes(TransactionData, String)}}
+   * If suitable item is found - new properties are added, if its structure was removed - the properties are cleared
+   * Suitable items are found by this method {@link #getChangedStructures(TransactionData)}
    *
    * {@inheritDoc}
    */
   @Override
   public Object beforeCommit(TransactionData data, Transaction transaction, GraphDatabaseService databaseService) throws Exception {
-    // Obtain nodes with `mdlmol` property
-    Set<Node> nodesMol = getNodes(data, NodeFields.MdlMol.getValue());
-
-    for (Node node: nodesMol) {
-      final String mol = (String) node.getProperty(NodeFields.MdlMol.getValue());
-
-      NodeParameters block;
-      try {
-        block = converter.convertMolBlock(mol, true);
-      } catch (MolSanitizeException e) {
-        if (sanitize) {
-          throw e;
-        } else {
-          block = converter.convertMolBlock(mol, false);
-        }
+    if (data.metaData().containsKey(SKIP_METADATA_KEY)) {
+      return null;
+    }
+    final long start = System.nanoTime();
+
+    final boolean registryChanged = fingerprintRegistry != null && FingerprintRegistry.isChangedBy(data);
+    final List<FingerprintDefinition> fingerprints = getFingerprints();
+    final Map<Node, NodeFields> structures = getChangedStructures(data);
+
+    // Structures are read on the transaction thread, conversion itself does not touch the graph
+    final List<Node> nodes = new ArrayList<>(structures.size());
+    final List<Callable<NodeParameters>> conversions = new ArrayList<>(structures.size());
+
+    for (Map.Entry<Node, NodeFields> entry: structures.entrySet()) {
+      final Node node = entry.getKey();
+      final NodeFields source = entry.getValue();
+
+      if (source == null) {
+        clearProperties(node, true, fingerprints);
+      } else if (deferredWorker != null) {
+        // stale properties are removed at once, so the worker rebuilds them from the new structure (also after restart)
+        clearProperties(node, source == NodeFields.Smiles, fingerprints);
+        nodes.add(node);
+      } else if (source == NodeFields.MdlMol) {
+        final String mol = (String) node.getProperty(NodeFields.MdlMol.getValue());
+        nodes.add(node);
+        conversions.add(() -> convertMolBlock(mol, fingerprints));
+      } else {
+        final String smiles = (String) node.getProperty(NodeFields.Smiles.getValue());
+        nodes.add(node);
+        conversions.add(() -> convertSmiles(smiles, fingerprints));
+      }
+    }
+
+    if (deferredWorker != null) {
+      record(PluginMetrics.Stage.total, start);
+      return new CommitState(nodes.stream().mapToLong(Node::getId).toArray(), registryChanged);
+    }
+
+    final List<NodeParameters> blocks = executor != null && conversions.size() >= parallelThreshold
+        ? convertParallel(conversions)
+        : convertSequential(conversions);
+
+    for (int i = 0; i < nodes.size(); i++) {
+      final Node node = nodes.get(i);
+      // `mdlmol` created from an edited `smiles` replaces the previous one
+      if (structures.get(node) == NodeFields.Smiles) {
+        setOrRemove(node, NodeFields.MdlMol, blocks.get(i).getMolBlock());
       }
-      addProperties(node, block);
+      final long written = System.nanoTime();
+      addProperties(node, blocks.get(i));
+      record(PluginMetrics.Stage.write, written);
     }
 
-    // Obtain nodes with `smiles` property
-    Set<Node> nodesSmiles = getNodes(data, NodeFields.Smiles.getValue());
-    nodesSmiles.removeAll(nodesMol);
+    record(PluginMetrics.Stage.total, start);
+    return new CommitState(null, registryChanged);
+  }
 
-    for (Node node: nodesSmiles) {
-      final String smiles = (String) node.getProperty(NodeFields.Smiles.getValue());
+  /**
+   * In deferred mode ids of the collected nodes are queued for the background worker
+   * Cached fingerprint definitions are dropped, if the transaction changed them
+   *
+   * {@inheritDoc}
+   */
+  @Override
+  public void afterCommit(TransactionData data, Object state, GraphDatabaseService databaseService) {
+    if (!(state instanceof CommitState)) {
+      return;
+    }
+    final CommitState commitState = (CommitState) state;
+    if (commitState.registryChanged) {
+      fingerprintRegistry.invalidate();
+    }
+    if (deferredWorker != null && commitState.pendingNodeIds != null) {
+      deferredWorker.enqueue(commitState.pendingNodeIds);
+    }
+  }
 
-      NodeParameters block;
-      try {
-        block = converter.convertSmiles(smiles, true);
-      } catch (MolSanitizeException e) {
-        if (sanitize) {
-          throw e;
-        } else {
-          block = converter.convertSmiles(smiles, false);
-        }
+  /**
+   * Switch the handler into deferred mode, properties are computed later by the `worker`
+   *
+   * @param worker to pass ids of committed nodes to
+   */
+  public void deferTo(final DeferredPropertyWorker worker) {
+    this.deferredWorker = worker;
+  }
+
+  /**
+   * Keep custom fingerprints of the `registry` up to date
+   *
+   * @param registry of the database
+   */
+  public void useRegistry(final FingerprintRegistry registry) {
+    this.fingerprintRegistry = registry;
+  }
+
+  /**
+   * Record latencies of the handler: written nodes and transactions, parsing and fingerprints are recorded by the converter
+   *
+   * @param metrics of the database
+   */
+  public void useMetrics(final PluginMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Method creates properties of the node from its `mdlmol` property or, if it is absent, from its `smiles` property
+   *
+   * @param node - to be converted, must be read within its transaction
+   * @return constructed parameters
+   */
+  NodeParameters convert(final Node node) {
+    final List<FingerprintDefinition> fingerprints = getFingerprints();
+    if (node.hasProperty(NodeFields.MdlMol.getValue())) {
+      return convertMolBlock((String) node.getProperty(NodeFields.MdlMol.getValue()), fingerprints);
+    }
+    return convertSmiles((String) node.getProperty(NodeFields.Smiles.getValue()), fingerprints);
+  }
+
+  /**
+   * Release worker threads of the handler
+   */
+  public void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private void record(final PluginMetrics.Stage stage, final long startNanos) {
+    if (metrics != null) {
+      metrics.record(PluginMetrics.HANDLER, stage, startNanos);
+    }
+  }
+
+  private List<FingerprintDefinition> getFingerprints() {
+    return fingerprintRegistry == null ? Collections.emptyList() : fingerprintRegistry.getDefinitions();
+  }
+
+  private NodeParameters convertMolBlock(final String mol, final List<FingerprintDefinition> fingerprints) {
+    try {
+      return converter.convertMolBlock(mol, true, fingerprints);
+    } catch (MolSanitizeException e) {
+      if (sanitize) {
+        throw e;
+      } else {
+        return converter.convertMolBlock(mol, false, fingerprints);
+      }
+    }
+  }
+
+  private NodeParameters convertSmiles(final String smiles, final List<FingerprintDefinition> fingerprints) {
+    try {
+      return converter.convertSmiles(smiles, true, fingerprints);
+    } catch (MolSanitizeException e) {
+      if (sanitize) {
+        throw e;
+      } else {
+        return converter.convertSmiles(smiles, false, fingerprints);
       }
-      addProperties(node, block);
     }
+  }
 
-    return data;
+  private List<NodeParameters> convertSequential(final List<Callable<NodeParameters>> conversions) throws Exception {
+    final List<NodeParameters> blocks = new ArrayList<>(conversions.size());
+    for (Callable<NodeParameters> conversion: conversions) {
+      blocks.add(conversion.call());
+    }
+    return blocks;
   }
 
+  /**
+   * Method executes conversions on the worker threads and keeps the order of the results
+   * The first failed conversion cancels the remaining ones and its cause is rethrown, as it would be in sequential mode
+   *
+   * @param conversions to execute
+   * @return converted node parameters in the order of `conversions`
+   * @throws Exception thrown by a conversion
+   */
+  private List<NodeParameters> convertParallel(final List<Callable<NodeParameters>> conversions) throws Exception {
+    logger.debug("Converting {} nodes in parallel", conversions.size());
+    final List<Future<NodeParameters>> futures = new ArrayList<>(conversions.size());
+    for (Callable<NodeParameters> conversion: conversions) {
+      futures.add(executor.submit(conversion));
+    }
+
+    final List<NodeParameters> blocks = new ArrayList<>(futures.size());
+    try {
+      for (Future<NodeParameters> future: futures) {
+        blocks.add(future.get());
+      }
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw (Error) cause;
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    return blocks;
+  }
   /**
    * Method updates an object state (Node object) by adding list of properties
    *
@@ -117,41 +328,179 @@ public class RDKitEventHandler extends TransactionEventListenerAdapter<Object> {
   public static void addProperties(final Node node, final NodeParameters block) {
     logger.debug("Node={} adding properties: {}", node, block);
     node.setProperty(NodeFields.CanonicalSmiles.getValue(), block.getCanonicalSmiles());
-    node.setProperty(NodeFields.InchiKey.getValue(), block.getInchiKey());
-    node.setProperty(NodeFields.Formula.getValue(), block.getFormula());
-    node.setProperty(NodeFields.MolecularWeight.getValue(), block.getMolecularWeight());
+    setOrRemove(node, NodeFields.InchiKey, block.getInchiKey());
+    setOrRemove(node, NodeFields.Formula, block.getFormula());
+    setOrRemove(node, NodeFields.MolecularWeight, block.getMolecularWeight());
     node.setProperty(NodeFields.FingerprintEncoded.getValue(), block.getFingerprintEncoded());
     node.setProperty(NodeFields.FingerprintOnes.getValue(), block.getFingerpintOnes());
+    setOrRemove(node, NodeFields.Stamp, block.getStamp());
 
     // When molblock is created from smiles
-    if (!node.hasProperty(NodeFields.MdlMol.getValue()))
+    if (!node.hasProperty(NodeFields.MdlMol.getValue()) && block.getMolBlock() != null)
       node.setProperty(NodeFields.MdlMol.getValue(), block.getMolBlock());
+
+    for (Map.Entry<FingerprintDefinition, LuceneQuery> entry: block.getFingerprints().entrySet()) {
+      final FingerprintDefinition definition = entry.getKey();
+      if (definition.appliesTo(node)) {
+        definition.setProperties(node, entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Optional fields which were not computed are removed, so that no stale values remain
+   */
+  private static void setOrRemove(final Node node, final NodeFields field, final Object value) {
+    if (value == null) {
+      node.removeProperty(field.getValue());
+    } else {
+      node.setProperty(field.getValue(), value);
+    }
   }
 
   /**
-   * Return all nodes that obtained specified `labels` and contain a `property` field
+   * Method removes properties created by the handler
+   *
+   * @param node - to be cleared
+   * @param molBlock - remove `mdlmol` property as well
+   * @param fingerprints - registered custom fingerprints to remove
+   */
+  static void clearProperties(final Node node, final boolean molBlock, final List<FingerprintDefinition> fingerprints) {
+    logger.debug("Node={} clearing properties", node);
+    for (NodeFields field: DERIVED_FIELDS) {
+      node.removeProperty(field.getValue());
+    }
+    for (FingerprintDefinition definition: fingerprints) {
+      if (definition.appliesTo(node)) {
+        definition.removeProperties(node);
+      }
+    }
+    if (molBlock) {
+      node.removeProperty(NodeFields.MdlMol.getValue());
+    }
+  }
+
+  /**
+   * Return all nodes with specified `labels`, which were created, obtained the labels
+   * or got their `smiles` or `mdlmol` property changed within the transaction.
+   * Value of the map is the property to create node properties from:
+   * - {@link NodeFields#MdlMol} if `mdlmol` is assigned in the transaction or exists and `smiles` is not assigned
+   * - {@link NodeFields#Smiles} if `smiles` is assigned in the transaction or `mdlmol` does not exist
+   * - null if both `smiles` and `mdlmol` were removed or `smiles` was removed and the remaining `mdlmol` was created from it,
+   *   properties of such nodes must be cleared (including the created `mdlmol`)
+   *
+   * Properties set to the same value as previously committed are not treated as changes.
+   *
    * @param data transaction
-   * @param property name
-   * @return set of nodes for further update
-   */
-  private Set<Node> getNodes(final TransactionData data, String property) {
-    // todo: logic here needs improvement
-
-    // todo: refactor, get rid of collect and may be stream
-    Set<Node> nodes = StreamSupport.stream(data.createdNodes().spliterator(), false)
-        .filter(node -> labels.stream().allMatch(node::hasLabel) && node.hasProperty(property))
-        .collect(Collectors.toSet());
-
-    Set<Node> labelAssigned = StreamSupport.stream(data.assignedLabels().spliterator(), false)
-            .filter(
-                    labelEntry -> {
-                      Node node = labelEntry.node();
-                      return labels.stream().allMatch(node::hasLabel) && !nodes.contains(node) && node.hasProperty(property);
-                    })
-            .map(LabelEntry::node)
-            .collect(Collectors.toSet());
-    nodes.addAll(labelAssigned);
-
-    return nodes;
+   * @return map of nodes for further update
+   */
+  private Map<Node, NodeFields> getChangedStructures(final TransactionData data) {
+    final Set<Node> touched = new LinkedHashSet<>();
+    final Set<Node> removed = new HashSet<>();
+    final Map<Node, String> removedSmiles = new HashMap<>();
+    final Set<Node> assignedMol = new HashSet<>();
+    final Set<Node> assignedSmiles = new HashSet<>();
+
+    data.createdNodes().forEach(touched::add);
+    for (LabelEntry entry: data.assignedLabels()) {
+      touched.add(entry.node());
+    }
+
+    for (PropertyEntry<Node> entry: data.assignedNodeProperties()) {
+      if (!isStructureProperty(entry.key()) || Objects.equals(entry.value(), entry.previouslyCommittedValue())) {
+        continue;
+      }
+      touched.add(entry.entity());
+      if (NodeFields.MdlMol.getValue().equals(entry.key())) {
+        assignedMol.add(entry.entity());
+      } else {
+        assignedSmiles.add(entry.entity());
+      }
+    }
+
+    for (PropertyEntry<Node> entry: data.removedNodeProperties()) {
+      if (isStructureProperty(entry.key())) {
+        touched.add(entry.entity());
+        removed.add(entry.entity());
+        if (NodeFields.Smiles.getValue().equals(entry.key())) {
+          removedSmiles.put(entry.entity(), (String) entry.previouslyCommittedValue());
+        }
+      }
+    }
+
+    final Map<Node, NodeFields> structures = new LinkedHashMap<>();
+    for (Node node: touched) {
+      if (data.isDeleted(node) || !labels.stream().allMatch(node::hasLabel)) {
+        continue;
+      }
+
+      if (assignedMol.contains(node)) {
+        structures.put(node, NodeFields.MdlMol);
+      } else if (assignedSmiles.contains(node)) {
+        structures.put(node, NodeFields.Smiles);
+      } else if (isCreatedFrom(node, removedSmiles.get(node))) {
+        structures.put(node, null);
+      } else if (node.hasProperty(NodeFields.MdlMol.getValue())) {
+        structures.put(node, NodeFields.MdlMol);
+      } else if (node.hasProperty(NodeFields.Smiles.getValue())) {
+        structures.put(node, NodeFields.Smiles);
+      } else if (removed.contains(node)) {
+        structures.put(node, null);
+      }
+    }
+
+    return structures;
+  }
+
+  /**
+   * Check whether `mdlmol` of the node was created by the handler from the removed `smiles`,
+   * i.e. it is equal to the block converted from the previous `smiles` value
+   *
+   * @param node - with removed `smiles`
+   * @param smiles - previously committed value, null if `smiles` was not removed
+   * @return true, if `mdlmol` is a derived property
+   */
+  private boolean isCreatedFrom(final Node node, final String smiles) {
+    if (smiles == null || !node.hasProperty(NodeFields.MdlMol.getValue())) {
+      return false;
+    }
+    try {
+      return node.getProperty(NodeFields.MdlMol.getValue()).equals(convertSmiles(smiles, getFingerprints()).getMolBlock());
+    } catch (Exception e) {
+      logger.debug("Node={} previous smiles=`{}` is not convertible: {}", node, smiles, e.getMessage());
+      return false;
+    }
+  }
+
+  private static boolean isStructureProperty(final String key) {
+    return NodeFields.MdlMol.getValue().equals(key) || NodeFields.Smiles.getValue().equals(key);
+  }
+
+  /**
+   * State passed from {@link #beforeCommit} to {@link #afterCommit}
+   * Ids of the nodes collected in deferred mode and whether fingerprint definitions were changed
+   */
+  private static class CommitState {
+    private final long[] pendingNodeIds;
+    private final boolean registryChanged;
+
+    CommitState(long[] pendingNodeIds, boolean registryChanged) {
+      this.pendingNodeIds = pendingNodeIds;
+      this.registryChanged = registryChanged;
+    }
+  }
+
+  /**
+   * Creates daemon threads, so that pending conversions never block the shutdown of the database
+   */
+  private static class ConverterThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "rdkit-handler-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
   }
 }
@@ -28,11 +28,19 @@ import org.neo4j.kernel.lifecycle.Lifecycle;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 import org.neo4j.logging.Log;
 import org.neo4j.logging.internal.LogService;
+import org.rdkit.fingerprint.FingerprintType;
+import org.rdkit.neo4j.config.HandlerMode;
 import org.rdkit.neo4j.config.RDKitSettings;
 import org.rdkit.neo4j.handlers.RDKitEventHandlerExtensionFactory.Dependencies;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.TokenEncoding;
+import org.rdkit.neo4j.store.FingerprintStoreManager;
+import org.rdkit.neo4j.utils.ConversionCache;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Class enables neo4j kernel to load custom event handler and loads native libraries
@@ -50,7 +58,11 @@ public class RDKitEventHandlerExtensionFactory extends ExtensionFactory<Dependen
             private final String databaseName = dependencies.graphDatabaseService().databaseName();
             final Log log = dependencies.log().getUserLog(RDKitEventHandlerExtensionFactory.class);
 
+            private DatabaseContext context;
             private RDKitEventHandler handler;
+            private DeferredPropertyWorker deferredWorker;
+            private FingerprintStoreManager storeManager;
+            private DatabaseWarmup warmup;
 
             @Override
             public void start() {
@@ -59,9 +71,50 @@ public class RDKitEventHandlerExtensionFactory extends ExtensionFactory<Dependen
                 } else {
                     log.info("Starting RDKit trigger watcher");
                     boolean sanitize = dependencies.config().get(RDKitSettings.indexSanitize);
-                    log.debug("sanitize = %s", sanitize);
-                    handler = new RDKitEventHandler(sanitize);
+                    int parallelism = dependencies.config().get(RDKitSettings.handlerParallelism);
+                    int parallelThreshold = dependencies.config().get(RDKitSettings.handlerParallelThreshold);
+                    int cacheSize = dependencies.config().get(RDKitSettings.conversionCacheSize);
+                    Set<NodeFields> optionalFields = NodeFields.parseOptional(dependencies.config().get(RDKitSettings.optionalFields));
+                    boolean patternSerialized = dependencies.config().get(RDKitSettings.patternSerialized);
+                    TokenEncoding encoding = dependencies.config().get(RDKitSettings.fingerprintEncoding);
+                    log.debug("sanitize = %s, parallelism = %d, parallelThreshold = %d, cacheSize = %d, optionalFields = %s, patternSerialized = %s, encoding = %s",
+                            sanitize, parallelism, parallelThreshold, cacheSize, optionalFields, patternSerialized, encoding);
+                    FingerprintType.PATTERN_FP_LOCK.setSerialized(patternSerialized);
+                    TokenEncoding.use(encoding);
+                    context = new DatabaseContext(databaseName, cacheSize > 0 ? new ConversionCache(cacheSize) : null, optionalFields);
+                    context.start();
+                    handler = new RDKitEventHandler(sanitize, parallelism, parallelThreshold, context.getConverter());
+                    handler.useRegistry(new FingerprintRegistry(dependencies.graphDatabaseService()));
+                    handler.useMetrics(context.getMetrics());
+
+                    if (dependencies.config().get(RDKitSettings.handlerMode) == HandlerMode.deferred) {
+                        log.info("RDKit properties are computed in deferred mode");
+                        deferredWorker = new DeferredPropertyWorker(databaseName, dependencies.graphDatabaseService(), handler::convert,
+                                dependencies.config().get(RDKitSettings.deferredBatchSize), dependencies.config().get(RDKitSettings.deferredInterval));
+                        handler.deferTo(deferredWorker);
+                        context.setDeferredWorker(deferredWorker);
+                        deferredWorker.start();
+                    }
                     dependencies.databaseManagementService().registerTransactionEventListener(dependencies.graphDatabaseService().databaseName(), handler);
+
+                    Path directory = dependencies.config().get(GraphDatabaseSettings.data_directory).resolve("rdkit").resolve(databaseName);
+                    if (dependencies.config().get(RDKitSettings.fingerprintStore)) {
+                        log.info("RDKit fingerprint stores are kept in %s", directory);
+                        storeManager = new FingerprintStoreManager(databaseName, dependencies.graphDatabaseService(), directory);
+                        context.setStoreManager(storeManager);
+                        storeManager.start();
+                        dependencies.databaseManagementService().registerTransactionEventListener(databaseName, storeManager);
+                    } else {
+                        FingerprintStoreManager.deleteAll(directory);
+                    }
+
+                    if (dependencies.config().get(RDKitSettings.warmupEnabled)) {
+                        log.info("RDKit warm-up started");
+                        warmup = new DatabaseWarmup(context, dependencies.graphDatabaseService(),
+                                dependencies.config().get(RDKitSettings.warmupSmiles), dependencies.config().get(RDKitSettings.warmupPrefetch));
+                        context.setWarmup(warmup);
+                        warmup.start();
+                    }
                 }
             }
 
@@ -83,8 +136,23 @@ public class RDKitEventHandlerExtensionFactory extends ExtensionFactory<Dependen
             @Override
             public void shutdown() {
                 log.info("Stopping RDKit trigger watcher");
-                if (handler != null)
-                    dependencies.databaseManagementService().registerTransactionEventListener(dependencies.graphDatabaseService().databaseName(), handler);
+                if (warmup != null) {
+                    warmup.stop();
+                }
+                if (deferredWorker != null) {
+                    deferredWorker.stop();
+                }
+                if (handler != null) {
+                    dependencies.databaseManagementService().unregisterTransactionEventListener(dependencies.graphDatabaseService().databaseName(), handler);
+                    handler.shutdown();
+                }
+                if (storeManager != null) {
+                    dependencies.databaseManagementService().unregisterTransactionEventListener(databaseName, storeManager);
+                    storeManager.stop();
+                }
+                if (context != null) {
+                    context.stop();
+                }
             }
         };
     }
@@ -0,0 +1,116 @@
+package org.rdkit.neo4j.metrics;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed buckets from 10 microseconds to 10 seconds
+ * Bucket bounds follow the Prometheus convention: a bucket counts observations less than or equal to its bound,
+ * observations above the last bound are only counted in {@link #getCount()}.
+ */
+public class LatencyHistogram {
+  /**
+   * Upper bounds of the buckets in milliseconds
+   */
+  public static final double[] BOUNDS_MILLIS = {0.01, 0.05, 0.1, 0.5, 1, 5, 10, 50, 100, 500, 1_000, 5_000, 10_000};
+
+  private static final long[] BOUNDS_NANOS = new long[BOUNDS_MILLIS.length];
+
+  static {
+    for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+      BOUNDS_NANOS[i] = (long) (BOUNDS_MILLIS[i] * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+  }
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_NANOS.length);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * @param nanos - observed latency
+   */
+  public void record(final long nanos) {
+    final long value = Math.max(0, nanos);
+    for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+      if (value <= BOUNDS_NANOS[i]) {
+        buckets.incrementAndGet(i);
+        break;
+      }
+    }
+    count.incrementAndGet();
+    totalNanos.addAndGet(value);
+    maxNanos.accumulateAndGet(value, Math::max);
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public double getTotalMillis() {
+    return toMillis(totalNanos.get());
+  }
+
+  public double getMeanMillis() {
+    final long observations = count.get();
+    return observations == 0 ? 0 : toMillis(totalNanos.get()) / observations;
+  }
+
+  public double getMaxMillis() {
+    return toMillis(maxNanos.get());
+  }
+
+  /**
+   * @return cumulative counts of the buckets, in the order of {@link #BOUNDS_MILLIS}
+   */
+  public long[] getBuckets() {
+    final long[] cumulative = new long[BOUNDS_NANOS.length];
+    long sum = 0;
+    for (int i = 0; i < cumulative.length; i++) {
+      sum += buckets.get(i);
+      cumulative[i] = sum;
+    }
+    return cumulative;
+  }
+
+  /**
+   * Estimate a quantile by the upper bound of the bucket containing it
+   *
+   * @param quantile - between 0 and 1, e.g. 0.99
+   * @return bound in milliseconds, the maximum if the quantile is above the last bucket, 0 without observations
+   */
+  public double getQuantileMillis(final double quantile) {
+    final long observations = count.get();
+    if (observations == 0) {
+      return 0;
+    }
+    final long rank = (long) Math.ceil(quantile * observations);
+    final long[] cumulative = getBuckets();
+    for (int i = 0; i < cumulative.length; i++) {
+      if (cumulative[i] >= rank) {
+        return Math.min(BOUNDS_MILLIS[i], getMaxMillis());
+      }
+    }
+    return getMaxMillis();
+  }
+
+  private static double toMillis(final long nanos) {
+    return nanos / 1_000_000d;
+  }
+}
@@ -0,0 +1,112 @@
+package org.rdkit.neo4j.metrics;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only JMX view of {@link PluginMetrics}
+ * Every histogram is published as numeric attributes `<operation>:<stage>.<value>`,
+ * values are `count`, `totalMillis`, `meanMillis`, `maxMillis`, `p50Millis`, `p95Millis` and `p99Millis`.
+ * Attributes appear once an operation is executed, clients read the bean info on every scrape.
+ */
+class MetricsBean implements DynamicMBean {
+  private static final List<String> VALUES = List.of("count", "totalMillis", "meanMillis", "maxMillis", "p50Millis", "p95Millis", "p99Millis");
+
+  private final PluginMetrics metrics;
+
+  MetricsBean(PluginMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    final int separator = attribute.lastIndexOf('.');
+    final LatencyHistogram histogram = separator < 0 ? null : metrics.getHistograms().get(attribute.substring(0, separator));
+    if (histogram == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    switch (attribute.substring(separator + 1)) {
+      case "count":
+        return histogram.getCount();
+      case "totalMillis":
+        return histogram.getTotalMillis();
+      case "meanMillis":
+        return histogram.getMeanMillis();
+      case "maxMillis":
+        return histogram.getMaxMillis();
+      case "p50Millis":
+        return histogram.getQuantileMillis(0.5);
+      case "p95Millis":
+        return histogram.getQuantileMillis(0.95);
+      case "p99Millis":
+        return histogram.getQuantileMillis(0.99);
+      default:
+        throw new AttributeNotFoundException(attribute);
+    }
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    final AttributeList list = new AttributeList();
+    for (String attribute: attributes) {
+      try {
+        list.add(new Attribute(attribute, getAttribute(attribute)));
+      } catch (AttributeNotFoundException e) {
+        // skipped, as specified by DynamicMBean
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException(String.format("Attribute %s is read-only", attribute.getName()));
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature) {
+    throw new UnsupportedOperationException(actionName);
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    final List<MBeanAttributeInfo> attributes = new ArrayList<>();
+    for (Map.Entry<String, LatencyHistogram> entry: metrics.getHistograms().entrySet()) {
+      for (String value: VALUES) {
+        final String type = value.equals("count") ? long.class.getName() : double.class.getName();
+        attributes.add(new MBeanAttributeInfo(entry.getKey() + "." + value, type, "RDKit " + entry.getKey() + " " + value, true, false, false));
+      }
+    }
+    return new MBeanInfo(getClass().getName(), "RDKit plugin latency metrics", attributes.toArray(new MBeanAttributeInfo[0]),
+        null, new MBeanOperationInfo[0], null);
+  }
+}
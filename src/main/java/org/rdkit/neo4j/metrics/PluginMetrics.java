@@ -0,0 +1,173 @@
+package org.rdkit.neo4j.metrics;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency metrics of a database, one {@link LatencyHistogram} per operation (procedure name or {@link #HANDLER}) and {@link Stage}
+ *
+ * Metrics are reported by `org.rdkit.metrics` and published as the JMX bean `org.rdkit.neo4j:type=Metrics,database=<name>`
+ * (see {@link MetricsBean}), e.g. for the Prometheus JMX exporter.
+ */
+public class PluginMetrics {
+  private static final Logger logger = LoggerFactory.getLogger(PluginMetrics.class);
+
+  /**
+   * Operation of the event handler, including the deferred worker
+   */
+  public static final String HANDLER = "handler";
+
+  /**
+   * Prefix of operations executed by the warm-up, they are kept apart from the user traffic
+   */
+  public static final String WARMUP = "warmup.";
+
+  /**
+   * Stage of an operation
+   */
+  public enum Stage {
+    /** parsing of a structure (`smiles` or `mdlmol`) */
+    parse,
+    /** computation of fingerprints and properties of a structure */
+    fingerprint,
+    /** fulltext index query until its first row is available, or fingerprint store scan */
+    query,
+    /** check of a single candidate (substructure match or similarity) */
+    verify,
+    /** properties written to a node */
+    write,
+    /** whole operation: procedure call until its result is closed, transaction of the event handler */
+    total
+  }
+
+  private final String databaseName;
+  private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+  // prefix of the operations of the current thread, see #recordAs
+  private final ThreadLocal<String> prefix = new ThreadLocal<>();
+  private ObjectName objectName;
+
+  /**
+   * @param databaseName - name of the database
+   */
+  public PluginMetrics(String databaseName) {
+    this.databaseName = databaseName;
+  }
+
+  /**
+   * Record the latency of a stage
+   *
+   * @param operation - procedure name or {@link #HANDLER}
+   * @param stage - stage of the operation
+   * @param startNanos - {@link System#nanoTime()} at the start of the stage
+   * @return current {@link System#nanoTime()}, the start of a following stage
+   */
+  public long record(final String operation, final Stage stage, final long startNanos) {
+    final long now = System.nanoTime();
+    histogram(operation, stage).record(now - startNanos);
+    return now;
+  }
+
+  /**
+   * @param operation - procedure name or {@link #HANDLER}
+   * @param stage - stage of the operation
+   * @return histogram, created on first use
+   */
+  public LatencyHistogram histogram(final String operation, final Stage stage) {
+    final String operationPrefix = prefix.get();
+    return histograms.computeIfAbsent(key(operationPrefix == null ? operation : operationPrefix + operation, stage), k -> new LatencyHistogram());
+  }
+
+  /**
+   * Execute an action, the operations it records in the current thread are prefixed, e.g. with {@link #WARMUP}
+   * Procedures called by the action in the same thread record e.g. `warmup.org.rdkit.search.substructure.smiles`.
+   *
+   * @param operationPrefix - prefix of the operations
+   * @param action - to execute
+   */
+  public void recordAs(final String operationPrefix, final Runnable action) {
+    final String previous = prefix.get();
+    prefix.set(operationPrefix);
+    try {
+      action.run();
+    } finally {
+      if (previous == null) {
+        prefix.remove();
+      } else {
+        prefix.set(previous);
+      }
+    }
+  }
+
+  /**
+   * @return histograms by `operation:stage`, sorted by key
+   */
+  public Map<String, LatencyHistogram> getHistograms() {
+    return new TreeMap<>(histograms);
+  }
+
+  /**
+   * Register the JMX bean of the database, a failure is logged only
+   */
+  public synchronized void register() {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(String.format("org.rdkit.neo4j:type=Metrics,database=%s", ObjectName.quote(databaseName)));
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(new MetricsBean(this), name);
+      objectName = name;
+    } catch (JMException e) {
+      logger.warn("Unable to register the metrics bean of database={}: {}", databaseName, e.getMessage());
+    }
+  }
+
+  /**
+   * Unregister the JMX bean of the database
+   */
+  public synchronized void unregister() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (JMException e) {
+      logger.warn("Unable to unregister the metrics bean of database={}: {}", databaseName, e.getMessage());
+    }
+    objectName = null;
+  }
+
+  /**
+   * @return name of the JMX bean or null, if it is not registered
+   */
+  public synchronized ObjectName getObjectName() {
+    return objectName;
+  }
+
+  static String key(final String operation, final Stage stage) {
+    return operation + ":" + stage;
+  }
+}
@@ -25,7 +25,9 @@ public enum Constants {
 
   Chemical("Chemical"),
   Structure("Structure"),
-  IndexName("fp_index"); // the name is `fp_index` in order to support compatability with `similarity` search on `fp` property
+  IndexName("fp_index"), // the name is `fp_index` in order to support compatability with `similarity` search on `fp` property
+  FingerprintRegistry("RDKitFingerprint"), // label of nodes with definitions of custom fingerprint properties
+  Job("RDKitJob"); // label of nodes with the state of batch tasks
 
   private final String value;
 
@@ -0,0 +1,329 @@
+package org.rdkit.neo4j.models;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.rdkit.fingerprint.FingerprintSettings;
+import org.rdkit.fingerprint.FingerprintType;
+import org.rdkit.fingerprint.InvalidFingerprintSettingsException;
+import org.rdkit.neo4j.utils.Converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Definition of a custom fingerprint property created by `org.rdkit.fingerprint.create`
+ * Definitions are stored as nodes with label {@link Constants#FingerprintRegistry},
+ * the event handler computes registered fingerprints of new and changed structures.
+ *
+ * Each fingerprint is stored in four node properties: `property`, `property` + "_ones", `property` + "_type"
+ * and `property` + "_band", the popcount band (`ones / BAND_WIDTH`) indexed next to the fingerprint,
+ * so the similarity search queries only bands which can reach its threshold.
+ *
+ * Fingerprint settings (e.g. `numBits`, `radius`) default to {@link Converter#createSettings(FingerprintType)},
+ * they are stored as `settings` string (`numBits=1024,radius=3`), a definition without it uses the defaults.
+ */
+public class FingerprintDefinition {
+  public static final String PROPERTY = "property";
+  public static final String TYPE = "type";
+  public static final String LABELS = "labels";
+  public static final String SETTINGS = "settings";
+
+  /**
+   * Amount of popcounts in a band
+   */
+  public static final int BAND_WIDTH = 16;
+
+  private final String property;
+  private final FingerprintType type;
+  private final List<String> labels;
+  private final FingerprintSettings settings;
+  private final String encodedSettings;
+
+  public FingerprintDefinition(String property, FingerprintType type, List<String> labels) {
+    this(property, type, labels, Converter.createSettings(type));
+  }
+
+  public FingerprintDefinition(String property, FingerprintType type, List<String> labels, FingerprintSettings settings) {
+    this.property = property;
+    this.type = type;
+    this.labels = List.copyOf(labels);
+    this.settings = settings;
+    this.encodedSettings = encodeSettings(settings);
+  }
+
+  /**
+   * Create settings of a fingerprint type, parameters which are not specified keep their default value
+   *
+   * @param type - fingerprint type
+   * @param parameters - map of {@link SettingsKey} names to numbers, e.g. `{numBits: 1024, radius: 3}`
+   * @return validated settings
+   * @throws IllegalArgumentException if a parameter is unknown, not applicable to the type or invalid
+   */
+  public static FingerprintSettings parseSettings(final FingerprintType type, final Map<String, ?> parameters) {
+    FingerprintSettings settings = Converter.createSettings(type);
+    for (Map.Entry<String, ?> entry: parameters.entrySet()) {
+      final SettingsKey key;
+      try {
+        key = SettingsKey.valueOf(entry.getKey());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(String.format("Unknown fingerprint setting=%s, possible values: %s", entry.getKey(), Arrays.toString(SettingsKey.values())));
+      }
+      if (!settings.isAvailable(key.getter.applyAsInt(settings))) {
+        throw new IllegalArgumentException(String.format("Fingerprint setting=%s is not applicable to fingerprint type=%s", key, type));
+      }
+      if (!(entry.getValue() instanceof Number)) {
+        throw new IllegalArgumentException(String.format("Fingerprint setting=%s must be a number", key));
+      }
+      settings = key.setter.apply(settings, Math.toIntExact(((Number) entry.getValue()).longValue()));
+    }
+
+    try {
+      type.validateSpecification(settings);
+    } catch (InvalidFingerprintSettingsException e) {
+      throw new IllegalArgumentException(String.format("Invalid settings of fingerprint type=%s: %s", type, e.getMessage()));
+    }
+    return settings;
+  }
+
+  /**
+   * @param settings - fingerprint settings
+   * @return parameters which are applicable to the fingerprint type, in the format of {@link #parseSettings(FingerprintType, Map)}
+   */
+  public static Map<String, Object> settingsToMap(final FingerprintSettings settings) {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    for (SettingsKey key: SettingsKey.values()) {
+      final int value = key.getter.applyAsInt(settings);
+      if (settings.isAvailable(value)) {
+        map.put(key.name(), (long) value);
+      }
+    }
+    return map;
+  }
+
+  /**
+   * @param settings - fingerprint settings
+   * @return settings as string, e.g. `numBits=1024,radius=3`
+   */
+  public static String encodeSettings(final FingerprintSettings settings) {
+    return settingsToMap(settings).entrySet().stream()
+        .map(entry -> entry.getKey() + "=" + entry.getValue())
+        .collect(Collectors.joining(","));
+  }
+
+  /**
+   * @param type - fingerprint type
+   * @param encoded - string created by {@link #encodeSettings(FingerprintSettings)}, null for default settings
+   * @return settings
+   */
+  public static FingerprintSettings decodeSettings(final FingerprintType type, final String encoded) {
+    final Map<String, Object> parameters = new LinkedHashMap<>();
+    if (encoded != null && !encoded.isEmpty()) {
+      for (String pair: encoded.split(",")) {
+        final String[] keyValue = pair.split("=", 2);
+        parameters.put(keyValue[0], Long.parseLong(keyValue[1]));
+      }
+    }
+    return parseSettings(type, parameters);
+  }
+
+  /**
+   * Read a definition from a registry node
+   *
+   * @param node with label {@link Constants#FingerprintRegistry}
+   * @return definition
+   */
+  public static FingerprintDefinition from(final Node node) {
+    final FingerprintType type = FingerprintType.parseString((String) node.getProperty(TYPE));
+    return new FingerprintDefinition(
+        (String) node.getProperty(PROPERTY),
+        type,
+        Arrays.asList((String[]) node.getProperty(LABELS)),
+        decodeSettings(type, (String) node.getProperty(SETTINGS, null)));
+  }
+
+  /**
+   * Store the definition in a registry node
+   *
+   * @param node with label {@link Constants#FingerprintRegistry}
+   */
+  public void writeTo(final Node node) {
+    node.setProperty(PROPERTY, property);
+    node.setProperty(TYPE, type.toString());
+    node.setProperty(LABELS, labels.toArray(new String[0]));
+    node.setProperty(SETTINGS, encodedSettings);
+  }
+
+  /**
+   * @param definitions - list of definitions
+   * @return string which differs for lists of different fingerprints
+   */
+  public static String signature(final List<FingerprintDefinition> definitions) {
+    return definitions.stream().map(d -> d.property + ":" + d.type + "(" + d.encodedSettings + ")").collect(Collectors.joining(","));
+  }
+
+  /**
+   * @param node to check
+   * @return true, if the node has all labels of the definition
+   */
+  public boolean appliesTo(final Node node) {
+    return labels.stream().allMatch(label -> node.hasLabel(Label.label(label)));
+  }
+
+  public String getProperty() {
+    return property;
+  }
+
+  public String getPropertyOnes() {
+    return property + "_ones";
+  }
+
+  public String getPropertyType() {
+    return property + "_type";
+  }
+
+  public String getPropertyBand() {
+    return property + "_band";
+  }
+
+  /**
+   * @param ones - popcount of a fingerprint
+   * @return band token of the popcount, stored as string to be covered by the fulltext index
+   */
+  public static String band(final long ones) {
+    return Long.toString(ones / BAND_WIDTH);
+  }
+
+  /**
+   * Popcount bands which may contain candidates of a similarity search
+   * A candidate with `c` bits has at most a Tanimoto similarity of `min(q, c) / max(q, c)` to a query with `q` bits,
+   * so only candidates with `q * threshold <= c <= q / threshold` are able to reach the threshold.
+   *
+   * @param queryOnes - popcount of the query fingerprint
+   * @param threshold - lower bound of the similarity
+   * @param numBits - length of the fingerprint, not positive if unknown
+   * @return band tokens, null if every band may contain candidates
+   */
+  public static List<String> bands(final long queryOnes, final double threshold, final int numBits) {
+    if (queryOnes == 0 || threshold <= 0) {
+      return null;
+    }
+    final long low = (long) Math.ceil(queryOnes * threshold - 1e-9);
+    long high = (long) Math.floor(queryOnes / threshold + 1e-9);
+    if (numBits > 0) {
+      high = Math.min(high, numBits);
+    }
+    final List<String> bands = new ArrayList<>();
+    for (long band = low / BAND_WIDTH; band <= high / BAND_WIDTH; band++) {
+      bands.add(Long.toString(band));
+    }
+    return bands;
+  }
+
+  /**
+   * Store a computed fingerprint in the properties of the node
+   *
+   * @param node - to update
+   * @param fp - fingerprint of the node
+   */
+  public void setProperties(final Node node, final LuceneQuery fp) {
+    node.setProperty(getPropertyOnes(), fp.getPositiveBits());
+    node.setProperty(getPropertyBand(), band(fp.getPositiveBits()));
+    node.setProperty(getPropertyType(), type.toString());
+    node.setProperty(property, fp.getLuceneQuery());
+  }
+
+  /**
+   * Remove the fingerprint properties of the node
+   *
+   * @param node - to update
+   */
+  public void removeProperties(final Node node) {
+    node.removeProperty(property);
+    node.removeProperty(getPropertyOnes());
+    node.removeProperty(getPropertyBand());
+    node.removeProperty(getPropertyType());
+  }
+
+  public FingerprintType getType() {
+    return type;
+  }
+
+  public List<String> getLabels() {
+    return labels;
+  }
+
+  public FingerprintSettings getSettings() {
+    return settings;
+  }
+
+  /**
+   * @return settings in the format of {@link #parseSettings(FingerprintType, Map)}
+   */
+  public Map<String, Object> getSettingsMap() {
+    return settingsToMap(settings);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    FingerprintDefinition that = (FingerprintDefinition) o;
+    return property.equals(that.property) && type == that.type && labels.equals(that.labels) && encodedSettings.equals(that.encodedSettings);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(property, type, labels, encodedSettings);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("FingerprintDefinition{property=%s, type=%s, labels=%s, settings=%s}", property, type, labels, encodedSettings);
+  }
+
+  /**
+   * Fingerprint settings which may be passed to `org.rdkit.fingerprint.create`
+   */
+  enum SettingsKey {
+    numBits(FingerprintSettings::getNumBits, FingerprintSettings::setNumBits),
+    radius(FingerprintSettings::getRadius, FingerprintSettings::setRadius),
+    torsionPathLength(FingerprintSettings::getTorsionPathLength, FingerprintSettings::setTorsionPathLength),
+    minPath(FingerprintSettings::getMinPath, FingerprintSettings::setMinPath),
+    maxPath(FingerprintSettings::getMaxPath, FingerprintSettings::setMaxPath),
+    atomPairMinPath(FingerprintSettings::getAtomPairMinPath, FingerprintSettings::setAtomPairMinPath),
+    atomPairMaxPath(FingerprintSettings::getAtomPairMaxPath, FingerprintSettings::setAtomPairMaxPath),
+    layerFlags(FingerprintSettings::getLayerFlags, FingerprintSettings::setLayerFlags),
+    avalonQueryFlag(FingerprintSettings::getAvalonQueryFlag, FingerprintSettings::setAvalonQueryFlag),
+    avalonBitFlags(FingerprintSettings::getAvalonBitFlags, FingerprintSettings::setAvalonBitFlags);
+
+    private final ToIntFunction<FingerprintSettings> getter;
+    private final BiFunction<FingerprintSettings, Integer, FingerprintSettings> setter;
+
+    SettingsKey(ToIntFunction<FingerprintSettings> getter, BiFunction<FingerprintSettings, Integer, FingerprintSettings> setter) {
+      this.getter = getter;
+      this.setter = setter;
+    }
+  }
+}
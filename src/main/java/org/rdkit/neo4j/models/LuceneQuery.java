@@ -16,11 +16,10 @@ package org.rdkit.neo4j.models;
  */
 
 import java.util.BitSet;
-import java.util.StringJoiner;
 
 /**
  * Class stores a lucene-like object
- * {@link #luceneQuery}: A fingerprint object is transformed into the string of numbers separated by `delimiter`
+ * {@link #luceneQuery}: A fingerprint object is transformed into the string of tokens separated by `delimiter`, see {@link TokenEncoding}
  * {@link #positiveBits}: Amount of set bits in a fingerprint (stored in order to improve evaluation performance)
  * {@link #delimiter}: Delimiter between numbers in `luceneQuery`
  */
@@ -30,22 +29,40 @@ public class LuceneQuery {
   private final String delimiter;
 
   /**
-   * Convert a bitset into a string with specified `delimiter`
+   * Convert a bitset into a string with specified `delimiter` in the configured token encoding
    *
    * @param fingerprint to convert into lucene string
    * @param delimiter to join
    */
   public LuceneQuery(final BitSet fingerprint, final String delimiter) {
+    this(fingerprint, delimiter, TokenEncoding.current());
+  }
+
+  /**
+   * Convert a bitset into a string with specified `delimiter`
+   *
+   * @param fingerprint to convert into lucene string
+   * @param delimiter to join
+   * @param encoding of the tokens
+   */
+  public LuceneQuery(final BitSet fingerprint, final String delimiter, final TokenEncoding encoding) {
     int counter = 0;
-    StringJoiner joiner = new StringJoiner(delimiter);
+    final StringBuilder builder = new StringBuilder(fingerprint.cardinality() * (delimiter.length() + 4));
 
-    // if i == -1, the FP has ended
-    for (int i = fingerprint.nextSetBit(0); i >= 0; i = fingerprint.nextSetBit(i + 1)) {
-      joiner.add(Integer.toString(i));
-      counter++;
+    // walk the set bits word by word
+    final long[] words = fingerprint.toLongArray();
+    for (int w = 0; w < words.length; w++) {
+      long word = words[w];
+      while (word != 0) {
+        if (counter++ > 0) {
+          builder.append(delimiter);
+        }
+        encoding.append(builder, (w << 6) + Long.numberOfTrailingZeros(word));
+        word &= word - 1;
+      }
     }
 
-    this.luceneQuery = joiner.toString();
+    this.luceneQuery = builder.toString();
     this.positiveBits = counter;
     this.delimiter = delimiter;
   }
@@ -54,6 +71,21 @@ public class LuceneQuery {
     return luceneQuery;
   }
 
+  /**
+   * Query matching values of the query encoding or of `other`, used while values of a property are not migrated yet
+   * The query is repeated in `other`, so it has twice as many clauses.
+   *
+   * @param other - encoding of values which are not migrated
+   * @return `(query) OR (query in other encoding)`, the query if it has no tokens to re-encode
+   */
+  public String getLuceneQuery(final TokenEncoding other) {
+    final String reencoded = other.reencode(luceneQuery, delimiter);
+    if (reencoded == null) {
+      return luceneQuery;
+    }
+    return String.format("(%s) OR (%s)", luceneQuery, reencoded);
+  }
+
   public long getPositiveBits() {
     return positiveBits;
   }
@@ -16,6 +16,11 @@ package org.rdkit.neo4j.models;
  */
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Enum with property names for the node object
@@ -29,7 +34,9 @@ public enum NodeFields {
   Formula("formula"),
   MolecularWeight("molecular_weight"),
   FingerprintEncoded("fp"),
-  FingerprintOnes("fp_ones"); // name is used for compatability with `similarity` searches
+  FingerprintOnes("fp_ones"), // name is used for compatability with `similarity` searches
+  Stamp("rdkit_stamp"), // rdkit version and settings the properties were computed with, see Converter#getStamp()
+  Failed("rdkit_failed"); // structure the deferred worker could not convert, see DeferredPropertyWorker
 
   private final String value;
 
@@ -45,4 +52,35 @@ public enum NodeFields {
     return Arrays.stream(NodeFields.values()).filter(nf -> nf.value.equals(val)).findFirst().orElseThrow(IllegalArgumentException::new);
   }
 
+  /**
+   * Fields which may be skipped during conversion and computed on demand,
+   * `canonical_smiles`, `fp` and `fp_ones` are required by the searches and are always computed
+   *
+   * @return modifiable set of optional fields
+   */
+  public static Set<NodeFields> optional() {
+    return EnumSet.of(MdlMol, InchiKey, Formula, MolecularWeight);
+  }
+
+  /**
+   * Parse names of optional fields
+   *
+   * @param values - property names
+   * @return set of optional fields
+   * @throws IllegalArgumentException if a value is not a name of an optional field
+   */
+  public static Set<NodeFields> parseOptional(List<String> values) {
+    final Set<NodeFields> optional = optional();
+    final Set<NodeFields> fields = EnumSet.noneOf(NodeFields.class);
+    for (String value: values) {
+      final NodeFields field = Arrays.stream(NodeFields.values()).filter(nf -> nf.value.equals(value)).findFirst().orElse(null);
+      if (field == null || !optional.contains(field)) {
+        throw new IllegalArgumentException(String.format("`%s` is not an optional field, possible values: %s",
+            value, optional.stream().map(NodeFields::getValue).collect(Collectors.toList())));
+      }
+      fields.add(field);
+    }
+    return Collections.unmodifiableSet(fields);
+  }
+
 }
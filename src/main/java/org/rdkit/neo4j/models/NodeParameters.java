@@ -15,22 +15,28 @@ package org.rdkit.neo4j.models;
  * #L%
  */
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * Class stores built parameters from RDKit function call
  * Used as an intermediate storage of parameters, later those are saved in a node object as properties
+ * Optional fields (see {@link NodeFields#optional()}) are null, if they were not computed
  */
 
 public class NodeParameters {
   private final String canonicalSmiles;
   private final String formula;
-  private final double molecularWeight;
+  private final Double molecularWeight;
   private final String inchiKey;
   private final String fingerprintEncoded;
   private final long fingerpintOnes;
   private String molBlock;
   private String smiles;
+  private String stamp;
+  private Map<FingerprintDefinition, LuceneQuery> fingerprints = Collections.emptyMap();
 
-  public NodeParameters(String canonicalSmiles, String formula, double molecularWeight, String inchiKey, String fingerprintEncoded, long fingerpintOnes) {
+  public NodeParameters(String canonicalSmiles, String formula, Double molecularWeight, String inchiKey, String fingerprintEncoded, long fingerpintOnes) {
     this.canonicalSmiles = canonicalSmiles;
     this.formula = formula;
     this.molecularWeight = molecularWeight;
@@ -47,7 +53,7 @@ public class NodeParameters {
     return formula;
   }
 
-  public double getMolecularWeight() {
+  public Double getMolecularWeight() {
     return molecularWeight;
   }
 
@@ -78,4 +84,23 @@ public class NodeParameters {
   public void setSmiles(String smiles) {
     this.smiles = smiles;
   }
+
+  public String getStamp() {
+    return stamp;
+  }
+
+  public void setStamp(String stamp) {
+    this.stamp = stamp;
+  }
+
+  /**
+   * @return custom fingerprints computed together with the other parameters
+   */
+  public Map<FingerprintDefinition, LuceneQuery> getFingerprints() {
+    return fingerprints;
+  }
+
+  public void setFingerprints(Map<FingerprintDefinition, LuceneQuery> fingerprints) {
+    this.fingerprints = fingerprints;
+  }
 }
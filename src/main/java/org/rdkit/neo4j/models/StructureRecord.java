@@ -0,0 +1,56 @@
+package org.rdkit.neo4j.models;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import java.util.Map;
+
+/**
+ * Class stores a single record of a structure file
+ * {@link #structure} is a value of {@link NodeFields#MdlMol} or {@link NodeFields#Smiles} property, defined by {@link #kind}
+ * {@link #properties}: additional properties of the record (SDF data fields, name of the structure)
+ */
+public class StructureRecord {
+  private final long index;
+  private final NodeFields kind;
+  private final String structure;
+  private final Map<String, Object> properties;
+
+  public StructureRecord(long index, NodeFields kind, String structure, Map<String, Object> properties) {
+    this.index = index;
+    this.kind = kind;
+    this.structure = structure;
+    this.properties = properties;
+  }
+
+  /**
+   * @return zero-based position of the record in the file
+   */
+  public long getIndex() {
+    return index;
+  }
+
+  public NodeFields getKind() {
+    return kind;
+  }
+
+  public String getStructure() {
+    return structure;
+  }
+
+  public Map<String, Object> getProperties() {
+    return properties;
+  }
+}
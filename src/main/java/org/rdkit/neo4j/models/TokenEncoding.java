@@ -0,0 +1,184 @@
+package org.rdkit.neo4j.models;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+/**
+ * Encoding of fingerprint bit positions into fulltext tokens
+ * {@link #decimal}: `3 5 14 256 1877`
+ * {@link #compact}: a lowercase letter followed by base36 digits, `d f o i0 1gn` (2048 bits take at most 3 characters)
+ *
+ * Compact tokens start with a letter and decimal tokens with a digit, so a token is decoded without knowing its encoding
+ * and a property may be migrated while it is in use. Tokens never clash with the (uppercase) operators of the lucene query syntax.
+ */
+public enum TokenEncoding {
+  decimal {
+    @Override
+    public void append(final StringBuilder builder, final int bit) {
+      builder.append(bit);
+    }
+  },
+  compact {
+    @Override
+    public void append(final StringBuilder builder, int bit) {
+      // find the token length, tokens of length `length` cover 26 * 36^(length-1) positions
+      int length = 1;
+      long block = FIRST;
+      while (bit >= block) {
+        bit -= block;
+        block *= BASE;
+        length++;
+      }
+      long weight = block / FIRST;
+      builder.append((char) ('a' + bit / weight));
+      bit %= weight;
+      while (weight > 1) {
+        weight /= BASE;
+        builder.append(Character.forDigit((int) (bit / weight), BASE));
+        bit %= weight;
+      }
+    }
+  };
+
+  private static final int FIRST = 26;
+  private static final int BASE = 36;
+
+  // encoding of new fingerprint values, see `server.rdkit.fingerprint.encoding`
+  private static volatile TokenEncoding current = decimal;
+
+  /**
+   * Append the token of a bit position
+   *
+   * @param builder to append to
+   * @param bit - position, not negative
+   */
+  public abstract void append(StringBuilder builder, int bit);
+
+  /**
+   * @param bit - position, not negative
+   * @return token of the bit position
+   */
+  public String encode(final int bit) {
+    final StringBuilder builder = new StringBuilder(4);
+    append(builder, bit);
+    return builder.toString();
+  }
+
+  /**
+   * Decode a token of any encoding
+   *
+   * @param token - decimal or compact token
+   * @return bit position
+   * @throws IllegalArgumentException if the token is invalid
+   */
+  public static int decode(final String token) {
+    if (token.isEmpty()) {
+      throw new IllegalArgumentException("Empty fingerprint token");
+    }
+    final char first = token.charAt(0);
+    if (Character.isDigit(first)) {
+      return Integer.parseInt(token);
+    }
+    if (first < 'a' || first > 'z') {
+      throw new IllegalArgumentException(String.format("Invalid fingerprint token=%s", token));
+    }
+
+    long offset = 0;
+    long block = FIRST;
+    for (int i = 1; i < token.length(); i++) {
+      offset += block;
+      block *= BASE;
+    }
+    final long rest = token.length() > 1 ? Long.parseLong(token.substring(1), BASE) : 0;
+    return Math.toIntExact(offset + (first - 'a') * (block / FIRST) + rest);
+  }
+
+  /**
+   * @param token - decimal or compact token
+   * @return encoding of the token
+   */
+  public static TokenEncoding of(final String token) {
+    return !token.isEmpty() && Character.isDigit(token.charAt(0)) ? decimal : compact;
+  }
+
+  /**
+   * Re-encode a fingerprint value
+   *
+   * @param value - tokens of any encoding separated by `delimiter`
+   * @param delimiter - separator of the tokens
+   * @return tokens in this encoding, null if the value is already encoded so
+   */
+  public String reencode(final String value, final String delimiter) {
+    if (value.isEmpty()) {
+      return null;
+    }
+    final String[] tokens = value.split(delimiter);
+    boolean changed = false;
+    for (String token: tokens) {
+      if (of(token) != this) {
+        changed = true;
+        break;
+      }
+    }
+    if (!changed) {
+      return null;
+    }
+
+    final StringBuilder builder = new StringBuilder(value.length());
+    for (int i = 0; i < tokens.length; i++) {
+      if (i > 0) {
+        builder.append(delimiter);
+      }
+      append(builder, decode(tokens[i]));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Fulltext query of values in this encoding, it matches the first character of their tokens
+   *
+   * @param property - fingerprint property
+   * @return query of prefixes, e.g. `fp:(0* OR 1* OR ... OR 9*)`
+   */
+  public String prefixQuery(final String property) {
+    final char first = this == decimal ? '0' : 'a';
+    final char last = this == decimal ? '9' : 'z';
+    final StringBuilder builder = new StringBuilder(property).append(":(");
+    for (char c = first; c <= last; c++) {
+      if (c > first) {
+        builder.append(" OR ");
+      }
+      builder.append(c).append('*');
+    }
+    return builder.append(')').toString();
+  }
+
+  /**
+   * @return encoding of new fingerprint values
+   */
+  public static TokenEncoding current() {
+    return current;
+  }
+
+  /**
+   * Select the encoding of new fingerprint values (`server.rdkit.fingerprint.encoding`)
+   * Existing values keep their encoding until they are migrated with `org.rdkit.fingerprint.migrate`.
+   *
+   * @param encoding - token encoding
+   */
+  public static void use(final TokenEncoding encoding) {
+    current = encoding;
+  }
+}
@@ -18,21 +18,22 @@ package org.rdkit.neo4j.procedures;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.schema.IndexDefinition;
-import org.neo4j.internal.helpers.collection.Iterators;
 import org.neo4j.internal.helpers.collection.MapUtil;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.Context;
+import org.rdkit.neo4j.handlers.DatabaseContext;
 import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.FingerprintDefinition;
+import org.rdkit.neo4j.models.LuceneQuery;
 import org.rdkit.neo4j.models.NodeFields;
-import org.rdkit.neo4j.utils.PagingIterator;
+import org.rdkit.neo4j.models.TokenEncoding;
 
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -58,6 +59,15 @@ public abstract class BaseProcedure {
     @Context
     public Log log;
 
+    /**
+     * Method returns the plugin state of the current database (converters, job executor, worker, stores)
+     *
+     * @return context of `db`
+     */
+    DatabaseContext context() {
+        return DatabaseContext.of(db);
+    }
+
     /**
      * Method checks existence of nodeIndex
      * If it does not exist, fulltext query will not be executed (lucene does not contain the data)
@@ -78,6 +88,37 @@ public abstract class BaseProcedure {
         }
     }
 
+    /**
+     * Method returns the fulltext query of a fingerprint property, whose values may be in another token encoding
+     * Values written before `server.rdkit.fingerprint.encoding` was changed match tokens of their own encoding only,
+     * so the query is repeated in that encoding until the index has no such values (`org.rdkit.fingerprint.migrate`).
+     *
+     * @param indexName    - fulltext index of the fingerprint property
+     * @param propertyName - fingerprint property
+     * @param query        - query fingerprint in the configured encoding
+     * @return fulltext query
+     */
+    String fulltextQuery(final String indexName, final String propertyName, final LuceneQuery query) {
+        final Map<String, TokenEncoding> migratedIndexes = context().getMigratedIndexes();
+        final TokenEncoding current = TokenEncoding.current();
+        if (migratedIndexes.get(indexName) == current) {
+            return query.getLuceneQuery();
+        }
+        for (TokenEncoding encoding : TokenEncoding.values()) {
+            if (encoding == current) {
+                continue;
+            }
+            try (Result found = tx.execute("CALL db.index.fulltext.queryNodes($index, $query, {limit: 1}) YIELD node RETURN id(node)",
+                    MapUtil.map("index", indexName, "query", encoding.prefixQuery(propertyName)))) {
+                if (found.hasNext()) {
+                    return query.getLuceneQuery(encoding);
+                }
+            }
+        }
+        migratedIndexes.put(indexName, current);
+        return query.getLuceneQuery();
+    }
+
     /**
      * Method creates a fulltext index in a db
      *
@@ -93,6 +134,23 @@ public abstract class BaseProcedure {
 
     }
 
+    /**
+     * Method creates the fulltext index of a custom fingerprint property, unless it exists (resumed job)
+     * The index covers the popcount band as well, see {@link FingerprintDefinition#bands(long, double, int)}
+     *
+     * @param schemaTx   - transaction to create the index in
+     * @param definition - fingerprint property
+     */
+    static void createFingerprintIndex(final Transaction schemaTx, final FingerprintDefinition definition) {
+        final String propertyIndexName = FingerprintProcedures.getIndexName(definition.getProperty());
+        final boolean exists = StreamSupport.stream(schemaTx.schema().getIndexes().spliterator(), false)
+            .anyMatch(index -> index.getName().equals(propertyIndexName));
+        if (!exists) {
+            schemaTx.execute(String.format("CREATE FULLTEXT INDEX %s FOR (n:%s) ON EACH [n.%s, n.%s] OPTIONS {indexConfig: {`fulltext.analyzer`: 'whitespace' } }",
+                propertyIndexName, String.join("|", definition.getLabels()), definition.getProperty(), definition.getPropertyBand()));
+        }
+    }
+
     /**
      * Method returns nodes with specified labels
      *
@@ -100,40 +158,96 @@ public abstract class BaseProcedure {
      * @return stream of nodes
      */
     Stream<Node> getLabeledNodes(List<String> labelNames) {
+        return getLabeledNodes(tx, labelNames);
+    }
+
+    static Stream<Node> getLabeledNodes(Transaction scanTx, List<String> labelNames) {
         final String firstLabel = labelNames.get(0);
         final List<Label> labels = labelNames.stream().map(Label::label).collect(Collectors.toList());
 
-        return tx.findNodes(Label.label(firstLabel))
+        return scanTx.findNodes(Label.label(firstLabel))
                 .stream()
 //        .parallel()
                 .filter(node -> labels.stream().allMatch(node::hasLabel));
     }
 
     /**
-     * Method allows to execute huge amount of transactions as a batch task.
-     * As it is a batch process, it must be executed in a separate transaction, so a separate thread is created.
-     * todo: refactor and speed up this process
+     * Method executes a batch job from its checkpoint and records the outcome in the job node
+     * Nodes up to the checkpoint were processed by a previous execution and are skipped.
      *
-     * @param nodes      - to make updates on top of
-     * @param batchSize  - default 10_000
-     * @param nodeAction - Consumer on Node object
+     * In the foreground the job runs in the caller's thread and transaction,
+     * in the background it runs on the job executor with its own transaction and the result is returned immediately.
+     *
+     * @param job        - new or resumed job
+     * @param background - flag, whether to return before the job is done
+     * @return job result
      * @throws InterruptedException if the thread is interrupted
      */
-    void executeBatches(final Stream<Node> nodes, final int batchSize, Consumer<? super Node> nodeAction) throws InterruptedException {
-        Iterator<Node> nodeIterator = nodes.iterator();
-        final PagingIterator<Node> pagingIterator = new PagingIterator<>(nodeIterator, batchSize);
-        int numberOfBatches = 0;
-
-        while (pagingIterator.hasNext()) {
-            try (Transaction localTx = db.beginTx()) {
-                Iterator<Node> page = pagingIterator.nextPage();
-                Iterators.stream(page).map(n -> localTx.getNodeById(n.getId())).forEach(nodeAction);
-
-                numberOfBatches++;
-                log.info("batch # %d", numberOfBatches);
-                localTx.commit();
+    Stream<JobProcedures.JobResult> runJob(final BatchJob job, final boolean background) throws InterruptedException {
+        job.start();
+        log.info("Job id=%s %s started from checkpoint=%d, background=%s", job.getId(), job.getProcedure(), job.getCheckpoint(), background);
+
+        if (!background) {
+            executeJob(tx, job);
+            return Stream.of(new JobProcedures.JobResult(job));
+        }
+
+        final GraphDatabaseService jobDb = db;
+        final Log jobLog = log;
+        context().getJobExecutor().execute(() -> {
+            try (Transaction jobTx = jobDb.beginTx()) {
+                new JobExecution(jobDb, jobLog).executeJob(jobTx, job);
+                jobTx.commit();
+            } catch (Exception e) {
+                jobLog.error("Job id=%s failed: %s", job.getId(), e.getMessage());
+            }
+        });
+        return Stream.of(new JobProcedures.JobResult(job));
+    }
+
+    /**
+     * Method executes the batches of a started job, `jobTx` is used for the label scan and the index of a fingerprint job
+     */
+    void executeJob(final Transaction jobTx, final BatchJob job) throws InterruptedException {
+        try {
+            final long checkpoint = job.getCheckpoint();
+            final NodeBatchPipeline pipeline = new NodeBatchPipeline(db, log, job.getBatchSize(), job.getParallelism());
+            pipeline.run(getLabeledNodes(jobTx, job.getLabels()).filter(node -> node.getId() > checkpoint), taskOf(job), job);
+
+            if (!job.isCancelled() && FingerprintProcedures.CREATE_PROCEDURE.equals(job.getProcedure())) {
+                createFingerprintIndex(jobTx, job.getFingerprintDefinition());
             }
+        } catch (RuntimeException | InterruptedException e) {
+            job.fail(e);
+            throw e;
+        }
+        job.finish();
+        log.info("Job id=%s %s, processed=%d, failed=%d", job.getId(), job.getStatus(), job.getProcessed(), job.getFailed());
+    }
+
+    /**
+     * Method creates the node task of a job
+     */
+    private NodeTask<?, ?> taskOf(final BatchJob job) {
+        switch (job.getProcedure()) {
+            case ExactSearch.UPDATE_PROCEDURE:
+                return ExactSearch.updateTask(db, job.isSanitize(), job.isIncremental(), context().getConverters());
+            case FingerprintProcedures.CREATE_PROCEDURE:
+                return FingerprintProcedures.fingerprintTask(job.getFingerprintDefinition(), job.isSanitize(), context().getConverters());
+            case FingerprintProcedures.MIGRATE_PROCEDURE:
+                return FingerprintProcedures.migrateTask(job.getPropertyName());
+            default:
+                throw new IllegalStateException(String.format("Job id=%s has unknown procedure=%s", job.getId(), job.getProcedure()));
+        }
+    }
+
+    /**
+     * Context of a job executed in the background, after the procedure call is finished
+     */
+    private static class JobExecution extends BaseProcedure {
+        JobExecution(GraphDatabaseService db, Log log) {
+            this.db = db;
+            this.log = log;
         }
-        log.info("done, ran %d batches successfully", numberOfBatches);
     }
 }
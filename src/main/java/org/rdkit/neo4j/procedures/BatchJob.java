@@ -0,0 +1,394 @@
+package org.rdkit.neo4j.procedures;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.rdkit.fingerprint.FingerprintType;
+import org.rdkit.neo4j.handlers.DatabaseContext;
+import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.FingerprintDefinition;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * State of a long-running batch task (`org.rdkit.update`, `org.rdkit.fingerprint.create`, `org.rdkit.fingerprint.migrate`)
+ * The state is stored in a node with label {@link Constants#Job}, written in separate transactions,
+ * so the progress survives a failure or a restart of the database.
+ *
+ * Batches are committed in ascending order of node ids, but may complete out of order on parallel workers.
+ * The checkpoint is the last node id of the longest completed prefix of batches, nodes up to the checkpoint are processed.
+ */
+class BatchJob {
+  static final String ID = "id";
+  static final String PROCEDURE = "procedure";
+  static final String LABELS = "labels";
+  static final String SANITIZE = "sanitize";
+  static final String BATCH_SIZE = "batchSize";
+  static final String PARALLELISM = "parallelism";
+  static final String INCREMENTAL = "incremental";
+  static final String FINGERPRINT_TYPE = "fingerprintType";
+  static final String PROPERTY_NAME = "propertyName";
+  static final String FINGERPRINT_SETTINGS = "fingerprintSettings";
+  static final String CHECKPOINT = "checkpoint";
+  static final String PROCESSED = "processed";
+  static final String FAILED_NODES = "failed";
+  static final String STATUS = "status";
+  static final String ERROR = "error";
+  static final String UPDATED = "updated";
+
+  static final String RUNNING = "running";
+  static final String DONE = "done";
+  static final String FAILED = "failed";
+  static final String CANCELLED = "cancelled";
+
+  private static final Label jobLabel = Label.label(Constants.Job.getValue());
+
+  private final GraphDatabaseService db;
+  private final String id;
+  private final String procedure;
+  private final List<String> labels;
+  private final boolean sanitize;
+  private final long batchSize;
+  private final long parallelism;
+  private final boolean incremental;
+  private final String fingerprintType;
+  private final String propertyName;
+  private final String fingerprintSettings;
+
+  private long checkpoint;
+  private long processed;
+  private long failed;
+  private volatile String status;
+  private volatile boolean cancelled;
+
+  // progress of the current execution, used for the rate
+  private long startedMillis;
+  private long processedAtStart;
+
+  // completed batches after a gap, sequence -> {last node id, size, failed nodes}
+  private final Map<Long, long[]> completed = new TreeMap<>();
+  private long nextSequence;
+
+  private BatchJob(GraphDatabaseService db, String id, String procedure, List<String> labels, boolean sanitize, long batchSize,
+                   long parallelism, boolean incremental, String fingerprintType, String propertyName, String fingerprintSettings,
+                   long checkpoint, long processed, long failed, String status) {
+    this.db = db;
+    this.id = id;
+    this.procedure = procedure;
+    this.labels = List.copyOf(labels);
+    this.sanitize = sanitize;
+    this.batchSize = batchSize;
+    this.parallelism = parallelism;
+    this.incremental = incremental;
+    this.fingerprintType = fingerprintType;
+    this.propertyName = propertyName;
+    this.fingerprintSettings = fingerprintSettings;
+    this.checkpoint = checkpoint;
+    this.processed = processed;
+    this.failed = failed;
+    this.status = status;
+  }
+
+  /**
+   * Create a new job, nothing is stored until {@link #start()}
+   *
+   * @param incremental - flag, whether nodes with up to date properties are skipped
+   * @param fingerprint - null, if the job does not create a fingerprint
+   */
+  static BatchJob create(GraphDatabaseService db, String procedure, List<String> labels, boolean sanitize, long batchSize,
+                         long parallelism, boolean incremental, FingerprintDefinition fingerprint) {
+    return new BatchJob(db, UUID.randomUUID().toString(), procedure, labels, sanitize, batchSize, parallelism, incremental,
+        fingerprint == null ? null : fingerprint.getType().toString(),
+        fingerprint == null ? null : fingerprint.getProperty(),
+        fingerprint == null ? null : FingerprintDefinition.encodeSettings(fingerprint.getSettings()),
+        -1, 0, 0, RUNNING);
+  }
+
+  /**
+   * Create a new job on an existing property, nothing is stored until {@link #start()}
+   *
+   * @param propertyName - node property processed by the job
+   */
+  static BatchJob create(GraphDatabaseService db, String procedure, List<String> labels, long batchSize, long parallelism, String propertyName) {
+    return new BatchJob(db, UUID.randomUUID().toString(), procedure, labels, false, batchSize, parallelism, false,
+        null, propertyName, null, -1, 0, 0, RUNNING);
+  }
+
+  /**
+   * Read a stored job in a separate transaction
+   * A job executed by this instance is returned with its current (not yet stored) progress.
+   *
+   * @param db - database
+   * @param id - job id
+   * @return job
+   * @throws IllegalArgumentException if the job does not exist
+   */
+  static BatchJob load(GraphDatabaseService db, String id) {
+    final BatchJob running = active(db, id);
+    if (running != null) {
+      return running;
+    }
+    try (Transaction localTx = db.beginTx()) {
+      final Node node = localTx.findNode(jobLabel, ID, id);
+      if (node == null) {
+        throw new IllegalArgumentException(String.format("Job id=%s not found", id));
+      }
+      final BatchJob job = from(db, node);
+      localTx.commit();
+      return job;
+    }
+  }
+
+  /**
+   * Read a job from its node, a job executed by this instance is returned with its current progress
+   *
+   * @param db - database
+   * @param node - with label {@link Constants#Job}
+   * @return job
+   */
+  static BatchJob from(GraphDatabaseService db, Node node) {
+    final String id = (String) node.getProperty(ID);
+    final BatchJob running = active(db, id);
+    if (running != null) {
+      return running;
+    }
+    return new BatchJob(db, id,
+        (String) node.getProperty(PROCEDURE),
+        Arrays.asList((String[]) node.getProperty(LABELS)),
+        (Boolean) node.getProperty(SANITIZE),
+        (Long) node.getProperty(BATCH_SIZE),
+        (Long) node.getProperty(PARALLELISM),
+        (Boolean) node.getProperty(INCREMENTAL, false),
+        (String) node.getProperty(FINGERPRINT_TYPE, null),
+        (String) node.getProperty(PROPERTY_NAME, null),
+        (String) node.getProperty(FINGERPRINT_SETTINGS, null),
+        (Long) node.getProperty(CHECKPOINT),
+        (Long) node.getProperty(PROCESSED),
+        (Long) node.getProperty(FAILED_NODES, 0L),
+        (String) node.getProperty(STATUS));
+  }
+
+  /**
+   * Mark the job as running by this instance and store it
+   *
+   * @throws IllegalStateException if the job is already running or done
+   */
+  void start() {
+    if (DONE.equals(status)) {
+      throw new IllegalStateException(String.format("Job id=%s is already done", id));
+    }
+    if (jobs(db).putIfAbsent(id, this) != null) {
+      throw new IllegalStateException(String.format("Job id=%s is already running", id));
+    }
+    synchronized (this) {
+      startedMillis = System.currentTimeMillis();
+      processedAtStart = processed;
+    }
+    cancelled = false;
+    status = RUNNING;
+    write(null);
+  }
+
+  /**
+   * Record a committed batch and move the checkpoint forward if the prefix of completed batches grows
+   *
+   * @param sequence - number of the batch within this execution, starting at 0
+   * @param lastId - the largest node id of the batch
+   * @param size - amount of nodes in the batch
+   * @param failedNodes - amount of nodes of the batch which could not be processed
+   */
+  synchronized void committed(final long sequence, final long lastId, final int size, final int failedNodes) {
+    completed.put(sequence, new long[]{lastId, size, failedNodes});
+    boolean advanced = false;
+    long[] batch;
+    while ((batch = completed.remove(nextSequence)) != null) {
+      checkpoint = batch[0];
+      processed += batch[1];
+      failed += batch[2];
+      nextSequence++;
+      advanced = true;
+    }
+    if (advanced) {
+      write(null);
+    }
+  }
+
+  /**
+   * Request the job to stop, batches in flight are completed
+   */
+  void cancel() {
+    cancelled = true;
+  }
+
+  boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Return a job of the database executed by this instance
+   *
+   * @param db - database
+   * @param id - job id
+   * @return job or null
+   */
+  static BatchJob active(GraphDatabaseService db, String id) {
+    return (BatchJob) jobs(db).get(id);
+  }
+
+  /**
+   * @return jobs executed by this instance, the registry belongs to the database, see {@link DatabaseContext#getJobs()}
+   */
+  private static Map<String, Object> jobs(GraphDatabaseService db) {
+    return DatabaseContext.of(db).getJobs();
+  }
+
+  void finish() {
+    status = cancelled ? CANCELLED : DONE;
+    try {
+      write(null);
+    } finally {
+      release();
+    }
+  }
+
+  void fail(final Exception e) {
+    status = FAILED;
+    try {
+      write(String.valueOf(e.getMessage()));
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * Remove the job from the running jobs, the context is gone if the database was stopped meanwhile
+   */
+  private void release() {
+    final DatabaseContext context = DatabaseContext.forDatabase(db.databaseName());
+    if (context != null) {
+      context.getJobs().remove(id, this);
+    }
+  }
+
+  private synchronized void write(final String error) {
+    try (Transaction localTx = db.beginTx()) {
+      Node node = localTx.findNode(jobLabel, ID, id);
+      if (node == null) {
+        node = localTx.createNode(jobLabel);
+        node.setProperty(ID, id);
+        node.setProperty(PROCEDURE, procedure);
+        node.setProperty(LABELS, labels.toArray(new String[0]));
+        node.setProperty(SANITIZE, sanitize);
+        node.setProperty(BATCH_SIZE, batchSize);
+        node.setProperty(PARALLELISM, parallelism);
+        node.setProperty(INCREMENTAL, incremental);
+        if (fingerprintType != null) {
+          node.setProperty(FINGERPRINT_TYPE, fingerprintType);
+          node.setProperty(FINGERPRINT_SETTINGS, fingerprintSettings);
+        }
+        if (propertyName != null) {
+          node.setProperty(PROPERTY_NAME, propertyName);
+        }
+      }
+      node.setProperty(CHECKPOINT, checkpoint);
+      node.setProperty(PROCESSED, processed);
+      node.setProperty(FAILED_NODES, failed);
+      node.setProperty(STATUS, status);
+      node.setProperty(UPDATED, System.currentTimeMillis());
+      if (error != null) {
+        node.setProperty(ERROR, error);
+      } else {
+        node.removeProperty(ERROR);
+      }
+      localTx.commit();
+    }
+  }
+
+  String getId() {
+    return id;
+  }
+
+  String getProcedure() {
+    return procedure;
+  }
+
+  List<String> getLabels() {
+    return labels;
+  }
+
+  boolean isSanitize() {
+    return sanitize;
+  }
+
+  int getBatchSize() {
+    return Math.toIntExact(batchSize);
+  }
+
+  int getParallelism() {
+    return Math.toIntExact(parallelism);
+  }
+
+  boolean isIncremental() {
+    return incremental;
+  }
+
+  String getFingerprintType() {
+    return fingerprintType;
+  }
+
+  String getPropertyName() {
+    return propertyName;
+  }
+
+  synchronized long getCheckpoint() {
+    return checkpoint;
+  }
+
+  synchronized long getProcessed() {
+    return processed;
+  }
+
+  synchronized long getFailed() {
+    return failed;
+  }
+
+  /**
+   * @return processed nodes per second of the current execution, 0 if the job is not executed by this instance
+   */
+  synchronized double getRate() {
+    if (startedMillis == 0) {
+      return 0.0d;
+    }
+    final long millis = Math.max(1, System.currentTimeMillis() - startedMillis);
+    return 1000.0d * (processed - processedAtStart) / millis;
+  }
+
+  String getStatus() {
+    return status;
+  }
+
+  FingerprintDefinition getFingerprintDefinition() {
+    final FingerprintType type = FingerprintType.parseString(fingerprintType);
+    return new FingerprintDefinition(propertyName, type, labels, FingerprintDefinition.decodeSettings(type, fingerprintSettings));
+  }
+}
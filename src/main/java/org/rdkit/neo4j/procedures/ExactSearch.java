@@ -17,6 +17,7 @@ package org.rdkit.neo4j.procedures;
 
 import org.RDKit.MolSanitizeException;
 import org.neo4j.configuration.Config;
+import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
@@ -27,12 +28,19 @@ import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 import org.rdkit.neo4j.config.RDKitSettings;
 import org.rdkit.neo4j.handlers.RDKitEventHandler;
+import org.rdkit.neo4j.metrics.PluginMetrics;
 import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.FingerprintDefinition;
 import org.rdkit.neo4j.models.NodeFields;
 import org.rdkit.neo4j.models.NodeParameters;
+import org.rdkit.neo4j.utils.ConversionCache;
 import org.rdkit.neo4j.utils.Converter;
+import org.rdkit.neo4j.utils.ConverterRegistry;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -41,7 +49,9 @@ import java.util.stream.Stream;
  * Implements functionality for org.rdkit.search.exact.* procedures
  */
 public class ExactSearch extends BaseProcedure {
-  private static final Converter converter = Converter.createDefault();
+  static final String UPDATE_PROCEDURE = "org.rdkit.update";
+  static final String SMILES_PROCEDURE = "org.rdkit.search.exact.smiles";
+  static final String MOL_PROCEDURE = "org.rdkit.search.exact.mol";
 
   /**
    * Method executes exact search by `smiles` value
@@ -51,13 +61,15 @@ public class ExactSearch extends BaseProcedure {
    * @param smiles - to be found
    * @return obtained node
    */
-  @Procedure(name = "org.rdkit.search.exact.smiles", mode = Mode.READ)
+  @Procedure(name = SMILES_PROCEDURE, mode = Mode.READ)
   @Description("RDKit exact search on `smiles` property")
   public Stream<NodeWrapper> exactSearchSmiles(@Name("label") List<String> labelNames, @Name("smiles") String smiles) {
     log.info("Exact search smiles :: label=%s, smiles=%s", labelNames, smiles);
 
-    final String rdkitSmiles = converter.getRDKitSmiles(smiles);
-    return findLabeledNodes(labelNames, NodeFields.CanonicalSmiles.getValue(), rdkitSmiles);
+    final long start = System.nanoTime();
+    final String rdkitSmiles = context().getSearchConverter().getRDKitSmiles(smiles);
+    context().getMetrics().record(SMILES_PROCEDURE, PluginMetrics.Stage.parse, start);
+    return findLabeledNodes(labelNames, NodeFields.CanonicalSmiles.getValue(), rdkitSmiles, SMILES_PROCEDURE, start);
   }
 
   /**
@@ -68,7 +80,7 @@ public class ExactSearch extends BaseProcedure {
    * @param molBlock - mdlmol block value
    * @return obtained node
    */
-  @Procedure(name = "org.rdkit.search.exact.mol", mode = Mode.READ)
+  @Procedure(name = MOL_PROCEDURE, mode = Mode.READ)
   @Description("RDKit exact search on `mdlmol` property")
   public Stream<NodeWrapper> exactSearchMol(@Name("labels") List<String> labelNames, @Name("mol") String molBlock) {
     log.info("Exact search mol :: label=%s, molBlock=%s", labelNames, molBlock);
@@ -76,6 +88,8 @@ public class ExactSearch extends BaseProcedure {
     Config config = ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Config.class);
     boolean sanitize = config.get(RDKitSettings.indexSanitize);
 
+    final long start = System.nanoTime();
+    final Converter converter = context().getSearchConverter();
     NodeParameters nodeParameters;
     try {
       nodeParameters = converter.convertMolBlock(molBlock, true);
@@ -88,8 +102,10 @@ public class ExactSearch extends BaseProcedure {
       }
     }
 
+    context().getMetrics().record(MOL_PROCEDURE, PluginMetrics.Stage.parse, start);
+
     final String rdkitSmiles = nodeParameters.getCanonicalSmiles();
-    return findLabeledNodes(labelNames, NodeFields.CanonicalSmiles.getValue(), rdkitSmiles);
+    return findLabeledNodes(labelNames, NodeFields.CanonicalSmiles.getValue(), rdkitSmiles, MOL_PROCEDURE, start);
 
 
   }
@@ -97,27 +113,98 @@ public class ExactSearch extends BaseProcedure {
   /**
    * Method creates properties for the nodes with `mdlmol`
    * If the database is created without plugin, the node properties should be created manually by this procedure
+   * The progress is recorded in a job node, an interrupted update continues with `org.rdkit.jobs.resume`
    *
    * @param labelNames - node labels
-   * @return an empty stream
+   * @param sanitize - sanitize flag of the conversion
+   * @param batchSize - amount of nodes committed in a transaction
+   * @param parallelism - amount of workers, 0 means all available processors
+   * @param incremental - flag, whether to skip nodes with properties of the current version (see {@link Converter#getStamp()})
+   * @return job result
    * @throws InterruptedException if batch task is interrupted
    */
-  @Procedure(name = "org.rdkit.update", mode = Mode.WRITE)
+  @Procedure(name = UPDATE_PROCEDURE, mode = Mode.WRITE)
   @Description("RDKit update procedure, allows to construct ['formula', 'molecular_weight', 'canonical_smiles'] values from 'mdlmol' property")
-  public Stream<NodeWrapper> createProperties(@Name("labels") List<String> labelNames, @Name(value = "sanitize", defaultValue = "true") boolean sanitize) throws InterruptedException {
-    log.info("Update nodes with labels=%s, create additional fields", labelNames);
-    // todo: add functionality to skip nodes that already have required properties
-    executeBatches(getLabeledNodes(labelNames), PAGE_SIZE, node -> {
-      final String mol = (String) node.getProperty("mdlmol");
-      try {
-        final NodeParameters block = converter.convertMolBlock(mol, sanitize);
+  public Stream<JobProcedures.JobResult> createProperties(@Name("labels") List<String> labelNames,
+                                                          @Name(value = "sanitize", defaultValue = "true") boolean sanitize,
+                                                          @Name(value = "batchSize", defaultValue = "10000") long batchSize,
+                                                          @Name(value = "parallelism", defaultValue = "0") long parallelism,
+                                                          @Name(value = "incremental", defaultValue = "false") boolean incremental) throws InterruptedException {
+    log.info("Update nodes with labels=%s, create additional fields, batchSize=%d, parallelism=%d, incremental=%s", labelNames, batchSize, parallelism, incremental);
+    final BatchJob job = BatchJob.create(db, UPDATE_PROCEDURE, labelNames, sanitize, batchSize, parallelism, incremental, null);
+    return runJob(job, false);
+  }
+
+  /**
+   * Method creates the node task of `org.rdkit.update`, each worker uses its own converter
+   * Identical structures are converted once per call, the cache is shared by the workers
+   * Registered fingerprints (see `org.rdkit.fingerprint.create`) are computed in the same pass
+   * In incremental mode nodes with all properties, registered fingerprints and the current stamp are left untouched
+   * Nodes are converted from `mdlmol`, nodes without it (`mdlmol` is not in `server.rdkit.conversion.optional_fields`) from `smiles`
+   * A node whose structure changed after it was read is not written, the event handler has converted it already
+   */
+  static NodeTask<Map.Entry<NodeFields, String>, NodeParameters> updateTask(final GraphDatabaseService db, final boolean sanitize, final boolean incremental,
+                                                     final ConverterRegistry registry) {
+    final Config config = ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Config.class);
+    final int cacheSize = config.get(RDKitSettings.conversionCacheSize);
+    final ConversionCache cache = cacheSize > 0 ? new ConversionCache(cacheSize) : null;
+    final Set<NodeFields> optionalFields = NodeFields.parseOptional(config.get(RDKitSettings.optionalFields));
+    final String stamp = Converter.createDefault().withOptionalFields(optionalFields).getStamp();
+    final List<FingerprintDefinition> fingerprints;
+    try (Transaction tx = db.beginTx()) {
+      fingerprints = tx.findNodes(Label.label(Constants.FingerprintRegistry.getValue())).stream()
+          .map(FingerprintDefinition::from)
+          .collect(Collectors.toList());
+      tx.commit();
+    }
+
+    return new NodeTask<>() {
+      @Override
+      public Map.Entry<NodeFields, String> read(Node node) {
+        if (incremental && isUpToDate(node, stamp, optionalFields, fingerprints)) {
+          return null;
+        }
+        return structureOf(node);
+      }
+
+      @Override
+      public Function<Map.Entry<NodeFields, String>, NodeParameters> createWorker() {
+        final Converter updateConverter = Converter.createDefault().withCache(cache).withOptionalFields(optionalFields).withRegistry(registry);
+        return structure -> structure.getKey() == NodeFields.MdlMol
+            ? updateConverter.convertMolBlock(structure.getValue(), sanitize, fingerprints)
+            : updateConverter.convertSmiles(structure.getValue(), sanitize, fingerprints);
+      }
+
+      @Override
+      public boolean write(Node node, Map.Entry<NodeFields, String> structure, NodeParameters block) {
+        if (!structure.equals(structureOf(node))) {
+          return false;
+        }
         RDKitEventHandler.addProperties(node, block);
-      } catch (Exception e) {
-        final String luri = (String) node.getProperty("luri", "<undefined>");
-        log.error("Unable to convert node with luri={}", luri);
+        return true;
       }
-    });
-    return Stream.empty();
+    };
+  }
+
+  /**
+   * @return `mdlmol` of the node, `smiles` if it has no `mdlmol`
+   */
+  private static Map.Entry<NodeFields, String> structureOf(final Node node) {
+    final Object mol = node.getProperty(NodeFields.MdlMol.getValue(), null);
+    return mol != null
+        ? Map.entry(NodeFields.MdlMol, (String) mol)
+        : Map.entry(NodeFields.Smiles, (String) node.getProperty(NodeFields.Smiles.getValue()));
+  }
+
+  private static boolean isUpToDate(final Node node, final String stamp, final Set<NodeFields> optionalFields,
+                                    final List<FingerprintDefinition> fingerprints) {
+    if (!stamp.equals(node.getProperty(NodeFields.Stamp.getValue(), null))
+        || !node.hasProperty(NodeFields.CanonicalSmiles.getValue())
+        || !node.hasProperty(NodeFields.FingerprintEncoded.getValue())) {
+      return false;
+    }
+    return optionalFields.stream().allMatch(field -> node.hasProperty(field.getValue()))
+        && fingerprints.stream().allMatch(definition -> !definition.appliesTo(node) || node.hasProperty(definition.getProperty()));
   }
 
   /**
@@ -141,18 +228,22 @@ public class ExactSearch extends BaseProcedure {
    * @param value
    * @return
    */
-  private Stream<NodeWrapper> findLabeledNodes(List<String> labelNames, String property, String value) {
+  private Stream<NodeWrapper> findLabeledNodes(List<String> labelNames, String property, String value, String procedure, long start) {
     final String firstLabel = Constants.Chemical.getValue();
     final List<Label> labels = labelNames.stream().map(Label::label).collect(Collectors.toList());
+    final PluginMetrics metrics = context().getMetrics();
 
+    final long querying = System.nanoTime();
     Transaction tx = db.beginTx();
-    return tx.findNodes(Label.label(firstLabel), property, value)
-            .stream()
+    final Stream<Node> nodes = tx.findNodes(Label.label(firstLabel), property, value).stream();
+    metrics.record(procedure, PluginMetrics.Stage.query, querying);
+    return nodes
 //        .parallel()
             .filter(node -> labels.stream().allMatch(node::hasLabel))
             .map(NodeWrapper::new).onClose(() -> {
               tx.commit();
               tx.close();
+              metrics.record(procedure, PluginMetrics.Stage.total, start);
             });
   }
 }
@@ -15,26 +15,42 @@ package org.rdkit.neo4j.procedures;
  * #L%
  */
 
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.internal.helpers.collection.MapUtil;
 import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Mode;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
+import org.rdkit.fingerprint.FingerprintLock;
+import org.rdkit.fingerprint.FingerprintSettings;
 import org.rdkit.fingerprint.FingerprintType;
+import org.rdkit.neo4j.metrics.LatencyHistogram;
+import org.rdkit.neo4j.metrics.PluginMetrics;
 import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.FingerprintDefinition;
 import org.rdkit.neo4j.models.LuceneQuery;
 import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.TokenEncoding;
+import org.rdkit.neo4j.store.FingerprintStore;
+import org.rdkit.neo4j.store.FingerprintStoreManager;
 import org.rdkit.neo4j.utils.Converter;
+import org.rdkit.neo4j.utils.ConverterRegistry;
 
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Class FingerprintProcedures
@@ -42,33 +58,59 @@ import java.util.stream.Stream;
  * Those procedures allow to create a custom fingerprint property and use similarity search on top of it
  */
 public class FingerprintProcedures extends BaseProcedure {
+  static final String CREATE_PROCEDURE = "org.rdkit.fingerprint.create";
+  static final String MIGRATE_PROCEDURE = "org.rdkit.fingerprint.migrate";
+  static final String SIMILARITY_PROCEDURE = "org.rdkit.fingerprint.similarity.smiles";
 
   /**
    * Procedure creates a new property and a fulltext index on top of it.
    * If it is impossible to convert node into specified fingerprint type, it is skipped
    *
-   * Creates a `propertyName` property for nodes and two additional supporting properties:  `propertyName` + {"_ones", "_type"}.
-   * {@link #getPropertyOnes(String)} {@link #getPropertyType(String)}
+   * Creates a `propertyName` property for nodes and three additional supporting properties:  `propertyName` + {"_ones", "_type", "_band"}.
+   * {@link #getPropertyOnes(String)} {@link #getPropertyType(String)} {@link FingerprintDefinition#getPropertyBand()}
    *
    * Those are required to define the type of fingerprint and the amount of positive bits during `similarity` search
    *
-   * Created index has name `propertyName` + "_index"
+   * Created index has name `propertyName` + "_index", it covers the fingerprint and its popcount band
    * {@link #getIndexName(String)}
    *
+   * The fingerprint is registered (see {@link FingerprintDefinition}) before the batch starts,
+   * so the event handler computes it for all nodes created or changed later on.
+   *
    * @param labelNames - node labels
    * @param fpType - type of the fingerprint, must exist in {@link NodeFields}
    * @param propertyName - a new property name, which will be created with specified fingerprint
    * @param sanitize
+   * @param batchSize - amount of nodes committed in a transaction
+   * @param parallelism - amount of workers, 0 means all available processors
+   * @param settings - fingerprint settings, e.g. `{numBits: 1024, radius: 3}`, unspecified settings keep their default
+   * @return job result, an interrupted job continues with `org.rdkit.jobs.resume`
    * @throws InterruptedException if any during the batch task
    */
-  @Procedure(name = "org.rdkit.fingerprint.create", mode = Mode.SCHEMA)
+  @Procedure(name = CREATE_PROCEDURE, mode = Mode.SCHEMA)
   @Description("RDKit create a `fpType` fingerprint and add to all nodes with `labelNames` a property `propertyName` with specified fingerprint. "
       + "Creates a fulltext index on that property. \n"
-      + "Possible values for `fpType`: ['morgan', 'topological', 'pattern']. \n"
+      + "Possible values for `fpType`: ['pattern', 'morgan', 'featmorgan', 'torsion', 'atompair', 'layered', 'maccs', 'avalon']. \n"
+      + "`settings` may contain `numBits`, `radius`, `torsionPathLength`, `minPath`, `maxPath`, `atomPairMinPath`, `atomPairMaxPath`, `layerFlags`, `avalonQueryFlag`, `avalonBitFlags`. \n"
       + "Restriction for `propertyName`: it must not be equal to rdkit properties of nodes.")
-  public void createFingerprintProperty(@Name("label") List<String> labelNames, @Name("fingerprintType") String fpType, @Name("propertyName") String propertyName, @Name(value="sanitize", defaultValue="true") boolean sanitize) throws InterruptedException {
-    log.info("Create fingerprint property with parameters: labelsNames=%s, propertyName=%s, fingerprintType=%s", labelNames, propertyName, fpType);
+  public Stream<JobProcedures.JobResult> createFingerprintProperty(@Name("label") List<String> labelNames, @Name("fingerprintType") String fpType, @Name("propertyName") String propertyName, @Name(value="sanitize", defaultValue="true") boolean sanitize,
+                                        @Name(value="batchSize", defaultValue="10000") long batchSize, @Name(value="parallelism", defaultValue="0") long parallelism,
+                                        @Name(value="settings", defaultValue="{}") Map<String, Object> settings) throws InterruptedException {
+    log.info("Create fingerprint property with parameters: labelsNames=%s, propertyName=%s, fingerprintType=%s, batchSize=%d, parallelism=%d, settings=%s",
+        labelNames, propertyName, fpType, batchSize, parallelism, settings);
+
+    // Execute batch (may take a long time)
+    final BatchJob job = createJob(db, labelNames, fpType, propertyName, sanitize, batchSize, parallelism, settings);
+    return runJob(job, false);
+  }
 
+  /**
+   * Method checks the parameters of `org.rdkit.fingerprint.create`, registers the fingerprint and creates a job computing it
+   *
+   * @return job, which is not started yet
+   */
+  static BatchJob createJob(final GraphDatabaseService db, final List<String> labelNames, final String fpType, final String propertyName,
+                            final boolean sanitize, final long batchSize, final long parallelism, final Map<String, Object> settings) {
     // START checking parameters
     checkPropertyName(propertyName);
 
@@ -76,28 +118,154 @@ public class FingerprintProcedures extends BaseProcedure {
     if (fingerprintType == null) {
       throw new IllegalStateException(String.format("Fingerprint type=%s not found", fpType));
     }
+    final FingerprintDefinition definition = new FingerprintDefinition(propertyName, fingerprintType, labelNames,
+        FingerprintDefinition.parseSettings(fingerprintType, settings));
     // END checking parameters
 
-    Stream<Node> nodes = getLabeledNodes(labelNames);
-    Converter converter = Converter.createConverter(fingerprintType); // converter of user-requested type
+    register(db, definition);
+    return BatchJob.create(db, CREATE_PROCEDURE, labelNames, sanitize, batchSize, parallelism, false, definition);
+  }
 
-    // Execute batch (may take a long time)
-    executeBatches(nodes, PAGE_SIZE, node -> {
-      String smiles = null;
-      try {
-        smiles = (String) node.getProperty(canonicalSmilesProperty);
-        final LuceneQuery fp = converter.getLuceneFingerprint(smiles, sanitize);
-        node.setProperty(getPropertyOnes(propertyName), fp.getPositiveBits());
-        node.setProperty(getPropertyType(propertyName), fingerprintType.toString());
-        node.setProperty(propertyName, fp.getLuceneQuery());
-      } catch (Exception e) { // If node is impossible to convert into specified fingerprint type, it is skipped
-        log.error("Fingerprint type=%s unable to convert smiles=%s", fpType, smiles);
+  /**
+   * Method creates the node task of `org.rdkit.fingerprint.create`, workers share the registered converter of user-requested type
+   * If node is impossible to convert into specified fingerprint type, it is skipped
+   * A node whose canonical smiles changed after it was read is not written, the event handler has computed its fingerprint already
+   */
+  static NodeTask<String, LuceneQuery> fingerprintTask(final FingerprintDefinition definition, final boolean sanitize, final ConverterRegistry converters) {
+    return new NodeTask<>() {
+      @Override
+      public String read(Node node) {
+        return (String) node.getProperty(canonicalSmilesProperty);
+      }
+
+      @Override
+      public Function<String, LuceneQuery> createWorker() {
+        final Converter converter = converters.get(definition.getSettings());
+        return smiles -> converter.getLuceneFingerprint(smiles, sanitize);
+      }
+
+      @Override
+      public boolean write(Node node, String smiles, LuceneQuery fp) {
+        if (!smiles.equals(node.getProperty(canonicalSmilesProperty, null))) {
+          return false;
+        }
+        definition.setProperties(node, fp);
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Procedure re-encodes an existing fingerprint property into the configured token encoding (`server.rdkit.fingerprint.encoding`)
+   * Values already in that encoding are skipped, so the procedure may be repeated and run while nodes are written.
+   * Until the migration is done, fulltext queries are repeated in the other encoding, see {@link #fulltextQuery}.
+   *
+   * @param labelNames - node labels
+   * @param propertyName - fingerprint property, `fp` for the substructure search
+   * @param batchSize - amount of nodes committed in a transaction
+   * @param parallelism - amount of workers, 0 means all available processors
+   * @return job result, an interrupted job continues with `org.rdkit.jobs.resume`
+   * @throws InterruptedException if any during the batch task
+   */
+  @Procedure(name = MIGRATE_PROCEDURE, mode = Mode.WRITE)
+  @Description("RDKit re-encode the fingerprint property `propertyName` (default `fp`) of nodes with `labelNames` into the configured token encoding")
+  public Stream<JobProcedures.JobResult> migrate(@Name("label") List<String> labelNames, @Name(value="propertyName", defaultValue="fp") String propertyName,
+                                                 @Name(value="batchSize", defaultValue="10000") long batchSize, @Name(value="parallelism", defaultValue="0") long parallelism) throws InterruptedException {
+    log.info("Migrate fingerprint property with parameters: labelsNames=%s, propertyName=%s, encoding=%s, batchSize=%d, parallelism=%d",
+        labelNames, propertyName, TokenEncoding.current(), batchSize, parallelism);
+
+    final BatchJob job = BatchJob.create(db, MIGRATE_PROCEDURE, labelNames, batchSize, parallelism, propertyName);
+    return runJob(job, false);
+  }
+
+  /**
+   * Method creates the node task of `org.rdkit.fingerprint.migrate`
+   * The writer replaces a value only if it was not changed since it was read.
+   */
+  static NodeTask<String, String> migrateTask(final String propertyName) {
+    final TokenEncoding encoding = TokenEncoding.current();
+    return new NodeTask<>() {
+      @Override
+      public String read(Node node) {
+        final Object value = node.getProperty(propertyName, null);
+        return value instanceof String ? (String) value : null;
+      }
+
+      @Override
+      public Function<String, String> createWorker() {
+        return value -> encoding.reencode(value, Converter.DELIMITER_WHITESPACE);
       }
-    });
 
-    final String propertyIndexName = getIndexName(propertyName);
-    createFullTextIndex(propertyIndexName, labelNames, Collections.singletonList(propertyName));
+      @Override
+      public boolean write(Node node, String value, String migrated) {
+        if (!value.equals(node.getProperty(propertyName, null))) {
+          return false;
+        }
+        if (migrated != null) {
+          node.setProperty(propertyName, migrated);
+        }
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Procedure lists fingerprints maintained by the event handler
+   *
+   * @return stream of fingerprint definitions
+   */
+  @Procedure(name = "org.rdkit.fingerprint.list", mode = Mode.READ)
+  @Description("RDKit list custom fingerprint properties created by `org.rdkit.fingerprint.create` and maintained on write")
+  public Stream<FingerprintResult> listFingerprints() {
+    return tx.findNodes(Label.label(Constants.FingerprintRegistry.getValue())).stream()
+        .map(FingerprintDefinition::from)
+        .map(FingerprintResult::new);
+  }
 
+  /**
+   * Procedure reports the locks of native fingerprint functions, which are not safe to be called concurrently
+   * The counters are collected since the start of the database server
+   *
+   * @return stream of lock states
+   */
+  @Procedure(name = "org.rdkit.fingerprint.locks", mode = Mode.READ)
+  @Description("RDKit fingerprint locks: name, serialized, initialized, amount of calls, calls which waited for the lock and the total wait time in milliseconds")
+  public Stream<LockResult> locks() {
+    return Stream.of(FingerprintType.PATTERN_FP_LOCK, FingerprintType.AVALON_FP_LOCK, FingerprintType.FEATURE_INVARIANTS_LOCK).map(LockResult::new);
+  }
+
+  /**
+   * Procedure stops maintenance of a custom fingerprint property
+   * Existing property values and the index are kept
+   *
+   * @param propertyName - name of the fingerprint property
+   */
+  @Procedure(name = "org.rdkit.fingerprint.unregister", mode = Mode.WRITE)
+  @Description("RDKit stop computing the custom fingerprint `propertyName` for new nodes, existing values and the index are kept")
+  public void unregisterFingerprint(@Name("propertyName") String propertyName) {
+    log.info("Unregister fingerprint property=%s", propertyName);
+    final Node definition = tx.findNode(Label.label(Constants.FingerprintRegistry.getValue()), FingerprintDefinition.PROPERTY, propertyName);
+    if (definition == null) {
+      throw new IllegalArgumentException(String.format("Fingerprint property=%s is not registered", propertyName));
+    }
+    // the fingerprint store is dropped by the store manager after commit
+    definition.delete();
+  }
+
+  /**
+   * Procedure reports the memory-mapped fingerprint stores of the database (`server.rdkit.fingerprint.store`)
+   *
+   * @return stream of store states, empty if stores are disabled
+   */
+  @Procedure(name = "org.rdkit.fingerprint.stores", mode = Mode.READ)
+  @Description("RDKit fingerprint stores used by the similarity search: property, stored records, journaled (changed) nodes and whether a rebuild is running")
+  public Stream<StoreResult> stores() {
+    final FingerprintStoreManager storeManager = context().getStoreManager();
+    if (storeManager == null) {
+      return Stream.empty();
+    }
+    return storeManager.getStores().values().stream()
+        .map(store -> new StoreResult(store, storeManager.isBuilding(store.getProperty())));
   }
 
   /**
@@ -112,7 +280,7 @@ public class FingerprintProcedures extends BaseProcedure {
    * @param sanitize
    * @return a stream of obtained nodes
    */
-  @Procedure(name = "org.rdkit.fingerprint.similarity.smiles", mode = Mode.READ)
+  @Procedure(name = SIMILARITY_PROCEDURE, mode = Mode.READ)
   @Description("RDKit similarity search procedure. Finds similarity between provided chemical structure "
       + "(which is created of type=`fingerprintType`, from `smiles`) and "
       + "fingerprints placed under proprty=`propertyName`. Values below `threshold` are discarded.")
@@ -123,6 +291,8 @@ public class FingerprintProcedures extends BaseProcedure {
                                                    @Name("threshold") Double threshold,
                                                    @Name(value="sanitize", defaultValue="true") boolean sanitize) {
     log.info("Call similaritySearch labelNames=%s, smiles=%s, fptype=%s, propertyName=%s, threshold=%s", labelNames, smiles, fpTypeString, propertyName, threshold);
+    final long start = System.nanoTime();
+    final PluginMetrics metrics = context().getMetrics();
     String indexName = getIndexName(propertyName);
 
     // START param check
@@ -130,47 +300,147 @@ public class FingerprintProcedures extends BaseProcedure {
     checkThreshold(threshold);
 
     final FingerprintType fpType = FingerprintType.parseString(fpTypeString);
-    final Converter converter = Converter.createConverter(fpType);
+    if (fpType == null) {
+      throw new IllegalStateException(String.format("Fingerprint type=%s not found", fpTypeString));
+    }
+
+    // query fingerprint is computed with the settings of the registered property, default settings otherwise
+    final Node registered = tx.findNode(Label.label(Constants.FingerprintRegistry.getValue()), FingerprintDefinition.PROPERTY, propertyName);
+    final FingerprintSettings settings;
+    final FingerprintDefinition definition = registered == null ? null : FingerprintDefinition.from(registered);
+    if (definition != null) {
+      if (definition.getType() != fpType) {
+        throw new IllegalStateException(String.format("Fingerprint property=%s has type=%s, not %s", propertyName, definition.getType(), fpType));
+      }
+      settings = definition.getSettings();
+    } else {
+      settings = Converter.createSettings(fpType);
+    }
+    final Converter converter = context().getConverters().get(settings);
 
     LuceneQuery similarityQuery;
+    long stage = System.nanoTime();
     try {
       similarityQuery = converter.getLuceneSimilarityQuery(smiles, sanitize);
     } catch (RuntimeException e) {
       throw new IllegalArgumentException(String.format("Unable to convert smiles=%s with specified fingerprintType=%s", smiles, fpType));
     }
+    stage = metrics.record(SIMILARITY_PROCEDURE, PluginMetrics.Stage.fingerprint, stage);
 
     // END param check
 
     /* stream processing objects */
     final String query = similarityQuery.getLuceneQuery();
-    final Set<String> queryNumbers = new HashSet<>(Arrays.asList(query.split(similarityQuery.getDelimiter())));
+    // bit positions are compared instead of tokens, so candidates of either token encoding are scored
+    final Set<Integer> queryBits = new HashSet<>();
+    if (!query.isEmpty()) {
+      for (String token: query.split(similarityQuery.getDelimiter())) {
+        queryBits.add(TokenEncoding.decode(token));
+      }
+    }
     final long queryPositiveBits = similarityQuery.getPositiveBits();
     final String propertyOnes = getPropertyOnes(propertyName);
 
+    // a registered fingerprint is scanned in its memory-mapped store, once it is built
+    final FingerprintStoreManager storeManager = definition == null ? null : context().getStoreManager();
+    final FingerprintStore store = storeManager == null ? null : storeManager.get(definition);
+    if (store != null) {
+      return storeSearch(store, labelNames, queryBits, queryPositiveBits, threshold, metrics)
+          .onClose(() -> metrics.record(SIMILARITY_PROCEDURE, PluginMetrics.Stage.total, start));
+    }
+
+    final String fulltextQuery = bandQuery(indexName, propertyName, fulltextQuery(indexName, propertyName, similarityQuery),
+        FingerprintDefinition.bands(queryPositiveBits, threshold, settings.getNumBits()));
+
+    // nodes of the index have any of its labels, results are restricted to nodes with all requested labels
     Result result = tx.execute("CALL db.index.fulltext.queryNodes($index, $query) "
-            + "YIELD node "
+            + "YIELD node WHERE all(label IN $labels WHERE label IN labels(node)) "
             + String.format("RETURN node.canonical_smiles as smiles, %s as fp, %s as fp_ones, node.preferred_name as name, node.luri as luri",
                 "node." + propertyName, "node." + propertyOnes), // todo: looks bad
-        MapUtil.map("index", indexName, "query", query));
+        MapUtil.map("index", indexName, "query", fulltextQuery, "labels", labelNames));
+    // the result is lazy, the fulltext query runs when the first row is pulled
+    result.hasNext();
+    metrics.record(SIMILARITY_PROCEDURE, PluginMetrics.Stage.query, stage);
+    final LatencyHistogram verify = metrics.histogram(SIMILARITY_PROCEDURE, PluginMetrics.Stage.verify);
 
     // Process the stream, get all nodes which contain at least one bit position from query object
     return result.stream()
         .peek(candidate -> {
-          long counter = 0;
-          for (String position: ((String) candidate.get("fp")).split(Converter.DELIMITER_WHITESPACE)) { // todo: refactor
-            if (queryNumbers.contains(position)) counter++;
-          }
-
-          long candidatePositiveBits = (Long) candidate.get("fp_ones");
-          double similarity = 1.0d * counter / (queryPositiveBits + candidatePositiveBits - counter);
-          candidate.put("similarity", similarity);
+          final long verifying = System.nanoTime();
+          candidate.put("similarity", similarity(queryBits, queryPositiveBits, (String) candidate.get("fp"), (Long) candidate.get("fp_ones")));
+          verify.record(System.nanoTime() - verifying);
         })
 //        .parallel()
         .filter(map -> (Double) map.get("similarity") > threshold)
         .map(SimilarityResult::new)
+        .sorted((s1, s2) -> Double.compare(s2.similarity, s1.similarity))
+        .onClose(() -> metrics.record(SIMILARITY_PROCEDURE, PluginMetrics.Stage.total, start));
+  }
+
+  /**
+   * Method scans the fingerprint store, fingerprints changed since the store was written are read from its overlay
+   * Matches are scored by the store as of the last commit, nodes are read only for the labels and the result fields.
+   * Like the fulltext query, results are restricted to nodes with all requested labels.
+   */
+  private Stream<SimilarityResult> storeSearch(final FingerprintStore store, final List<String> labelNames,
+                                               final Set<Integer> queryBits, final long queryPositiveBits, final double threshold,
+                                               final PluginMetrics metrics) {
+    final List<Label> labels = labelNames.stream().map(Label::label).collect(Collectors.toList());
+    final long querying = System.nanoTime();
+    final BitSet query = new BitSet();
+    queryBits.forEach(query::set);
+    final List<FingerprintStore.Hit> hits = store.search(query.toLongArray(), queryPositiveBits, threshold);
+    metrics.record(SIMILARITY_PROCEDURE, PluginMetrics.Stage.query, querying);
+
+    return hits.stream()
+        .map(hit -> {
+          final Node node;
+          try {
+            node = tx.getNodeById(hit.getNodeId());
+          } catch (NotFoundException e) {
+            return null;
+          }
+          if (!labels.stream().allMatch(node::hasLabel)) {
+            return null;
+          }
+          return new SimilarityResult(MapUtil.map("smiles", node.getProperty(canonicalSmilesProperty, null), "name", node.getProperty("preferred_name", null),
+              "luri", node.getProperty("luri", null), "similarity", hit.getSimilarity()));
+        })
+        .filter(Objects::nonNull)
         .sorted((s1, s2) -> Double.compare(s2.similarity, s1.similarity));
   }
 
+  /**
+   * Tanimoto similarity of a candidate, bit positions are compared, so candidates of either token encoding are scored
+   */
+  private static double similarity(final Set<Integer> queryBits, final long queryPositiveBits, final String candidate, final long candidatePositiveBits) {
+    long counter = 0;
+    for (String token: candidate.split(Converter.DELIMITER_WHITESPACE)) {
+      if (queryBits.contains(TokenEncoding.decode(token))) counter++;
+    }
+    return 1.0d * counter / (queryPositiveBits + candidatePositiveBits - counter);
+  }
+
+  /**
+   * Method restricts the similarity query to popcount bands which can reach the threshold
+   * An index created before popcount bands (without the band property) is queried on all bands.
+   *
+   * @param indexName - fulltext index of the fingerprint property
+   * @param propertyName - fingerprint property
+   * @param query - tokens of the query fingerprint joined by OR, in either encoding while values are not migrated
+   * @param bands - band tokens, null for all bands
+   * @return fulltext query
+   */
+  private String bandQuery(final String indexName, final String propertyName, final String query, final List<String> bands) {
+    final String propertyBand = propertyName + "_band";
+    final boolean banded = StreamSupport.stream(tx.schema().getIndexByName(indexName).getPropertyKeys().spliterator(), false)
+        .anyMatch(propertyBand::equals);
+    if (!banded || bands == null || query.isEmpty()) {
+      return query;
+    }
+    return String.format("%s:(%s) AND %s:(%s)", propertyName, query, propertyBand, String.join(" OR ", bands));
+  }
+
   /**
    * Similarity result wrapper
    */
@@ -189,6 +459,79 @@ public class FingerprintProcedures extends BaseProcedure {
     }
   }
 
+  /**
+   * Fingerprint definition wrapper
+   */
+  public static class FingerprintResult {
+    public String propertyName;
+    public String fingerprintType;
+    public List<String> labels;
+    public Map<String, Object> settings;
+
+    public FingerprintResult(FingerprintDefinition definition) {
+      this.propertyName = definition.getProperty();
+      this.fingerprintType = definition.getType().toString();
+      this.labels = definition.getLabels();
+      this.settings = definition.getSettingsMap();
+    }
+  }
+
+  /**
+   * Fingerprint lock wrapper
+   */
+  public static class LockResult {
+    public String name;
+    public boolean serialized;
+    public boolean initialized;
+    public long calls;
+    public long contended;
+    public long waitMillis;
+
+    public LockResult(FingerprintLock lock) {
+      this.name = lock.getName();
+      this.serialized = lock.isSerialized();
+      this.initialized = lock.isInitialized();
+      this.calls = lock.getCalls();
+      this.contended = lock.getContended();
+      this.waitMillis = lock.getWaitMillis();
+    }
+  }
+
+  /**
+   * Fingerprint store wrapper
+   */
+  public static class StoreResult {
+    public String propertyName;
+    public long records;
+    public long journaled;
+    public boolean building;
+
+    public StoreResult(FingerprintStore store, boolean building) {
+      this.propertyName = store.getProperty();
+      this.records = store.getCount();
+      this.journaled = store.getJournaled();
+      this.building = building;
+    }
+  }
+
+  /**
+   * Method stores the definition in a registry node, a previous definition of the same property is replaced
+   * The procedure transaction creates an index, so the definition is written in a separate transaction
+   *
+   * @param definition to store
+   */
+  private static void register(final GraphDatabaseService db, final FingerprintDefinition definition) {
+    final Label registryLabel = Label.label(Constants.FingerprintRegistry.getValue());
+    try (Transaction localTx = db.beginTx()) {
+      Node node = localTx.findNode(registryLabel, FingerprintDefinition.PROPERTY, definition.getProperty());
+      if (node == null) {
+        node = localTx.createNode(registryLabel);
+      }
+      definition.writeTo(node);
+      localTx.commit();
+    }
+  }
+
   /**
    * Method checks passed parameter `threshold`
    * @param threshold to be checked
@@ -204,7 +547,7 @@ public class FingerprintProcedures extends BaseProcedure {
    *
    * @param propertyName to be chedked
    */
-  private void checkPropertyName(final String propertyName) {
+  private static void checkPropertyName(final String propertyName) {
     try {
       Constants.from(propertyName);
       throw new IllegalStateException("This property name is protected");
@@ -237,7 +580,7 @@ public class FingerprintProcedures extends BaseProcedure {
   /**
    * Name convention for similarity fingerprint index
    */
-  private String getIndexName(final String propertyName) {
+  static String getIndexName(final String propertyName) {
     return propertyName + "_index";
   }
 }
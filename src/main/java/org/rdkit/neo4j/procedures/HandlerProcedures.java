@@ -0,0 +1,110 @@
+package org.rdkit.neo4j.procedures;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Procedure;
+import org.rdkit.neo4j.config.HandlerMode;
+import org.rdkit.neo4j.handlers.DatabaseWarmup;
+import org.rdkit.neo4j.handlers.DeferredPropertyWorker;
+
+import java.util.stream.Stream;
+
+/**
+ * Class HandlerProcedures
+ * Implements functionality for org.rdkit.handler.* procedures, which report the state of the event handler,
+ * and `org.rdkit.warmup.status`, which reports the warm-up after start
+ */
+public class HandlerProcedures extends BaseProcedure {
+
+  /**
+   * Procedure reports the state of the event handler of the current database
+   * In deferred mode the size of the queue and the lag of the oldest queued node are reported
+   *
+   * @return single status row
+   */
+  @Procedure(name = "org.rdkit.handler.status", mode = Mode.READ)
+  @Description("RDKit event handler status: mode, amount of queued nodes, lag of the oldest queued node in milliseconds, processed and failed nodes")
+  public Stream<HandlerStatus> status() {
+    final DeferredPropertyWorker worker = context().getDeferredWorker();
+    return Stream.of(worker == null ? new HandlerStatus() : new HandlerStatus(worker));
+  }
+
+  /**
+   * Procedure reports the background warm-up of the current database (`server.rdkit.warmup.enabled`)
+   * `ready` becomes true once the warm-up is finished, it is true at once if the warm-up is disabled
+   *
+   * @return single status row
+   */
+  @Procedure(name = "org.rdkit.warmup.status", mode = Mode.READ)
+  @Description("RDKit warm-up status: state (disabled, waiting, running, done, failed), ready flag, duration in milliseconds, executed and failed queries, prefetched nodes and error")
+  public Stream<WarmupStatus> warmupStatus() {
+    final DatabaseWarmup warmup = context().getWarmup();
+    return Stream.of(warmup == null ? new WarmupStatus() : new WarmupStatus(warmup));
+  }
+
+  /**
+   * Class result wrapper for handler status
+   */
+  public static class HandlerStatus {
+    public String mode;
+    public long queued;
+    public long lagMillis;
+    public long processed;
+    public long failed;
+
+    public HandlerStatus() {
+      this.mode = HandlerMode.sync.name();
+    }
+
+    public HandlerStatus(DeferredPropertyWorker worker) {
+      this.mode = HandlerMode.deferred.name();
+      this.queued = worker.getQueued();
+      this.lagMillis = worker.getLagMillis();
+      this.processed = worker.getProcessed();
+      this.failed = worker.getFailed();
+    }
+  }
+
+  /**
+   * Class result wrapper for warm-up status
+   */
+  public static class WarmupStatus {
+    public String state;
+    public boolean ready;
+    public long millis;
+    public long queries;
+    public long failedQueries;
+    public long prefetched;
+    public String error;
+
+    public WarmupStatus() {
+      this.state = "disabled";
+      this.ready = true;
+    }
+
+    public WarmupStatus(DatabaseWarmup warmup) {
+      this.state = warmup.getState().name();
+      this.ready = warmup.isFinished();
+      this.millis = warmup.getMillis();
+      this.queries = warmup.getQueries();
+      this.failedQueries = warmup.getFailedQueries();
+      this.prefetched = warmup.getPrefetched();
+      this.error = warmup.getError();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package org.rdkit.neo4j.procedures;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Name;
+import org.neo4j.procedure.Procedure;
+import org.rdkit.neo4j.models.Constants;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Class JobProcedures
+ * Implements functionality for org.rdkit.jobs.* procedures, which manage batch tasks recorded in job nodes (see {@link BatchJob})
+ */
+public class JobProcedures extends BaseProcedure {
+  /**
+   * Procedure starts a batch task in the background and returns its job id immediately
+   *
+   * @param procedure - `org.rdkit.update`, `org.rdkit.fingerprint.create` or `org.rdkit.fingerprint.migrate`
+   * @param labelNames - node labels
+   * @param parameters - `sanitize`, `batchSize`, `parallelism`; `incremental` for `org.rdkit.update`;
+   *                   `fingerprintType`, `propertyName` and `settings` for `org.rdkit.fingerprint.create`;
+   *                   `propertyName` for `org.rdkit.fingerprint.migrate`
+   * @return job result
+   * @throws InterruptedException never, the job is executed in the background
+   */
+  @SuppressWarnings("unchecked")
+  @Procedure(name = "org.rdkit.jobs.submit", mode = Mode.WRITE)
+  @Description("RDKit start `org.rdkit.update`, `org.rdkit.fingerprint.create` or `org.rdkit.fingerprint.migrate` in the background, "
+      + "`parameters` may contain `sanitize`, `batchSize`, `parallelism`, `incremental`, `fingerprintType`, `propertyName` and `settings`")
+  public Stream<JobResult> submit(@Name("procedure") String procedure, @Name("labels") List<String> labelNames,
+                                  @Name(value = "parameters", defaultValue = "{}") Map<String, Object> parameters) throws InterruptedException {
+    log.info("Submit job procedure=%s, labels=%s, parameters=%s", procedure, labelNames, parameters);
+    final boolean sanitize = (Boolean) parameters.getOrDefault("sanitize", true);
+    final long batchSize = ((Number) parameters.getOrDefault("batchSize", (long) PAGE_SIZE)).longValue();
+    final long parallelism = ((Number) parameters.getOrDefault("parallelism", 0L)).longValue();
+
+    final BatchJob job;
+    switch (procedure) {
+      case ExactSearch.UPDATE_PROCEDURE:
+        job = BatchJob.create(db, procedure, labelNames, sanitize, batchSize, parallelism,
+            (Boolean) parameters.getOrDefault("incremental", false), null);
+        break;
+      case FingerprintProcedures.CREATE_PROCEDURE:
+        job = FingerprintProcedures.createJob(db, labelNames, (String) parameters.get("fingerprintType"),
+            (String) parameters.get("propertyName"), sanitize, batchSize, parallelism,
+            (Map<String, Object>) parameters.getOrDefault("settings", Map.of()));
+        break;
+      case FingerprintProcedures.MIGRATE_PROCEDURE:
+        job = BatchJob.create(db, procedure, labelNames, batchSize, parallelism, (String) parameters.getOrDefault("propertyName", "fp"));
+        break;
+      default:
+        throw new IllegalArgumentException(String.format("Procedure=%s can not be submitted, possible values: [%s, %s, %s]",
+            procedure, ExactSearch.UPDATE_PROCEDURE, FingerprintProcedures.CREATE_PROCEDURE, FingerprintProcedures.MIGRATE_PROCEDURE));
+    }
+    return runJob(job, true);
+  }
+
+  /**
+   * Procedure continues an interrupted, failed or cancelled batch task after its checkpoint
+   *
+   * @param jobId - id returned by `org.rdkit.update`, `org.rdkit.fingerprint.create` or `org.rdkit.jobs.submit`
+   * @param background - flag, whether to return immediately
+   * @return job result
+   * @throws InterruptedException if batch task is interrupted
+   */
+  @Procedure(name = "org.rdkit.jobs.resume", mode = Mode.SCHEMA)
+  @Description("RDKit continue a batch task (`org.rdkit.update`, `org.rdkit.fingerprint.create`, `org.rdkit.fingerprint.migrate`) from its last checkpoint")
+  public Stream<JobResult> resume(@Name("jobId") String jobId,
+                                  @Name(value = "background", defaultValue = "false") boolean background) throws InterruptedException {
+    final BatchJob job = BatchJob.load(db, jobId);
+    log.info("Resume job id=%s, procedure=%s, checkpoint=%d", jobId, job.getProcedure(), job.getCheckpoint());
+    return runJob(job, background);
+  }
+
+  /**
+   * Procedure reports the progress of a job or of all jobs
+   *
+   * @param jobId - job id, null for all jobs
+   * @return job results
+   */
+  @Procedure(name = "org.rdkit.jobs.status", mode = Mode.READ)
+  @Description("RDKit report status, checkpoint, processed and failed nodes and the rate of a job (all jobs if `jobId` is null)")
+  public Stream<JobResult> status(@Name(value = "jobId", defaultValue = "null") String jobId) {
+    if (jobId != null) {
+      return Stream.of(new JobResult(BatchJob.load(db, jobId)));
+    }
+    return tx.findNodes(Label.label(Constants.Job.getValue())).stream()
+        .map(node -> new JobResult(BatchJob.from(db, node)));
+  }
+
+  /**
+   * Procedure stops a job executed by this instance after the batches in flight, the job may be resumed later
+   *
+   * @param jobId - job id
+   * @return job result
+   */
+  @Procedure(name = "org.rdkit.jobs.cancel", mode = Mode.READ)
+  @Description("RDKit stop a running job between batches, it may be continued with `org.rdkit.jobs.resume`")
+  public Stream<JobResult> cancel(@Name("jobId") String jobId) {
+    final BatchJob job = BatchJob.active(db, jobId);
+    if (job == null) {
+      throw new IllegalStateException(String.format("Job id=%s is not running", jobId));
+    }
+    log.info("Cancel job id=%s", jobId);
+    job.cancel();
+    return Stream.of(new JobResult(job));
+  }
+
+  /**
+   * Job result wrapper
+   */
+  public static class JobResult {
+    public String jobId;
+    public String procedure;
+    public List<String> labels;
+    public String status;
+    public long checkpoint;
+    public long processed;
+    public long failed;
+    public double nodesPerSecond;
+
+    JobResult(BatchJob job) {
+      this.jobId = job.getId();
+      this.procedure = job.getProcedure();
+      this.labels = job.getLabels();
+      this.status = job.getStatus();
+      this.checkpoint = job.getCheckpoint();
+      this.processed = job.getProcessed();
+      this.failed = job.getFailed();
+      this.nodesPerSecond = job.getRate();
+    }
+  }
+}
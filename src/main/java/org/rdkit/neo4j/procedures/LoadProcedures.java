@@ -0,0 +1,313 @@
+package org.rdkit.neo4j.procedures;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.RDKit.MolSanitizeException;
+import org.neo4j.configuration.Config;
+import org.neo4j.configuration.GraphDatabaseSettings;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Name;
+import org.neo4j.procedure.Procedure;
+import org.rdkit.neo4j.config.RDKitSettings;
+import org.rdkit.neo4j.handlers.RDKitEventHandler;
+import org.rdkit.neo4j.metrics.LatencyHistogram;
+import org.rdkit.neo4j.metrics.PluginMetrics;
+import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.FingerprintDefinition;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.NodeParameters;
+import org.rdkit.neo4j.models.StructureRecord;
+import org.rdkit.neo4j.utils.ConversionCache;
+import org.rdkit.neo4j.utils.Converter;
+import org.rdkit.neo4j.utils.SdfReader;
+import org.rdkit.neo4j.utils.SmilesReader;
+import org.rdkit.neo4j.utils.StructureReader;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Class LoadProcedures
+ * Implements functionality for org.rdkit.load.* procedures, which bulk load structure files from the import directory
+ *
+ * Records are read sequentially, converted on a pool of worker threads and written in batches by the procedure thread.
+ * At most two batches are converted at the same time, so the memory footprint does not depend on the file size.
+ * Batch transactions are not processed by the event handler, all node properties are computed by the procedure.
+ */
+public class LoadProcedures extends BaseProcedure {
+  private static final int IN_FLIGHT_BATCHES = 2;
+  private static final int MAX_REPORTED_FAILURES = 100;
+  // both load procedures are recorded as one operation
+  static final String LOAD_OPERATION = "org.rdkit.load";
+
+  /**
+   * Procedure loads an SD file, every record becomes a node with `mdlmol`, `name` (title of the record) and data fields as properties
+   *
+   * @param labelNames - labels of the created nodes
+   * @param file - path relative to the import directory, `.gz` files are decompressed
+   * @param batchSize - amount of records committed in one transaction
+   * @param offset - amount of records to skip, `nextOffset` of a failed load resumes it
+   * @param parallelism - amount of worker threads, 0 uses all available processors
+   * @param sanitize - if false, structures failing the sanitization are converted without it
+   * @return load statistics
+   * @throws Exception if the file can not be read or a batch can not be committed
+   */
+  @Procedure(name = "org.rdkit.load.sdf", mode = Mode.WRITE)
+  @Description("RDKit bulk load of an SD file from the import directory, nodes with `labels` and all rdkit properties are created in batches")
+  public Stream<LoadResult> loadSdf(@Name("labels") List<String> labelNames,
+                                    @Name("file") String file,
+                                    @Name(value = "batchSize", defaultValue = "10000") long batchSize,
+                                    @Name(value = "offset", defaultValue = "0") long offset,
+                                    @Name(value = "parallelism", defaultValue = "0") long parallelism,
+                                    @Name(value = "sanitize", defaultValue = "true") boolean sanitize) throws Exception {
+    log.info("Load sdf file=%s, labels=%s, batchSize=%d, offset=%d", file, labelNames, batchSize, offset);
+    try (StructureReader reader = SdfReader.open(resolveImportFile(file))) {
+      return Stream.of(load(reader, labelNames, batchSize, offset, parallelism, sanitize));
+    }
+  }
+
+  /**
+   * Procedure loads a SMILES file, every line becomes a node with `smiles` and `name` (second column) properties
+   *
+   * @param labelNames - labels of the created nodes
+   * @param file - path relative to the import directory, `.gz` files are decompressed
+   * @param batchSize - amount of records committed in one transaction
+   * @param offset - amount of records to skip, `nextOffset` of a failed load resumes it
+   * @param parallelism - amount of worker threads, 0 uses all available processors
+   * @param sanitize - if false, structures failing the sanitization are converted without it
+   * @return load statistics
+   * @throws Exception if the file can not be read or a batch can not be committed
+   */
+  @Procedure(name = "org.rdkit.load.smiles", mode = Mode.WRITE)
+  @Description("RDKit bulk load of a SMILES file from the import directory, nodes with `labels` and all rdkit properties are created in batches")
+  public Stream<LoadResult> loadSmiles(@Name("labels") List<String> labelNames,
+                                       @Name("file") String file,
+                                       @Name(value = "batchSize", defaultValue = "10000") long batchSize,
+                                       @Name(value = "offset", defaultValue = "0") long offset,
+                                       @Name(value = "parallelism", defaultValue = "0") long parallelism,
+                                       @Name(value = "sanitize", defaultValue = "true") boolean sanitize) throws Exception {
+    log.info("Load smiles file=%s, labels=%s, batchSize=%d, offset=%d", file, labelNames, batchSize, offset);
+    try (StructureReader reader = SmilesReader.open(resolveImportFile(file))) {
+      return Stream.of(load(reader, labelNames, batchSize, offset, parallelism, sanitize));
+    }
+  }
+
+  /**
+   * Class result wrapper for load procedures
+   */
+  public static class LoadResult {
+    public long skipped;
+    public long records;
+    public long created;
+    public long failed;
+    public List<Long> failedRecords = new ArrayList<>();
+    public long batches;
+    public long nextOffset;
+    public long millis;
+    public double recordsPerSecond;
+  }
+
+  private LoadResult load(final StructureReader reader, final List<String> labelNames, final long batchSize, final long offset,
+                          final long parallelism, final boolean sanitize) throws Exception {
+    if (batchSize <= 0 || offset < 0 || parallelism < 0) {
+      throw new IllegalArgumentException(String.format("Invalid parameters batchSize=%d, offset=%d, parallelism=%d", batchSize, offset, parallelism));
+    }
+
+    final Config config = ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Config.class);
+    final int cacheSize = config.get(RDKitSettings.conversionCacheSize);
+    final Converter converter = Converter.createDefault()
+        .withCache(cacheSize > 0 ? new ConversionCache(cacheSize) : null)
+        .withOptionalFields(NodeFields.parseOptional(config.get(RDKitSettings.optionalFields)))
+        .withRegistry(context().getConverters())
+        .withMetrics(context().getMetrics(), LOAD_OPERATION);
+    final List<FingerprintDefinition> fingerprints = tx.findNodes(Label.label(Constants.FingerprintRegistry.getValue())).stream()
+        .map(FingerprintDefinition::from)
+        .collect(Collectors.toList());
+    final Label[] labels = labelNames.stream().map(Label::label).toArray(Label[]::new);
+
+    final int threads = parallelism > 0 ? (int) parallelism : Runtime.getRuntime().availableProcessors();
+    final AtomicInteger threadCounter = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "rdkit-load-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    final long start = System.nanoTime();
+    final LoadResult result = new LoadResult();
+    result.skipped = reader.skip(offset);
+    result.nextOffset = reader.getPosition();
+
+    try {
+      final Deque<List<Future<ParsedRecord>>> inFlight = new ArrayDeque<>();
+      while (true) {
+        while (inFlight.size() < IN_FLIGHT_BATCHES && reader.hasNext()) {
+          final List<Future<ParsedRecord>> batch = new ArrayList<>((int) Math.min(batchSize, PAGE_SIZE));
+          while (batch.size() < batchSize && reader.hasNext()) {
+            final StructureRecord record = reader.next();
+            batch.add(executor.submit(() -> parse(converter, record, sanitize, fingerprints)));
+          }
+          inFlight.add(batch);
+        }
+        if (inFlight.isEmpty()) {
+          break;
+        }
+        writeBatch(inFlight.poll(), labels, result);
+      }
+    } catch (Exception e) {
+      log.error("Load failed after %d records, resume with offset=%d", result.records, result.nextOffset);
+      throw new IllegalStateException(String.format("Load failed after %d records, resume with offset=%d", result.records, result.nextOffset), e);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    context().getMetrics().record(LOAD_OPERATION, PluginMetrics.Stage.total, start);
+    result.millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    result.recordsPerSecond = result.millis == 0 ? result.records : 1000.0d * result.records / result.millis;
+    log.info("Load done, records=%d, created=%d, failed=%d, %.1f records/s", result.records, result.created, result.failed, result.recordsPerSecond);
+    return result;
+  }
+
+  /**
+   * Method writes converted records in a single transaction, which is skipped by the event handler
+   */
+  private void writeBatch(final List<Future<ParsedRecord>> batch, final Label[] labels, final LoadResult result) throws Exception {
+    long created = 0;
+    final List<Long> failedRecords = new ArrayList<>();
+    final LatencyHistogram write = context().getMetrics().histogram(LOAD_OPERATION, PluginMetrics.Stage.write);
+
+    try (Transaction localTx = db.beginTx()) {
+      ((InternalTransaction) localTx).setMetaData(Map.of(RDKitEventHandler.SKIP_METADATA_KEY, true));
+      for (Future<ParsedRecord> future: batch) {
+        final ParsedRecord parsed = getResult(future);
+        if (parsed.block == null) {
+          failedRecords.add(parsed.record.getIndex());
+          continue;
+        }
+
+        final long writing = System.nanoTime();
+        final Node node = localTx.createNode(labels);
+        parsed.record.getProperties().forEach(node::setProperty);
+        node.setProperty(parsed.record.getKind().getValue(), parsed.record.getStructure());
+        RDKitEventHandler.addProperties(node, parsed.block);
+        write.record(System.nanoTime() - writing);
+        created++;
+      }
+      localTx.commit();
+    }
+
+    result.batches++;
+    result.records += batch.size();
+    result.nextOffset += batch.size();
+    result.created += created;
+    result.failed += failedRecords.size();
+    for (Long index: failedRecords) {
+      if (result.failedRecords.size() < MAX_REPORTED_FAILURES) {
+        result.failedRecords.add(index);
+      }
+    }
+    log.info("batch # %d, records=%d, failed=%d", result.batches, result.records, result.failed);
+  }
+
+  private static ParsedRecord getResult(final Future<ParsedRecord> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw (Error) cause;
+    }
+  }
+
+  /**
+   * Method converts a record on a worker thread, conversion failures are reported as failed records
+   */
+  private static ParsedRecord parse(final Converter converter, final StructureRecord record, final boolean sanitize,
+                                    final List<FingerprintDefinition> fingerprints) {
+    try {
+      return new ParsedRecord(record, convert(converter, record, true, fingerprints));
+    } catch (MolSanitizeException e) {
+      if (!sanitize) {
+        try {
+          return new ParsedRecord(record, convert(converter, record, false, fingerprints));
+        } catch (Exception ignored) {
+          // reported as failed below
+        }
+      }
+    } catch (Exception e) {
+      // reported as failed below
+    }
+    return new ParsedRecord(record, null);
+  }
+
+  private static NodeParameters convert(final Converter converter, final StructureRecord record, final boolean sanitize,
+                                        final List<FingerprintDefinition> fingerprints) {
+    if (record.getKind() == NodeFields.MdlMol) {
+      return converter.convertMolBlock(record.getStructure(), sanitize, fingerprints);
+    }
+    return converter.convertSmiles(record.getStructure(), sanitize, fingerprints);
+  }
+
+  /**
+   * Method resolves the file within the import directory, paths leaving the import directory are rejected
+   *
+   * @param file - relative path, `file:///` prefix is accepted
+   * @return absolute path
+   */
+  private Path resolveImportFile(final String file) {
+    final Config config = ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Config.class);
+    final Path root = config.get(GraphDatabaseSettings.load_csv_file_url_root).toAbsolutePath().normalize();
+    final String relative = file.startsWith("file://") ? file.substring("file://".length()).replaceFirst("^/+", "") : file;
+    final Path path = root.resolve(relative).normalize();
+    if (!path.startsWith(root)) {
+      throw new IllegalArgumentException(String.format("File=%s is outside of the import directory", file));
+    }
+    return path;
+  }
+
+  /**
+   * Record together with its conversion result, `block` is null if the conversion failed
+   */
+  private static class ParsedRecord {
+    private final StructureRecord record;
+    private final NodeParameters block;
+
+    ParsedRecord(StructureRecord record, NodeParameters block) {
+      this.record = record;
+      this.block = block;
+    }
+  }
+}
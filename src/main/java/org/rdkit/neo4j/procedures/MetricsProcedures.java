@@ -0,0 +1,80 @@
+package org.rdkit.neo4j.procedures;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Procedure;
+import org.rdkit.neo4j.metrics.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Class MetricsProcedures
+ * Implements `org.rdkit.metrics`, which reports latencies of procedures and of the event handler by stage
+ * The same values are published as the JMX bean `org.rdkit.neo4j:type=Metrics,database=<name>`.
+ */
+public class MetricsProcedures extends BaseProcedure {
+
+  /**
+   * Procedure reports latency histograms of the current database, one row per operation and stage
+   *
+   * @return stream of histograms, sorted by operation and stage
+   */
+  @Procedure(name = "org.rdkit.metrics", mode = Mode.READ)
+  @Description("RDKit latency metrics per operation (procedure or handler) and stage (parse, fingerprint, query, verify, write, total): "
+      + "count, total, mean, max and percentiles in milliseconds, cumulative buckets by upper bound in milliseconds")
+  public Stream<MetricResult> metrics() {
+    return context().getMetrics().getHistograms().entrySet().stream()
+        .map(entry -> new MetricResult(entry.getKey(), entry.getValue()));
+  }
+
+  /**
+   * Class result wrapper for a latency histogram
+   */
+  public static class MetricResult {
+    public String operation;
+    public String stage;
+    public long count;
+    public double totalMillis;
+    public double meanMillis;
+    public double maxMillis;
+    public double p50Millis;
+    public double p95Millis;
+    public double p99Millis;
+    public Map<String, Object> buckets = new LinkedHashMap<>();
+
+    public MetricResult(String key, LatencyHistogram histogram) {
+      final int separator = key.lastIndexOf(':');
+      this.operation = key.substring(0, separator);
+      this.stage = key.substring(separator + 1);
+      this.count = histogram.getCount();
+      this.totalMillis = histogram.getTotalMillis();
+      this.meanMillis = histogram.getMeanMillis();
+      this.maxMillis = histogram.getMaxMillis();
+      this.p50Millis = histogram.getQuantileMillis(0.5);
+      this.p95Millis = histogram.getQuantileMillis(0.95);
+      this.p99Millis = histogram.getQuantileMillis(0.99);
+      final long[] cumulative = histogram.getBuckets();
+      for (int i = 0; i < cumulative.length; i++) {
+        buckets.put(String.valueOf(LatencyHistogram.BOUNDS_MILLIS[i]), cumulative[i]);
+      }
+      buckets.put("+Inf", count);
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package org.rdkit.neo4j.procedures;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+import org.neo4j.logging.Log;
+import org.rdkit.neo4j.handlers.RDKitEventHandler;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Three-stage pipeline of a batch job
+ *
+ * 1. The reader (calling thread) streams nodes of the scan transaction and reads their input in batches
+ * 2. Workers compute the results outside of any transaction
+ * 3. A single writer applies the results of a batch in a short transaction and reports it to the job,
+ *    nodes whose input changed since it was read are counted as failed (see {@link NodeTask#write})
+ *
+ * At most `2 * workers` batches are in flight, so the reader blocks when the workers or the writer fall behind.
+ * Node ids must arrive in ascending order (as produced by a label scan), so that written batches define the job checkpoint.
+ */
+class NodeBatchPipeline {
+  private static final Object SKIPPED = new Object();
+  private static final Object FAILED = new Object();
+  private static final Batch END = new Batch(-1, new long[0], new Object[0]);
+
+  private final GraphDatabaseService db;
+  private final Log log;
+  private final int batchSize;
+  private final int workers;
+
+  /**
+   * @param db - database
+   * @param log - procedure log
+   * @param batchSize - amount of nodes in a batch
+   * @param parallelism - amount of workers, 0 means all available processors
+   */
+  NodeBatchPipeline(GraphDatabaseService db, Log log, int batchSize, int parallelism) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive, got " + batchSize);
+    }
+    if (parallelism < 0) {
+      throw new IllegalArgumentException("Parallelism must not be negative, got " + parallelism);
+    }
+    this.db = db;
+    this.log = log;
+    this.batchSize = batchSize;
+    this.workers = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+  }
+
+  /**
+   * Execute the task on the nodes, stops after the batches in flight if the job is cancelled
+   *
+   * @param nodes - stream of the scan transaction, consumed by the calling thread
+   * @param task - node task
+   * @param job - receives written batches, is checked for cancellation between batches
+   * @throws InterruptedException if the thread is interrupted
+   */
+  <I, R> void run(final Stream<Node> nodes, final NodeTask<I, R> task, final BatchJob job) throws InterruptedException {
+    final ExecutorService workerPool = Executors.newFixedThreadPool(workers, daemon("rdkit-batch-worker"));
+    final ExecutorService writerPool = Executors.newSingleThreadExecutor(daemon("rdkit-batch-writer"));
+    final Semaphore inFlight = new Semaphore(2 * workers);
+    final BlockingQueue<Batch> computed = new ArrayBlockingQueue<>(2 * workers + 1);
+    final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    final AtomicInteger numberOfBatches = new AtomicInteger();
+    final ThreadLocal<Function<I, R>> computations = ThreadLocal.withInitial(task::createWorker);
+
+    final Future<?> writing = writerPool.submit(() -> {
+      Batch batch;
+      while ((batch = take(computed)) != END) {
+        try {
+          if (failure.get() == null) {
+            final int failed = write(batch, task);
+            job.committed(batch.sequence, batch.ids[batch.ids.length - 1], batch.ids.length, failed);
+            log.info("batch # %d", numberOfBatches.incrementAndGet());
+          }
+        } catch (RuntimeException e) {
+          failure.compareAndSet(null, e);
+        } finally {
+          inFlight.release();
+        }
+      }
+    });
+
+    try {
+      final Iterator<Node> iterator = nodes.iterator();
+      long sequence = 0;
+      long previousId = -1;
+      while (iterator.hasNext() && failure.get() == null && !job.isCancelled()) {
+        final Batch batch = read(sequence++, iterator, task);
+        previousId = checkAscending(batch.ids, previousId);
+
+        inFlight.acquire();
+        workerPool.execute(() -> {
+          try {
+            compute(batch, computations.get());
+            computed.put(batch);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.release();
+          } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            inFlight.release();
+          }
+        });
+      }
+
+      workerPool.shutdown();
+      while (!workerPool.awaitTermination(1, TimeUnit.MINUTES)) {
+        log.info("waiting for workers, %d batches done", numberOfBatches.get());
+      }
+      computed.put(END);
+      writing.get();
+    } catch (ExecutionException e) {
+      failure.compareAndSet(null, new IllegalStateException(e.getCause()));
+    } finally {
+      workerPool.shutdownNow();
+      writerPool.shutdownNow();
+    }
+
+    if (failure.get() != null) {
+      log.error("batch task failed after %d batches", numberOfBatches.get());
+      throw failure.get();
+    }
+    log.info("done, ran %d batches successfully", numberOfBatches.get());
+  }
+
+  private <I> Batch read(final long sequence, final Iterator<Node> iterator, final NodeTask<I, ?> task) {
+    final long[] ids = new long[batchSize];
+    final Object[] values = new Object[batchSize];
+    int size = 0;
+    while (size < batchSize && iterator.hasNext()) {
+      final Node node = iterator.next();
+      ids[size] = node.getId();
+      try {
+        final I input = task.read(node);
+        values[size] = input == null ? SKIPPED : input;
+      } catch (RuntimeException e) {
+        log.error("Unable to read node id=%d: %s", ids[size], e.getMessage());
+        values[size] = FAILED;
+      }
+      size++;
+    }
+    return size == batchSize ? new Batch(sequence, ids, values) : new Batch(sequence, Arrays.copyOf(ids, size), Arrays.copyOf(values, size));
+  }
+
+  @SuppressWarnings("unchecked")
+  private <I, R> void compute(final Batch batch, final Function<I, R> computation) {
+    for (int i = 0; i < batch.inputs.length; i++) {
+      final Object input = batch.inputs[i];
+      if (input == SKIPPED || input == FAILED) {
+        batch.results[i] = input;
+        continue;
+      }
+      try {
+        batch.results[i] = computation.apply((I) input);
+      } catch (Exception e) {
+        log.error("Unable to process node id=%d: %s", batch.ids[i], e.getMessage());
+        batch.results[i] = FAILED;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <I, R> int write(final Batch batch, final NodeTask<I, R> task) {
+    int failed = 0;
+    try (Transaction localTx = db.beginTx()) {
+      ((InternalTransaction) localTx).setMetaData(Map.of(RDKitEventHandler.SKIP_METADATA_KEY, true));
+      for (int i = 0; i < batch.results.length; i++) {
+        final Object result = batch.results[i];
+        if (result == FAILED) {
+          failed++;
+        } else if (result != SKIPPED) {
+          try {
+            // the event handler skips this transaction, so a node changed after it was read is left to the handler
+            if (!task.write(localTx.getNodeById(batch.ids[i]), (I) batch.inputs[i], (R) result)) {
+              log.info("Node id=%d changed since it was read, skipped", batch.ids[i]);
+              failed++;
+            }
+          } catch (NotFoundException e) { // deleted after it was read
+            failed++;
+          }
+        }
+      }
+      localTx.commit();
+    }
+    return failed;
+  }
+
+  private static long checkAscending(final long[] ids, long previousId) {
+    for (long id: ids) {
+      if (id <= previousId) {
+        throw new IllegalStateException(String.format("Node ids are not ascending, id=%d after id=%d", id, previousId));
+      }
+      previousId = id;
+    }
+    return previousId;
+  }
+
+  private static Batch take(final BlockingQueue<Batch> queue) {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return END;
+    }
+  }
+
+  private static ThreadFactory daemon(final String name) {
+    return runnable -> {
+      final Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Node ids of a batch with their inputs and the computed results, inputs are kept for the check of the writer
+   */
+  private static final class Batch {
+    final long sequence;
+    final long[] ids;
+    final Object[] inputs;
+    final Object[] results;
+
+    Batch(long sequence, long[] ids, Object[] inputs) {
+      this.sequence = sequence;
+      this.ids = ids;
+      this.inputs = inputs;
+      this.results = new Object[inputs.length];
+    }
+  }
+}
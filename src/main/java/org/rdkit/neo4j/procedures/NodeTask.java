@@ -0,0 +1,56 @@
+package org.rdkit.neo4j.procedures;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.graphdb.Node;
+
+import java.util.function.Function;
+
+/**
+ * Work of a batch job on a single node, split into the stages of {@link NodeBatchPipeline}
+ *
+ * @param <I> - input read from the node, e.g. `mdlmol`
+ * @param <R> - computed result, e.g. {@link org.rdkit.neo4j.models.NodeParameters}
+ */
+interface NodeTask<I, R> {
+
+  /**
+   * Read the input of the node, executed by the reader within the scan transaction
+   *
+   * @param node to read
+   * @return input, null if the node does not need any work
+   */
+  I read(Node node);
+
+  /**
+   * Create the computation of a worker, executed outside of any transaction
+   * Each worker thread creates its own computation, so it may use non thread-safe resources (e.g. a {@link org.rdkit.neo4j.utils.Converter})
+   *
+   * @return function from input to result, throws an exception if the node can not be processed
+   */
+  Function<I, R> createWorker();
+
+  /**
+   * Apply the result, executed by the writer within a batch transaction
+   * The node may have been changed since it was read, a result computed from an outdated input must not be applied.
+   *
+   * @param node to update
+   * @param input read from the node by the reader
+   * @param result computed for the node
+   * @return false, if the node was not updated because its input changed, the node is counted as failed
+   */
+  boolean write(Node node, I input, R result);
+}
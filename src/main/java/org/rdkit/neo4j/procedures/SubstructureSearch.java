@@ -26,8 +26,11 @@ import org.neo4j.procedure.Mode;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 import org.neo4j.procedure.UserFunction;
+import org.rdkit.neo4j.metrics.LatencyHistogram;
+import org.rdkit.neo4j.metrics.PluginMetrics;
 import org.rdkit.neo4j.models.Constants;
 import org.rdkit.neo4j.models.LuceneQuery;
+import org.rdkit.neo4j.models.NodeFields;
 import org.rdkit.neo4j.utils.Converter;
 import org.rdkit.neo4j.utils.RWMolCloseable;
 
@@ -43,7 +46,8 @@ import java.util.stream.Stream;
  * todo: remove destroyIndex ?
  */
 public class SubstructureSearch extends BaseProcedure {
-  private static final Converter converter = Converter.createDefault(); // default converter is used for SSS
+  static final String SMILES_PROCEDURE = "org.rdkit.search.substructure.smiles";
+  static final String MOL_PROCEDURE = "org.rdkit.search.substructure.mol";
 
   /**
    * Procedure builts property index for label {@link Constants#Chemical} on {@link #canonicalSmilesProperty} property
@@ -69,6 +73,7 @@ public class SubstructureSearch extends BaseProcedure {
 
     tx.execute(String.format("DROP INDEX %s_%s IF EXISTS", Constants.Chemical.getValue(), canonicalSmilesProperty));
     tx.execute(String.format("DROP INDEX %s", indexName));
+    context().getMigratedIndexes().remove(indexName);
   }
 
   /**
@@ -81,13 +86,14 @@ public class SubstructureSearch extends BaseProcedure {
    * @param sanitize
    * @return obtained nodes
    */
-  @Procedure(name = "org.rdkit.search.substructure.smiles", mode = Mode.READ)
+  @Procedure(name = SMILES_PROCEDURE, mode = Mode.READ)
   @Description("RDKit substructure search based on `smiles` value")
   public Stream<NodeSSSResult> substructureSearchSmiles(@Name("label") List<String> labelNames, @Name("smiles") String smiles,
                                                         @Name(value="sanitize", defaultValue="true") boolean sanitize) {
     log.info("Substructure search smiles started :: label=%s, smiles=%s", labelNames, smiles);
     checkIndexExistence(labelNames, Constants.IndexName.getValue()); // if index exists, then the values are
 
+    final long start = System.nanoTime();
     RWMol query;
     try {
       query = RWMol.MolFromSmiles(smiles,0, sanitize); // todo: it is unknown when the query object is freed
@@ -96,7 +102,8 @@ public class SubstructureSearch extends BaseProcedure {
     } catch (Exception e) {
       throw new IllegalArgumentException("Unable to convert specified smiles");
     }
-    return findSSCandidates(query, sanitize);
+    context().getMetrics().record(SMILES_PROCEDURE, PluginMetrics.Stage.parse, start);
+    return findSSCandidates(query, sanitize, SMILES_PROCEDURE, start);
   }
 
   /**
@@ -108,15 +115,17 @@ public class SubstructureSearch extends BaseProcedure {
    * @param mol - mdlmol block value
    * @return obtained nodes
    */
-  @Procedure(name = "org.rdkit.search.substructure.mol", mode = Mode.READ)
+  @Procedure(name = MOL_PROCEDURE, mode = Mode.READ)
   @Description("RDKit substructure search based on `mol` value")
   public Stream<NodeSSSResult> substructureSearchMol(@Name("label") List<String> labelNames, @Name("mol") String mol,
                                                      @Name(value="sanitize", defaultValue="true") boolean sanitize) {
     log.info("Substructure search smiles started :: label=%s, mdlmol=%s", labelNames, mol);
     checkIndexExistence(labelNames, Constants.IndexName.getValue()); // if index exists, then the values are
 
+    final long start = System.nanoTime();
     ROMol query = createBlockedROMolFromMol(mol);
-    return findSSCandidates(query, sanitize);
+    context().getMetrics().record(MOL_PROCEDURE, PluginMetrics.Stage.parse, start);
+    return findSSCandidates(query, sanitize, MOL_PROCEDURE, start);
   }
 
 
@@ -182,37 +191,70 @@ public class SubstructureSearch extends BaseProcedure {
 
   /**
    * Method queries fulltext index, returns fingerprint matches and filters by substruct match
+   * Latencies of the stages are recorded under the procedure name, the total when the result is closed
+   *
    * @param query RWMol
    * @param sanitize
+   * @param procedure - name of the calling procedure
+   * @param start - {@link System#nanoTime()} at the start of the procedure
    * @return stream of chemical structures with substruct match
    */
-  private Stream<NodeSSSResult> findSSCandidates(ROMol query, boolean sanitize) {
+  private Stream<NodeSSSResult> findSSCandidates(ROMol query, boolean sanitize, final String procedure, final long start) {
+    final PluginMetrics metrics = context().getMetrics();
+    long stage = System.nanoTime();
     query.updatePropertyCache();
-    final LuceneQuery luceneQuery = converter.getLuceneSSSQuery(query, sanitize);
+    final LuceneQuery luceneQuery = context().getSearchConverter().getLuceneSSSQuery(query, sanitize);
+    stage = metrics.record(procedure, PluginMetrics.Stage.fingerprint, stage);
 
     // added mdlmol as a returned item as sometimes it fails (probably reduces speed)
     Result result = tx.execute("CALL db.index.fulltext.queryNodes($index, $query) "
             + "YIELD node "
             + "RETURN node.canonical_smiles as canonical_smiles, node.fp_ones as fp_ones, node.preferred_name as name, node.luri as luri",
-        MapUtil.map("index", indexName, "query", luceneQuery.getLuceneQuery()));
+        MapUtil.map("index", indexName, "query", fulltextQuery(indexName, fingerprintProperty, luceneQuery)));
+    // the result is lazy, the fulltext query runs when the first row is pulled
+    result.hasNext();
+    metrics.record(procedure, PluginMetrics.Stage.query, stage);
+    final LatencyHistogram verify = metrics.histogram(procedure, PluginMetrics.Stage.verify);
     return result.stream()
         .filter(map -> {
-          final String smiles = (String) map.get("canonical_smiles");
-          try (RWMolCloseable candidate = RWMolCloseable.from(RWMol.MolFromSmiles(smiles, 0, sanitize))) {
-            candidate.updatePropertyCache(false);
-            return candidate.hasSubstructMatch(query);
-          } catch (Exception e) {
-            log.error("Failed to convert object with smiles=%s, convert using mdmol", smiles);
-            final String mdlmol = (String) tx.findNode(Label.label("Chemical"), canonicalSmilesProperty, smiles).getProperty("mdlmol"); // cheaper solution, as it is very rare
-            try (RWMolCloseable molCandidate = RWMolCloseable.from(RWMol.MolFromMolBlock(mdlmol))) { // todo: is there any speed improvements?
-              molCandidate.updatePropertyCache(false);
-              return molCandidate.hasSubstructMatch(query);
-            }
+          final long verifying = System.nanoTime();
+          try {
+            return hasSubstructMatch(map, query, sanitize);
+          } finally {
+            verify.record(System.nanoTime() - verifying);
           }
         })
 //        .parallel()
         .map(map -> new NodeSSSResult(map, luceneQuery.getPositiveBits()))
-        .sorted(Comparator.comparingLong(n -> n.score));
+        .sorted(Comparator.comparingLong(n -> n.score))
+        .onClose(() -> metrics.record(procedure, PluginMetrics.Stage.total, start));
+  }
+
+  /**
+   * Method checks a candidate of the fulltext index, a candidate which can not be parsed from its canonical smiles
+   * is parsed from its mdlmol or, if `mdlmol` is not stored, from its smiles; a candidate without either is skipped
+   */
+  private boolean hasSubstructMatch(final Map<String, Object> map, final ROMol query, final boolean sanitize) {
+    final String smiles = (String) map.get("canonical_smiles");
+    try (RWMolCloseable candidate = RWMolCloseable.from(RWMol.MolFromSmiles(smiles, 0, sanitize))) {
+      candidate.updatePropertyCache(false);
+      return candidate.hasSubstructMatch(query);
+    } catch (Exception e) {
+      log.error("Failed to convert object with smiles=%s, convert using mdmol", smiles);
+      final Node node = tx.findNode(Label.label("Chemical"), canonicalSmilesProperty, smiles); // cheaper solution, as it is very rare
+      final Object mdlmol = node == null ? null : node.getProperty(NodeFields.MdlMol.getValue(), null);
+      final Object source = node == null ? null : node.getProperty(NodeFields.Smiles.getValue(), null);
+      if (mdlmol == null && source == null) {
+        log.warn("Candidate with smiles=%s has neither mdlmol nor smiles, skipped", smiles);
+        return false;
+      }
+      try (RWMolCloseable molCandidate = RWMolCloseable.from(mdlmol != null // todo: is there any speed improvements?
+          ? RWMol.MolFromMolBlock((String) mdlmol)
+          : RWMol.MolFromSmiles((String) source, 0, sanitize))) {
+        molCandidate.updatePropertyCache(false);
+        return molCandidate.hasSubstructMatch(query);
+      }
+    }
   }
 
   /**
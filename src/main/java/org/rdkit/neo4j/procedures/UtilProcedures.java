@@ -16,9 +16,11 @@ package org.rdkit.neo4j.procedures;
  */
 
 import org.RDKit.RWMol;
+import org.neo4j.graphdb.Node;
 import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.UserFunction;
+import org.rdkit.neo4j.models.NodeFields;
 import org.rdkit.neo4j.utils.Converter;
 import org.rdkit.neo4j.utils.RWMolCloseable;
 
@@ -31,4 +33,43 @@ public class UtilProcedures extends BaseProcedure {
       return Converter.molToSVG(mol);
     }
   }
+
+  /**
+   * Method returns a property of a chemical structure node
+   * Properties skipped during conversion (see `server.rdkit.conversion.optional_fields`) are computed from the node structure,
+   * the computed value is not stored
+   *
+   * @param node - with `mdlmol` or `smiles` property
+   * @param field - name of the property, one of {@link NodeFields}
+   * @param sanitize - sanitize the structure
+   * @return stored or computed value, null if the node has no structure
+   */
+  @UserFunction(name = "org.rdkit.utils.field")
+  @Description("RDKit function returns a property of a node, a property skipped during conversion is computed on demand from `mdlmol` or `smiles`")
+  public Object computeField(@Name("node") final Node node, @Name("field") final String field, @Name(value = "sanitize", defaultValue = "true") boolean sanitize) {
+    final NodeFields nodeField;
+    try {
+      nodeField = NodeFields.from(field);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format("Unknown field=%s", field));
+    }
+
+    if (node.hasProperty(field)) {
+      return node.getProperty(field);
+    }
+
+    final RWMol rwmol;
+    if (node.hasProperty(NodeFields.MdlMol.getValue())) {
+      rwmol = RWMol.MolFromMolBlock((String) node.getProperty(NodeFields.MdlMol.getValue()), sanitize);
+    } else if (node.hasProperty(NodeFields.Smiles.getValue())) {
+      rwmol = RWMol.MolFromSmiles((String) node.getProperty(NodeFields.Smiles.getValue()), 0, sanitize);
+    } else {
+      return null;
+    }
+
+    try (RWMolCloseable mol = RWMolCloseable.from(rwmol)) {
+      mol.updatePropertyCache(false);
+      return Converter.computeField(mol, nodeField);
+    }
+  }
 }
@@ -0,0 +1,654 @@
+package org.rdkit.neo4j.store;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Packed fingerprints of a property with their node ids, stored in a sidecar file and memory-mapped (off-heap)
+ *
+ * Data file `property.fps`: header (magic, version, words per fingerprint, amount of records),
+ * followed by records of node id, popcount and the fingerprint words.
+ *
+ * Journal file `property.journal`: fingerprints of nodes changed after the data file was written, as records of node id,
+ * popcount and words, a removed fingerprint has the popcount -1 and no words. The records of a transaction are flushed
+ * before it commits, its transaction id after it committed (see {@link Journal}). Journaled records are kept in an off-heap
+ * overlay, the latest record of a node replaces its stored fingerprint.
+ * On start the journal is replayed up to the last committed transaction id of the database, see {@link #open(Path, String, long)}.
+ */
+public class FingerprintStore implements AutoCloseable {
+  static final String DATA_SUFFIX = ".fps";
+  static final String JOURNAL_SUFFIX = ".journal";
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private static final int MAGIC = 0x52444b46; // RDKF
+  private static final int VERSION = 3;
+  private static final int HEADER_SIZE = 24;
+  private static final long CLOSED = Long.MIN_VALUE;
+  private static final long PREPARED = Long.MIN_VALUE + 1;
+  private static final long COMMITTED = Long.MIN_VALUE + 2;
+  private static final long ROLLED_BACK = Long.MIN_VALUE + 3;
+  private static final long REMOVED = -1;
+
+  private final String property;
+  private final int words;
+  private final long count;
+  private final int recordSize;
+  private final int recordsPerSegment;
+  private final MappedByteBuffer[] segments;
+  private final Journal journal;
+
+  private FingerprintStore(String property, int words, long count, MappedByteBuffer[] segments, Journal journal) {
+    this.property = property;
+    this.words = words;
+    this.count = count;
+    this.recordSize = recordSize(words);
+    this.recordsPerSegment = Integer.MAX_VALUE / recordSize;
+    this.segments = segments;
+    this.journal = journal;
+  }
+
+  /**
+   * Open the store of a property written by {@link Builder}, the journal is replayed up to `txId`
+   * The store is not reused, if a journaled transaction was prepared but not resolved (it may be committed by the database
+   * before a crash), was committed after `txId`, or if the store was closed cleanly before other transactions were committed.
+   *
+   * @param directory - of the sidecar files
+   * @param property - fingerprint property
+   * @param txId - last committed transaction id of the database
+   * @return store, null if the files are missing, invalid or the journal does not cover the committed transactions
+   * @throws IOException if any
+   */
+  static FingerprintStore open(final Path directory, final String property, final long txId) throws IOException {
+    final Path data = directory.resolve(property + DATA_SUFFIX);
+    final Path journalPath = directory.resolve(property + JOURNAL_SUFFIX);
+    if (!Files.exists(data) || !Files.exists(journalPath)) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(data, StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      channel.read(header, 0);
+      header.flip();
+      if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+        return null;
+      }
+      final int words = header.getInt();
+      header.getInt();
+      final long count = header.getLong();
+      if (channel.size() != HEADER_SIZE + count * recordSize(words)) {
+        return null;
+      }
+
+      final Journal journal = new Journal(words);
+      final long length = journal.replay(journalPath, txId);
+      if (length < 0) {
+        return null;
+      }
+      // the trailer of a clean close is removed
+      journal.open(journalPath, length);
+      return new FingerprintStore(property, words, count, map(channel, words, count), journal);
+    }
+  }
+
+  /**
+   * @return journal of fingerprints of nodes changed by transactions, they replace the stored fingerprints
+   */
+  Journal getJournal() {
+    return journal;
+  }
+
+  /**
+   * @return amount of journaled records, the store is rebuilt when there are too many of them
+   */
+  public int getJournaled() {
+    return journal.size;
+  }
+
+  /**
+   * @return true, if the overlay is full and changes are lost, the store must not be used anymore
+   */
+  public boolean isStale() {
+    return journal.overflow;
+  }
+
+  /**
+   * Compute the Tanimoto similarity of all stored fingerprints, journaled fingerprints replace the stored ones
+   *
+   * @param query - fingerprint words
+   * @param queryOnes - popcount of the query
+   * @param threshold - lower bound of the similarity, exclusive
+   * @return matches, unordered
+   */
+  public List<Hit> search(final long[] query, final long queryOnes, final double threshold) {
+    final long low = (long) Math.ceil(queryOnes * threshold - 1e-9);
+    final long high = threshold > 0 ? (long) Math.floor(queryOnes / threshold + 1e-9) : Long.MAX_VALUE;
+    final int length = Math.min(query.length, words);
+
+    final List<Hit> hits = new ArrayList<>();
+    for (long i = 0; i < count; i++) {
+      final ByteBuffer segment = segments[(int) (i / recordsPerSegment)];
+      final int offset = (int) (i % recordsPerSegment) * recordSize;
+      final long ones = segment.getLong(offset + Long.BYTES);
+      if (ones < low || ones > high) {
+        continue;
+      }
+      final long nodeId = segment.getLong(offset);
+      if (journal.contains(nodeId)) {
+        continue;
+      }
+      final double similarity = similarity(query, queryOnes, length, segment, offset, ones);
+      if (similarity > threshold) {
+        hits.add(new Hit(nodeId, similarity));
+      }
+    }
+    journal.search(query, queryOnes, length, low, high, threshold, hits);
+    return hits;
+  }
+
+  /**
+   * Read the mapped file into the page cache of the operating system, e.g. during warm-up
+   */
+  public void load() {
+    for (MappedByteBuffer segment: segments) {
+      segment.load();
+    }
+  }
+
+  public String getProperty() {
+    return property;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public int getWords() {
+    return words;
+  }
+
+  /**
+   * Close the store after a clean shutdown, it is reused on start if the database did not commit anything since
+   * A store which is not closed is reused after its journal is replayed, see {@link #open(Path, String, long)}.
+   *
+   * @param txId - last committed transaction id
+   */
+  void close(final long txId) {
+    journal.close(txId);
+  }
+
+  /**
+   * Close a replaced store, its files belong to the replacing store
+   */
+  @Override
+  public void close() {
+    journal.close(null);
+  }
+
+  private static double similarity(final long[] query, final long queryOnes, final int length, final ByteBuffer buffer, final int offset,
+                                   final long ones) {
+    long common = 0;
+    for (int w = 0; w < length; w++) {
+      common += Long.bitCount(query[w] & buffer.getLong(offset + (2 + w) * Long.BYTES));
+    }
+    return 1.0d * common / (queryOnes + ones - common);
+  }
+
+  private static int recordSize(final int words) {
+    return (2 + words) * Long.BYTES;
+  }
+
+  private static MappedByteBuffer[] map(final FileChannel channel, final int words, final long count) throws IOException {
+    final int recordSize = recordSize(words);
+    final long recordsPerSegment = Integer.MAX_VALUE / recordSize;
+    final int segmentCount = (int) ((count + recordsPerSegment - 1) / recordsPerSegment);
+    final MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+    for (int s = 0; s < segmentCount; s++) {
+      final long records = Math.min(recordsPerSegment, count - s * recordsPerSegment);
+      segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + s * recordsPerSegment * recordSize, records * recordSize);
+    }
+    return segments;
+  }
+
+  /**
+   * Match of {@link #search(long[], long, double)}
+   */
+  public static class Hit {
+    private final long nodeId;
+    private final double similarity;
+
+    public Hit(long nodeId, double similarity) {
+      this.nodeId = nodeId;
+      this.similarity = similarity;
+    }
+
+    public long getNodeId() {
+      return nodeId;
+    }
+
+    public double getSimilarity() {
+      return similarity;
+    }
+  }
+
+  /**
+   * Writes a new store into temporary files, fingerprints of nodes changed while the store is written are journaled
+   */
+  static class Builder {
+    private final Path directory;
+    private final String property;
+    private final int words;
+    private final Path data;
+    private final DataOutputStream out;
+    private final Journal journal;
+    private long count;
+    private boolean aborted;
+    private boolean finished;
+
+    Builder(Path directory, String property, int words) throws IOException {
+      this.directory = directory;
+      this.property = property;
+      this.words = words;
+      Files.createDirectories(directory);
+      this.data = directory.resolve(property + DATA_SUFFIX + TMP_SUFFIX);
+      this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(data)));
+      this.out.write(new byte[HEADER_SIZE]);
+      this.journal = new Journal(words);
+      this.journal.open(directory.resolve(property + JOURNAL_SUFFIX + TMP_SUFFIX), 0);
+    }
+
+    /**
+     * @return journal of fingerprints of nodes changed while the store is written, they replace the scanned fingerprints
+     */
+    Journal getJournal() {
+      return journal;
+    }
+
+    /**
+     * Append the fingerprint of a node
+     *
+     * @throws IllegalArgumentException if the fingerprint is longer than the store
+     */
+    synchronized void add(final long nodeId, final BitSet fingerprint) throws IOException {
+      checkOpen();
+      final long[] fingerprintWords = fingerprint.toLongArray();
+      if (fingerprintWords.length > words) {
+        throw new IllegalArgumentException(String.format("Fingerprint of node id=%d has %d bits, store=%s holds %d",
+            nodeId, fingerprint.length(), property, words * Long.SIZE));
+      }
+      out.writeLong(nodeId);
+      out.writeLong(fingerprint.cardinality());
+      for (int w = 0; w < words; w++) {
+        out.writeLong(w < fingerprintWords.length ? fingerprintWords[w] : 0L);
+      }
+      count++;
+    }
+
+    /**
+     * Replace the files of the property and map the new store
+     */
+    synchronized FingerprintStore finish() throws IOException {
+      checkOpen();
+      out.close();
+      try (FileChannel channel = FileChannel.open(data, StandardOpenOption.WRITE)) {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(words).putInt(0).putLong(count).flip();
+        channel.write(header, 0);
+        channel.force(true);
+      }
+      final Path target = directory.resolve(property + DATA_SUFFIX);
+      Files.move(data, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      journal.moveTo(directory.resolve(property + JOURNAL_SUFFIX));
+      finished = true;
+
+      try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ)) {
+        return new FingerprintStore(property, words, count, map(channel, words, count), journal);
+      }
+    }
+
+    /**
+     * Drop the temporary files of a failed or cancelled build, a finished build is not affected
+     */
+    synchronized void abort() {
+      if (aborted || finished) {
+        return;
+      }
+      aborted = true;
+      try {
+        out.close();
+        journal.close(null);
+        Files.deleteIfExists(data);
+        Files.deleteIfExists(directory.resolve(property + JOURNAL_SUFFIX + TMP_SUFFIX));
+      } catch (IOException e) {
+        // temporary files are replaced by the next build
+      }
+    }
+
+    private void checkOpen() throws IOException {
+      if (aborted) {
+        throw new IOException(String.format("Build of store=%s is aborted", property));
+      }
+    }
+  }
+
+  /**
+   * Append-only list of changed fingerprints, kept in an off-heap overlay as well
+   * The overlay holds records of node id, popcount and words, {@link #latest} points to the last record of a node.
+   * Records are never overwritten, so searches read them without locking while commits append.
+   *
+   * The file is written ahead: the records of a transaction are flushed before the transaction commits ({@link #prepare(Map)}),
+   * its transaction id once it is committed ({@link #commit(long, long)}) and the overlay is updated then.
+   * A prepared transaction without commit or rollback may have been committed by the database before a crash,
+   * such a journal is not replayed. Records are flushed to the operating system, not forced to the disk.
+   */
+  static class Journal {
+    private static final int INITIAL_RECORDS = 1024;
+
+    private final int words;
+    private final int recordSize;
+    private final int maxRecords;
+    private final Map<Long, Integer> latest = new ConcurrentHashMap<>();
+    private final Map<Long, List<Change>> prepared = new HashMap<>();
+    private volatile ByteBuffer records;
+    private volatile int size;
+    private volatile boolean overflow;
+    private long sequence;
+    private Path path;
+    private DataOutputStream out;
+
+    Journal(int words) {
+      this.words = words;
+      this.recordSize = recordSize(words);
+      this.maxRecords = Integer.MAX_VALUE / recordSize;
+      this.records = ByteBuffer.allocateDirect(Math.min(INITIAL_RECORDS, maxRecords) * recordSize);
+    }
+
+    /**
+     * Append new records to the file, it is truncated to `length` before
+     */
+    void open(final Path path, final long length) throws IOException {
+      this.path = path;
+      final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      channel.truncate(Math.max(0, length));
+      channel.position(Math.max(0, length));
+      this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Replay the transactions of the file committed up to `txId` into the overlay
+     *
+     * @return length of the replayed file without the trailer of a clean close,
+     *         -1 if a transaction is not resolved or committed after `txId`, the file is cut,
+     *         or it was closed cleanly at another transaction id
+     */
+    synchronized long replay(final Path path, final long txId) throws IOException {
+      final Map<Long, List<Change>> pending = new HashMap<>();
+      long length = 0;
+      try (InputStream input = Files.newInputStream(path);
+           DataInputStream in = new DataInputStream(new BufferedInputStream(input))) {
+        while (true) {
+          final long marker;
+          try {
+            marker = in.readLong();
+          } catch (EOFException e) {
+            break;
+          }
+          if (marker == CLOSED) {
+            return in.readLong() == txId && pending.isEmpty() ? length : -1;
+          }
+          final long seq = in.readLong();
+          sequence = Math.max(sequence, seq);
+          if (marker == PREPARED) {
+            final long count = in.readLong();
+            final List<Change> changes = new ArrayList<>();
+            length += 3 * Long.BYTES;
+            for (long i = 0; i < count; i++) {
+              final long nodeId = in.readLong();
+              final long ones = in.readLong();
+              long[] fingerprint = null;
+              if (ones != REMOVED) {
+                fingerprint = new long[words];
+                for (int w = 0; w < words; w++) {
+                  fingerprint[w] = in.readLong();
+                }
+              }
+              changes.add(new Change(nodeId, fingerprint, ones));
+              length += (fingerprint == null ? 2 : 2 + words) * Long.BYTES;
+            }
+            pending.put(seq, changes);
+          } else if (marker == COMMITTED) {
+            final long committed = in.readLong();
+            final List<Change> changes = pending.remove(seq);
+            if (changes == null || committed > txId) {
+              return -1;
+            }
+            changes.forEach(change -> put(change.nodeId, change.fingerprint, change.ones));
+            length += 3 * Long.BYTES;
+          } else if (marker == ROLLED_BACK) {
+            pending.remove(seq);
+            length += 2 * Long.BYTES;
+          } else {
+            return -1;
+          }
+        }
+      } catch (EOFException e) {
+        // a block was cut by a crash
+        return -1;
+      }
+      return pending.isEmpty() ? length : -1;
+    }
+
+    boolean contains(final long nodeId) {
+      return latest.containsKey(nodeId);
+    }
+
+    /**
+     * Write the fingerprints changed by a transaction before it commits
+     * A fingerprint longer than the store is journaled as removed, its definition was changed and the store is dropped
+     *
+     * @param changes - fingerprints by node id, null if the node has no fingerprint (anymore)
+     * @return sequence number of the transaction in the journal
+     */
+    synchronized long prepare(final Map<Long, BitSet> changes) {
+      final long seq = ++sequence;
+      final List<Change> journaled = new ArrayList<>(changes.size());
+      for (Map.Entry<Long, BitSet> change: changes.entrySet()) {
+        final long[] bits = change.getValue() == null ? null : change.getValue().toLongArray();
+        final long[] fingerprint = bits == null || bits.length > words ? null : Arrays.copyOf(bits, words);
+        journaled.add(new Change(change.getKey(), fingerprint, fingerprint == null ? REMOVED : change.getValue().cardinality()));
+      }
+      prepared.put(seq, journaled);
+      if (out != null) {
+        try {
+          out.writeLong(PREPARED);
+          out.writeLong(seq);
+          out.writeLong(journaled.size());
+          for (Change change: journaled) {
+            out.writeLong(change.nodeId);
+            out.writeLong(change.ones);
+            if (change.fingerprint != null) {
+              for (long word: change.fingerprint) {
+                out.writeLong(word);
+              }
+            }
+          }
+          out.flush();
+        } catch (IOException e) {
+          // the transaction is not resolved in the journal, the store is rebuilt on start
+          closeQuietly();
+        }
+      }
+      return seq;
+    }
+
+    /**
+     * Publish the fingerprints of a committed transaction in the overlay and write its transaction id
+     */
+    synchronized void commit(final long seq, final long txId) {
+      final List<Change> changes = prepared.remove(seq);
+      if (changes == null) {
+        return;
+      }
+      changes.forEach(change -> put(change.nodeId, change.fingerprint, change.ones));
+      write(COMMITTED, seq, txId);
+    }
+
+    synchronized void rollback(final long seq) {
+      if (prepared.remove(seq) != null) {
+        write(ROLLED_BACK, seq);
+      }
+    }
+
+    /**
+     * Add a record to the overlay, the record is written before it is published by {@link #size}
+     */
+    synchronized void put(final long nodeId, final long[] fingerprint, final long ones) {
+      if (overflow) {
+        return;
+      }
+      final int index = size;
+      if (index == maxRecords) {
+        overflow = true;
+        return;
+      }
+      ByteBuffer buffer = records;
+      if ((index + 1) * recordSize > buffer.capacity()) {
+        final ByteBuffer grown = ByteBuffer.allocateDirect(Math.min(2 * (buffer.capacity() / recordSize), maxRecords) * recordSize);
+        grown.put(buffer.duplicate().position(0).limit(index * recordSize));
+        records = grown;
+        buffer = grown;
+      }
+      final int offset = index * recordSize;
+      buffer.putLong(offset, nodeId);
+      buffer.putLong(offset + Long.BYTES, ones);
+      for (int w = 0; w < words; w++) {
+        buffer.putLong(offset + (2 + w) * Long.BYTES, fingerprint == null ? 0L : fingerprint[w]);
+      }
+      latest.put(nodeId, index);
+      size = index + 1;
+    }
+
+    /**
+     * Add matches of the latest record of each node, a node changed during the search may be missed
+     */
+    void search(final long[] query, final long queryOnes, final int length, final long low, final long high, final double threshold,
+                final List<Hit> hits) {
+      final int count = size;
+      final ByteBuffer buffer = records;
+      for (int i = 0; i < count; i++) {
+        final int offset = i * recordSize;
+        final long ones = buffer.getLong(offset + Long.BYTES);
+        if (ones == REMOVED || ones < low || ones > high) {
+          continue;
+        }
+        final long nodeId = buffer.getLong(offset);
+        final Integer last = latest.get(nodeId);
+        if (last == null || last != i) {
+          continue;
+        }
+        final double similarity = similarity(query, queryOnes, length, buffer, offset, ones);
+        if (similarity > threshold) {
+          hits.add(new Hit(nodeId, similarity));
+        }
+      }
+    }
+
+    synchronized void moveTo(final Path target) throws IOException {
+      if (out == null) {
+        throw new IOException(String.format("Journal=%s is not writable", path));
+      }
+      out.flush();
+      Files.move(path, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      path = target;
+    }
+
+    synchronized void close(final Long txId) {
+      if (out == null) {
+        return;
+      }
+      try {
+        if (txId != null) {
+          out.writeLong(CLOSED);
+          out.writeLong(txId);
+        }
+        out.close();
+      } catch (IOException e) {
+        // a journal without trailer is replayed
+      }
+      out = null;
+    }
+
+    private void write(final long... values) {
+      if (out == null) {
+        return;
+      }
+      try {
+        for (long value: values) {
+          out.writeLong(value);
+        }
+        out.flush();
+      } catch (IOException e) {
+        // the transaction is not resolved in the journal, the store is rebuilt on start
+        closeQuietly();
+      }
+    }
+
+    private void closeQuietly() {
+      try {
+        out.close();
+      } catch (IOException e) {
+        // already failed
+      }
+      out = null;
+    }
+  }
+
+  /**
+   * Journaled fingerprint of a node, null if it is removed
+   */
+  private static class Change {
+    private final long nodeId;
+    private final long[] fingerprint;
+    private final long ones;
+
+    Change(long nodeId, long[] fingerprint, long ones) {
+      this.nodeId = nodeId;
+      this.fingerprint = fingerprint;
+      this.ones = ones;
+    }
+  }
+}
@@ -0,0 +1,505 @@
+package org.rdkit.neo4j.store;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventListenerAdapter;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.storageengine.api.TransactionIdStore;
+import org.rdkit.fingerprint.FingerprintSettings;
+import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.FingerprintDefinition;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.TokenEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fingerprint stores of a database (`server.rdkit.fingerprint.store`), see {@link FingerprintStore}
+ *
+ * Stores are mapped on start, their journals are replayed up to the last committed transaction of the database.
+ * A missing or stale store is built in the background on first use, the similarity search uses the fulltext index meanwhile.
+ * The manager listens to transactions and journals the fingerprints of nodes whose structure, labels or fingerprint change
+ * before commit, the search reads them from the off-heap overlay of the store after commit;
+ * when too many records are journaled, the store is rebuilt.
+ */
+public class FingerprintStoreManager extends TransactionEventListenerAdapter<Object> {
+  private static final Logger logger = LoggerFactory.getLogger(FingerprintStoreManager.class);
+
+  private static final int MIN_REBUILD_JOURNALED = 10_000;
+  private static final int DEFAULT_WORDS = 4; // fingerprints without `numBits`, e.g. 167 MACCS keys
+  private static final long COMMIT_TIMEOUT_MILLIS = 60_000;
+
+  private final String databaseName;
+  private final GraphDatabaseService db;
+  private final Path directory;
+  private final Map<String, FingerprintStore> stores = new ConcurrentHashMap<>();
+  private final Map<String, FingerprintStore.Builder> builders = new ConcurrentHashMap<>();
+  private final Map<String, FingerprintDefinition> definitions = new ConcurrentHashMap<>();
+  // transactions between beforeCommit and afterCommit (or afterRollback)
+  private final Set<CommitState> committing = ConcurrentHashMap.newKeySet();
+
+  private ExecutorService executor;
+
+  /**
+   * @param databaseName - name of the database the stores belong to
+   * @param db - database
+   * @param directory - of the sidecar files of the database
+   */
+  public FingerprintStoreManager(String databaseName, GraphDatabaseService db, Path directory) {
+    this.databaseName = databaseName;
+    this.db = db;
+    this.directory = directory;
+  }
+
+  /**
+   * Map the stores whose journals cover the committed transactions, stale files are deleted
+   */
+  public synchronized void start() {
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "rdkit-store-" + databaseName);
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    final long txId = lastCommittedTxId();
+    if (txId < 0) {
+      return;
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      final Set<String> properties = files.map(path -> path.getFileName().toString())
+          .filter(name -> name.endsWith(FingerprintStore.DATA_SUFFIX))
+          .map(name -> name.substring(0, name.length() - FingerprintStore.DATA_SUFFIX.length()))
+          .collect(Collectors.toSet());
+      for (String property: properties) {
+        final FingerprintStore store = FingerprintStore.open(directory, property, txId);
+        if (store != null) {
+          stores.put(property, store);
+          logger.info("Fingerprint store of property={} mapped, records={}, journaled={}", property, store.getCount(), store.getJournaled());
+        } else {
+          logger.info("Fingerprint store of property={} is stale, it is rebuilt on first use", property);
+          delete(property);
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("Unable to open fingerprint stores of database={}: {}", databaseName, e.getMessage());
+    }
+  }
+
+  /**
+   * Delete the stores of a database which is started without stores, their journals would miss its transactions
+   *
+   * @param directory - of the sidecar files of the database
+   */
+  public static void deleteAll(final Path directory) {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file: files.collect(Collectors.toList())) {
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException e) {
+      logger.warn("Unable to delete fingerprint stores in {}: {}", directory, e.getMessage());
+    }
+  }
+
+  /**
+   * Close all stores, they are reused on the next start
+   */
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+    builders.values().forEach(FingerprintStore.Builder::abort);
+    builders.clear();
+
+    final long txId = lastCommittedTxId();
+    stores.values().forEach(store -> {
+      if (txId < 0) {
+        store.close();
+      } else {
+        store.close(txId);
+      }
+    });
+    stores.clear();
+    definitions.clear();
+  }
+
+  /**
+   * Return the store of a registered fingerprint, a missing store or a store with too many journaled records is (re)built in the background
+   *
+   * @param definition - registered fingerprint
+   * @return store or null, if it is not built yet or its overlay is full
+   */
+  public FingerprintStore get(final FingerprintDefinition definition) {
+    definitions.put(definition.getProperty(), definition);
+    final FingerprintStore store = stores.get(definition.getProperty());
+    if (store == null || store.isStale() || store.getJournaled() > Math.max(MIN_REBUILD_JOURNALED, store.getCount() / 10)) {
+      build(definition);
+    }
+    return store == null || store.isStale() ? null : store;
+  }
+
+  /**
+   * Start a build of the store in the background, unless it is already being built
+   *
+   * @param definition - registered fingerprint
+   */
+  public synchronized void build(final FingerprintDefinition definition) {
+    final String property = definition.getProperty();
+    if (executor == null || builders.containsKey(property)) {
+      return;
+    }
+    final FingerprintStore.Builder builder;
+    try {
+      builder = new FingerprintStore.Builder(directory, property, words(definition.getSettings()));
+    } catch (IOException e) {
+      logger.warn("Unable to create fingerprint store of property={}: {}", property, e.getMessage());
+      return;
+    }
+    // registered before the scan, so nodes changed during the scan are journaled; the scan waits for transactions which missed it
+    definitions.put(property, definition);
+    builders.put(property, builder);
+    executor.execute(() -> scan(definition, builder));
+  }
+
+  /**
+   * Remove the store of a fingerprint, e.g. after it is unregistered, a running build is aborted
+   *
+   * @param property - fingerprint property
+   */
+  public synchronized void drop(final String property) {
+    final FingerprintStore.Builder builder = builders.remove(property);
+    if (builder != null) {
+      builder.abort();
+    }
+    final FingerprintStore store = stores.remove(property);
+    if (store != null) {
+      store.close();
+    }
+    definitions.remove(property);
+    delete(property);
+  }
+
+  /**
+   * Collect the fingerprints of nodes whose structure, labels or fingerprint change and journal them in the stores and builders,
+   * they are published after commit. The handler writes fingerprints before this listener, so the node properties hold the values to be committed.
+   * Fingerprints whose definition is removed or changed are collected and dropped after commit.
+   *
+   * The transaction is registered as committing before the stores and builders are read,
+   * so a build started meanwhile waits for it before the scan, see {@link #awaitCommitting()}.
+   *
+   * {@inheritDoc}
+   */
+  @Override
+  public Object beforeCommit(TransactionData data, Transaction transaction, GraphDatabaseService databaseService) {
+    final CommitState state = new CommitState();
+    committing.add(state);
+    try {
+      collect(data, transaction, state);
+    } catch (RuntimeException e) {
+      // neither afterCommit nor afterRollback is called
+      state.prepared.forEach(FingerprintStore.Journal::rollback);
+      committing.remove(state);
+      throw e;
+    }
+    return state;
+  }
+
+  private void collect(final TransactionData data, final Transaction transaction, final CommitState state) {
+    if (stores.isEmpty() && builders.isEmpty() && definitions.isEmpty()) {
+      return;
+    }
+    final Set<String> dropped = changedDefinitions(data);
+    state.dropped = dropped;
+    final Set<Node> changed = new HashSet<>();
+    final Set<Long> deleted = new HashSet<>();
+    data.createdNodes().forEach(changed::add);
+    data.deletedNodes().forEach(node -> deleted.add(node.getId()));
+    for (LabelEntry entry: data.assignedLabels()) {
+      changed.add(entry.node());
+    }
+    for (LabelEntry entry: data.removedLabels()) {
+      changed.add(entry.node());
+    }
+    for (PropertyEntry<Node> entry: data.assignedNodeProperties()) {
+      if (isTracked(entry.key())) {
+        changed.add(entry.entity());
+      }
+    }
+    for (PropertyEntry<Node> entry: data.removedNodeProperties()) {
+      if (isTracked(entry.key())) {
+        changed.add(entry.entity());
+      }
+    }
+    changed.removeIf(node -> deleted.contains(node.getId()));
+    if (changed.isEmpty() && deleted.isEmpty()) {
+      return;
+    }
+
+    final Set<String> properties = new HashSet<>(definitions.keySet());
+    properties.addAll(stores.keySet());
+    properties.addAll(builders.keySet());
+    properties.removeAll(dropped);
+    for (String property: properties) {
+      final FingerprintDefinition definition = definition(property, transaction);
+      if (definition == null) {
+        continue;
+      }
+      final Map<Long, BitSet> fingerprints = new HashMap<>();
+      deleted.forEach(nodeId -> fingerprints.put(nodeId, null));
+      for (Node node: changed) {
+        final Object value = node.getProperty(property, null);
+        fingerprints.put(node.getId(), value instanceof String && definition.appliesTo(node) ? decode((String) value) : null);
+      }
+      final FingerprintStore store = stores.get(property);
+      if (store != null) {
+        state.prepared.put(store.getJournal(), store.getJournal().prepare(fingerprints));
+      }
+      final FingerprintStore.Builder builder = builders.get(property);
+      if (builder != null) {
+        state.prepared.put(builder.getJournal(), builder.getJournal().prepare(fingerprints));
+      }
+    }
+  }
+
+  /**
+   * Publish the fingerprints changed by the transaction with its transaction id, then drop stores of fingerprints
+   * which were unregistered or registered with other settings
+   *
+   * {@inheritDoc}
+   */
+  @Override
+  public void afterCommit(TransactionData data, Object state, GraphDatabaseService databaseService) {
+    final CommitState commit = (CommitState) state;
+    try {
+      commit.prepared.forEach((journal, seq) -> journal.commit(seq, data.getTransactionId()));
+      commit.dropped.forEach(this::drop);
+    } finally {
+      committing.remove(commit);
+    }
+  }
+
+  @Override
+  public void afterRollback(TransactionData data, Object state, GraphDatabaseService databaseService) {
+    final CommitState commit = (CommitState) state;
+    commit.prepared.forEach(FingerprintStore.Journal::rollback);
+    committing.remove(commit);
+  }
+
+  /**
+   * Wait for the transactions which passed beforeCommit before the builder of a scan was registered
+   * They may have missed the builder, so their changes are visible to the scan only once they are committed.
+   * Transactions which see the builder journal their changes in it.
+   *
+   * @throws IllegalStateException if a transaction does not finish in time, the build is aborted
+   */
+  private void awaitCommitting() throws InterruptedException {
+    final Set<CommitState> started = Set.copyOf(committing);
+    final long deadline = System.currentTimeMillis() + COMMIT_TIMEOUT_MILLIS;
+    while (started.stream().anyMatch(committing::contains)) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new IllegalStateException("transactions committed before the build did not finish");
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  /**
+   * @return definition of a fingerprint in use, null if it is not registered
+   */
+  private FingerprintDefinition definition(final String property, final Transaction transaction) {
+    FingerprintDefinition definition = definitions.get(property);
+    if (definition == null) {
+      // e.g. stores mapped on start before their first search
+      final Node node = transaction.findNode(Label.label(Constants.FingerprintRegistry.getValue()), FingerprintDefinition.PROPERTY, property);
+      if (node != null) {
+        definition = FingerprintDefinition.from(node);
+        definitions.put(property, definition);
+      }
+    }
+    return definition;
+  }
+
+  /**
+   * @return properties of registry nodes which are deleted or whose definition changes
+   */
+  private Set<String> changedDefinitions(final TransactionData data) {
+    final Label registryLabel = Label.label(Constants.FingerprintRegistry.getValue());
+    final Set<Long> deletedDefinitions = new HashSet<>();
+    for (LabelEntry entry: data.removedLabels()) {
+      if (entry.label().equals(registryLabel)) {
+        deletedDefinitions.add(entry.node().getId());
+      }
+    }
+    final Set<String> changed = new HashSet<>();
+    for (PropertyEntry<Node> entry: data.removedNodeProperties()) {
+      if (FingerprintDefinition.PROPERTY.equals(entry.key()) && deletedDefinitions.contains(entry.entity().getId())) {
+        changed.add((String) entry.previouslyCommittedValue());
+      }
+    }
+    for (PropertyEntry<Node> entry: data.assignedNodeProperties()) {
+      final Node node = entry.entity();
+      if (entry.previouslyCommittedValue() == null || Objects.deepEquals(entry.value(), entry.previouslyCommittedValue())
+          || data.isDeleted(node) || !node.hasLabel(registryLabel)) {
+        continue;
+      }
+      changed.add(FingerprintDefinition.PROPERTY.equals(entry.key())
+          ? (String) entry.previouslyCommittedValue()
+          : (String) node.getProperty(FingerprintDefinition.PROPERTY, null));
+    }
+    changed.remove(null);
+    return changed;
+  }
+
+  /**
+   * @return stores in use by property
+   */
+  public Map<String, FingerprintStore> getStores() {
+    return Map.copyOf(stores);
+  }
+
+  /**
+   * @param property - fingerprint property
+   * @return true, if the store of the property is being built
+   */
+  public boolean isBuilding(final String property) {
+    return builders.containsKey(property);
+  }
+
+  private boolean isTracked(final String key) {
+    return NodeFields.Smiles.getValue().equals(key) || NodeFields.MdlMol.getValue().equals(key)
+        || stores.containsKey(key) || builders.containsKey(key) || definitions.containsKey(key);
+  }
+
+  private void scan(final FingerprintDefinition definition, final FingerprintStore.Builder builder) {
+    final String property = definition.getProperty();
+    try {
+      final long start = System.currentTimeMillis();
+      awaitCommitting();
+      try (Transaction tx = db.beginTx()) {
+        // a search may request the build with a definition which was unregistered or replaced meanwhile
+        final Node registered = tx.findNode(Label.label(Constants.FingerprintRegistry.getValue()), FingerprintDefinition.PROPERTY, property);
+        if (registered == null || !definition.equals(FingerprintDefinition.from(registered))) {
+          logger.info("Fingerprint store of property={} is not built, the definition is not registered", property);
+          builder.abort();
+          return;
+        }
+        final Label first = Label.label(definition.getLabels().get(0));
+        try (ResourceIterator<Node> nodes = tx.findNodes(first)) {
+          while (nodes.hasNext()) {
+            final Node node = nodes.next();
+            final Object value = node.getProperty(property, null);
+            if (value instanceof String && definition.appliesTo(node)) {
+              builder.add(node.getId(), decode((String) value));
+            }
+          }
+        }
+        tx.commit();
+      }
+      final FingerprintStore store;
+      synchronized (this) {
+        // fails if the store was dropped or the manager stopped meanwhile, so a dropped store is never published
+        store = builder.finish();
+        final FingerprintStore previous = stores.put(property, store);
+        if (previous != null) {
+          previous.close();
+        }
+      }
+      logger.info("Fingerprint store of property={} built, records={}, millis={}", property, store.getCount(), System.currentTimeMillis() - start);
+    } catch (Exception e) {
+      logger.warn("Unable to build fingerprint store of property={}: {}", property, e.getMessage());
+      builder.abort();
+    } finally {
+      builders.remove(property, builder);
+    }
+  }
+
+  /**
+   * Decode a fingerprint property of any token encoding
+   *
+   * @param value - tokens separated by whitespace
+   * @return bits
+   */
+  public static BitSet decode(final String value) {
+    final BitSet bits = new BitSet();
+    if (!value.isEmpty()) {
+      for (String token: value.split(" ")) {
+        bits.set(TokenEncoding.decode(token));
+      }
+    }
+    return bits;
+  }
+
+  /**
+   * State passed from {@link #beforeCommit} to {@link #afterCommit}
+   */
+  private static class CommitState {
+    private final Map<FingerprintStore.Journal, Long> prepared = new HashMap<>();
+    private Set<String> dropped = Set.of();
+  }
+
+  private static int words(final FingerprintSettings settings) {
+    final int numBits = settings.getNumBits();
+    return numBits > 0 ? (numBits + Long.SIZE - 1) / Long.SIZE : DEFAULT_WORDS;
+  }
+
+  private void delete(final String property) {
+    try {
+      Files.deleteIfExists(directory.resolve(property + FingerprintStore.DATA_SUFFIX));
+      Files.deleteIfExists(directory.resolve(property + FingerprintStore.JOURNAL_SUFFIX));
+    } catch (IOException e) {
+      logger.warn("Unable to delete fingerprint store of property={}: {}", property, e.getMessage());
+    }
+  }
+
+  private long lastCommittedTxId() {
+    try {
+      return ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(TransactionIdStore.class).getLastCommittedTransactionId();
+    } catch (RuntimeException e) {
+      // stores are not reused without a transaction id
+      logger.warn("Unable to read the last committed transaction id of database={}: {}", databaseName, e.getMessage());
+      return -1;
+    }
+  }
+}
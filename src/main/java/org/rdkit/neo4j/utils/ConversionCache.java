@@ -0,0 +1,129 @@
+package org.rdkit.neo4j.utils;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.NodeParameters;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of converted structures
+ * Entries are keyed by the SHA-256 digest of the input (`smiles` or `mdlmol`) together with the sanitize flag,
+ * so identical structures of a bulk load are parsed only once and the cache does not retain the input strings.
+ *
+ * Cached {@link NodeParameters} are shared between nodes and must not be modified.
+ */
+public class ConversionCache {
+
+  private static final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e); // every java platform supports SHA-256
+    }
+  });
+
+  private final Map<ByteBuffer, NodeParameters> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param capacity - maximal amount of cached structures, the least recently used ones are evicted
+   */
+  public ConversionCache(final int capacity) {
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ByteBuffer, NodeParameters> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  public NodeParameters get(final NodeFields kind, final String input, final boolean sanitize, final Supplier<NodeParameters> conversion) {
+    return get(kind, input, sanitize, "", conversion);
+  }
+
+  /**
+   * Return cached parameters of the structure or convert it
+   * Conversion is executed outside of the lock, concurrent misses of the same structure may convert it twice
+   *
+   * @param kind - {@link NodeFields#Smiles} or {@link NodeFields#MdlMol}
+   * @param input - structure
+   * @param sanitize - flag used by the conversion
+   * @param variant - distinguishes conversions of the same structure with different output, e.g. additional fingerprints
+   * @param conversion - executed on a cache miss, failed conversions are not cached
+   * @return node parameters of the structure
+   */
+  public NodeParameters get(final NodeFields kind, final String input, final boolean sanitize, final String variant, final Supplier<NodeParameters> conversion) {
+    final ByteBuffer key = key(kind, input, sanitize, variant);
+
+    NodeParameters block;
+    synchronized (entries) {
+      block = entries.get(key);
+    }
+    if (block != null) {
+      hits.incrementAndGet();
+      return block;
+    }
+
+    misses.incrementAndGet();
+    block = conversion.get();
+    synchronized (entries) {
+      entries.put(key, block);
+    }
+    return block;
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Drop all cached structures, e.g. when the database is stopped
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private static ByteBuffer key(final NodeFields kind, final String input, final boolean sanitize, final String variant) {
+    final MessageDigest digest = digests.get();
+    digest.update((byte) kind.ordinal());
+    digest.update((byte) (sanitize ? 1 : 0));
+    digest.update(variant.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    return ByteBuffer.wrap(digest.digest(input.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -24,12 +24,21 @@ import org.rdkit.fingerprint.DefaultFingerprintSettings;
 import org.rdkit.fingerprint.FingerprintFactory;
 import org.rdkit.fingerprint.FingerprintSettings;
 import org.rdkit.fingerprint.FingerprintType;
+import org.rdkit.neo4j.metrics.PluginMetrics;
+import org.rdkit.neo4j.models.FingerprintDefinition;
 import org.rdkit.neo4j.models.LuceneQuery;
+import org.rdkit.neo4j.models.NodeFields;
 import org.rdkit.neo4j.models.NodeParameters;
+import org.rdkit.neo4j.models.TokenEncoding;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Converter class
@@ -45,7 +54,27 @@ public class Converter {
   }
 
   public static Converter createConverter(FingerprintType fpType) {
+    return createConverter(createSettings(fpType));
+  }
 
+  /**
+   * Create a converter of custom fingerprint settings, prefer a shared converter of {@link ConverterRegistry}
+   *
+   * @param settings - fingerprint settings, not modified afterwards
+   * @return new converter
+   */
+  public static Converter createConverter(FingerprintSettings settings) {
+    FingerprintFactory factory = new DefaultFingerprintFactory(settings);
+    return new Converter(factory, settings.getRdkitFingerprintType(), settings);
+  }
+
+  /**
+   * Default settings of a fingerprint type
+   *
+   * @param fpType - fingerprint type
+   * @return new settings object
+   */
+  public static FingerprintSettings createSettings(FingerprintType fpType) {
     FingerprintSettings settings = new DefaultFingerprintSettings(fpType).setNumBits(2048);
     switch (fpType) {
       case pattern:
@@ -56,11 +85,16 @@ public class Converter {
       case torsion:
         settings = settings.setTorsionPathLength(4);
         break;
+      case featmorgan:
+        settings = settings.setRadius(2);
+        break;
+      case maccs:
+        // 166 keys, fixed length
+        settings = settings.setNumBits(FingerprintSettings.UNAVAILABLE);
+        break;
       default: break;
     }
-
-    FingerprintFactory factory = new DefaultFingerprintFactory(settings);
-    return new Converter(factory, fpType);
+    return settings;
   }
 
   public static String molToSVG(final RWMolCloseable molOrigin) {
@@ -100,16 +134,124 @@ public class Converter {
 
   private FingerprintFactory fingerprintFactory;
   private FingerprintType fingerprintType;
-
-  private Converter(FingerprintFactory fingerprintFactory, FingerprintType type) {
+  private FingerprintSettings settings;
+  private ConversionCache cache;
+  private Set<NodeFields> optionalFields = NodeFields.optional();
+  private ConverterRegistry registry;
+  private PluginMetrics metrics;
+  private String operation;
+  private volatile String[] stamps = new String[TokenEncoding.values().length];
+
+  private Converter(FingerprintFactory fingerprintFactory, FingerprintType type, FingerprintSettings settings) {
     this.fingerprintFactory = fingerprintFactory;
     this.fingerprintType = type;
+    this.settings = settings;
   }
 
   public FingerprintType getFingerprintType() {
     return fingerprintType;
   }
 
+  public FingerprintSettings getFingerprintSettings() {
+    return settings;
+  }
+
+  /**
+   * Reuse results of {@link #convertSmiles(String, boolean)} and {@link #convertMolBlock(String, boolean)} for identical structures
+   *
+   * @param cache to store converted structures in, null disables caching
+   * @return this converter
+   */
+  public Converter withCache(final ConversionCache cache) {
+    this.cache = cache;
+    return this;
+  }
+
+  public ConversionCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Share the converters of registered fingerprints computed by {@link #convertSmiles(String, boolean, List)} and {@link #convertMolBlock(String, boolean, List)}
+   *
+   * @param registry of the database, null creates a converter for every computed fingerprint
+   * @return this converter
+   */
+  public Converter withRegistry(final ConverterRegistry registry) {
+    this.registry = registry;
+    return this;
+  }
+
+  /**
+   * Record latencies of parsing ({@link PluginMetrics.Stage#parse}) and of properties with fingerprints ({@link PluginMetrics.Stage#fingerprint})
+   * Structures found in the cache are not recorded.
+   *
+   * @param metrics of the database, null disables recording
+   * @param operation - recorded operation, e.g. {@link PluginMetrics#HANDLER}
+   * @return this converter
+   */
+  public Converter withMetrics(final PluginMetrics metrics, final String operation) {
+    this.metrics = metrics;
+    this.operation = operation;
+    return this;
+  }
+
+  /**
+   * Restrict optional fields computed by {@link #convertSmiles(String, boolean)} and {@link #convertMolBlock(String, boolean)}
+   * Fields which are not in the set are left null in {@link NodeParameters} and may be computed later by {@link #computeField(ROMol, NodeFields)}
+   *
+   * @param optionalFields subset of {@link NodeFields#optional()}
+   * @return this converter
+   */
+  public Converter withOptionalFields(final Set<NodeFields> optionalFields) {
+    this.optionalFields = optionalFields;
+    this.stamps = new String[TokenEncoding.values().length];
+    return this;
+  }
+
+  /**
+   * Version stamp of the properties created by this converter, stored as {@link NodeFields#Stamp}
+   * The stamp changes with the rdkit version, the fingerprint settings, the optional fields and the token encoding
+   * of fingerprints ({@link TokenEncoding#current()}), a node with the current stamp does not need to be converted again.
+   *
+   * @return stamp, e.g. `2022.09.4-1a2b3c4d`
+   */
+  public String getStamp() {
+    final TokenEncoding encoding = TokenEncoding.current();
+    final String[] current = stamps;
+    String stamp = current[encoding.ordinal()];
+    if (stamp == null) {
+      final String configuration = settings + "|" + optionalFields + "|" + encoding;
+      stamp = String.format("%s-%08x", RDKFuncs.getRdkitVersion(), configuration.hashCode());
+      current[encoding.ordinal()] = stamp;
+    }
+    return stamp;
+  }
+
+  /**
+   * Method computes a single property of the structure
+   *
+   * @param mol structure
+   * @param field to compute, fingerprint fields are not supported
+   * @return value of the property
+   */
+  public static Object computeField(final ROMol mol, final NodeFields field) {
+    switch (field) {
+      case MdlMol:
+        return RDKFuncs.MolToMolBlock(mol);
+      case CanonicalSmiles:
+        return RDKFuncs.MolToSmiles(mol);
+      case InchiKey:
+        return RDKFuncs.MolToInchiKey(mol);
+      case Formula:
+        return RDKFuncs.calcMolFormula(mol);
+      case MolecularWeight:
+        return RDKFuncs.calcExactMW(mol);
+      default:
+        throw new IllegalArgumentException(String.format("Field `%s` can not be computed on demand", field.getValue()));
+    }
+  }
+
   /**
    * Create NodeParameters from SMILES
    *
@@ -118,8 +260,29 @@ public class Converter {
    * @return NodeParameters object
    */
   public NodeParameters convertSmiles(final String smiles, boolean sanitize) {
+    return convertSmiles(smiles, sanitize, Collections.emptyList());
+  }
+
+  /**
+   * Create NodeParameters from SMILES together with custom fingerprints, the structure is parsed once
+   *
+   * @param smiles not canonicalized
+   * @param sanitize
+   * @param fingerprints - custom fingerprints to compute
+   * @return NodeParameters object
+   */
+  public NodeParameters convertSmiles(final String smiles, boolean sanitize, final List<FingerprintDefinition> fingerprints) {
+    if (cache != null) {
+      return cache.get(NodeFields.Smiles, smiles, sanitize, FingerprintDefinition.signature(fingerprints), () -> parseSmiles(smiles, sanitize, fingerprints));
+    }
+    return parseSmiles(smiles, sanitize, fingerprints);
+  }
+
+  private NodeParameters parseSmiles(final String smiles, boolean sanitize, final List<FingerprintDefinition> fingerprints) {
+    final long start = System.nanoTime();
     try (RWMolCloseable rwmol = RWMolCloseable.from(RWMol.MolFromSmiles(smiles, 0, sanitize))) {
 //    try (RWMolCloseable rwmol = RWMolCloseable.from(RWMol.MolFromSmiles(smiles))) {
+      final long parsed = record(PluginMetrics.Stage.parse, start);
       final NodeParameters block = createMolBlock(rwmol, sanitize);
 
       final String rdkitSmiles = block.getCanonicalSmiles();
@@ -130,7 +293,11 @@ public class Converter {
       }
 
       block.setSmiles(smiles);
-      block.setMolBlock(RDKFuncs.MolToMolBlock(rwmol));
+      if (optionalFields.contains(NodeFields.MdlMol)) {
+        block.setMolBlock(RDKFuncs.MolToMolBlock(rwmol));
+      }
+      block.setFingerprints(createFingerprints(rwmol, sanitize, fingerprints));
+      record(PluginMetrics.Stage.fingerprint, parsed);
 
       return block;
     }
@@ -144,14 +311,41 @@ public class Converter {
    * @return NodeParameters object
    */
   public NodeParameters convertMolBlock(final String molBlock, boolean sanitize) {
+    return convertMolBlock(molBlock, sanitize, Collections.emptyList());
+  }
+
+  /**
+   * Create NodeParameters from string equivalent together with custom fingerprints, the structure is parsed once
+   *
+   * @param molBlock in string format
+   * @param sanitize
+   * @param fingerprints - custom fingerprints to compute
+   * @return NodeParameters object
+   */
+  public NodeParameters convertMolBlock(final String molBlock, boolean sanitize, final List<FingerprintDefinition> fingerprints) {
+    if (cache != null) {
+      return cache.get(NodeFields.MdlMol, molBlock, sanitize, FingerprintDefinition.signature(fingerprints), () -> parseMolBlock(molBlock, sanitize, fingerprints));
+    }
+    return parseMolBlock(molBlock, sanitize, fingerprints);
+  }
+
+  private NodeParameters parseMolBlock(final String molBlock, boolean sanitize, final List<FingerprintDefinition> fingerprints) {
+    final long start = System.nanoTime();
     try (RWMolCloseable rwmol = RWMolCloseable.from(RWMol.MolFromMolBlock(molBlock, sanitize))) {
+      final long parsed = record(PluginMetrics.Stage.parse, start);
       NodeParameters block = createMolBlock(rwmol, sanitize);
       block.setMolBlock(molBlock);
+      block.setFingerprints(createFingerprints(rwmol, sanitize, fingerprints));
+      record(PluginMetrics.Stage.fingerprint, parsed);
 
       return block;
     }
   }
 
+  private long record(final PluginMetrics.Stage stage, final long startNanos) {
+    return metrics != null ? metrics.record(operation, stage, startNanos) : System.nanoTime();
+  }
+
   /**
    * Method returns canonicalized SMILES
    *
@@ -223,8 +417,35 @@ public class Converter {
     return luceneQuery;
   }
 
+  /**
+   * Method computes custom fingerprints of the structure
+   * A fingerprint which can not be computed is skipped, the same way as in `org.rdkit.fingerprint.create`
+   *
+   * @param rwmol object
+   * @param sanitize
+   * @param fingerprints - definitions of the fingerprints
+   * @return fingerprints by their definition
+   */
+  private Map<FingerprintDefinition, LuceneQuery> createFingerprints(final RWMol rwmol, boolean sanitize, final List<FingerprintDefinition> fingerprints) {
+    if (fingerprints.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    final Map<FingerprintDefinition, LuceneQuery> result = new LinkedHashMap<>();
+    for (FingerprintDefinition definition: fingerprints) {
+      try {
+        final Converter converter = registry != null ? registry.get(definition.getSettings()) : createConverter(definition.getSettings());
+        result.put(definition, converter.getLuceneFingerprint(rwmol, sanitize));
+      } catch (RuntimeException e) {
+        logger.error("Fingerprint type={} unable to convert the structure for property={}", definition.getType(), definition.getProperty());
+      }
+    }
+    return result;
+  }
+
   /**
    * Method fulfills the NodeParameters with parameters from rwmol object Used to extend properties of the node
+   * Optional fields which are not selected by {@link #withOptionalFields(Set)} are skipped
    *
    * @param rwmol object
    * @param sanitize
@@ -234,9 +455,9 @@ public class Converter {
     logger.debug("Construct default molBlock fields");
     rwmol.updatePropertyCache(false);
     final String rdkitSmiles = RDKFuncs.MolToSmiles(rwmol);
-    final String formula = RDKFuncs.calcMolFormula(rwmol);
-    final double molecularWeight = RDKFuncs.calcExactMW(rwmol);
-    final String inchi = RDKFuncs.MolToInchiKey(rwmol);
+    final String formula = optionalFields.contains(NodeFields.Formula) ? RDKFuncs.calcMolFormula(rwmol) : null;
+    final Double molecularWeight = optionalFields.contains(NodeFields.MolecularWeight) ? RDKFuncs.calcExactMW(rwmol) : null;
+    final String inchi = optionalFields.contains(NodeFields.InchiKey) ? RDKFuncs.MolToInchiKey(rwmol) : null;
 
     logger.debug("Construct structure fingerprint for lucene");
     LuceneQuery luceneQuery = getLuceneQuery(rwmol, DELIMITER_WHITESPACE, sanitize);
@@ -245,6 +466,8 @@ public class Converter {
     final String fingerprintEncoded = luceneQuery.getLuceneQuery();
 
     logger.debug("Constructed fp encoded={}", fingerprintEncoded);
-    return new NodeParameters(rdkitSmiles, formula, molecularWeight, inchi, fingerprintEncoded, fingerprintOnes);
+    final NodeParameters block = new NodeParameters(rdkitSmiles, formula, molecularWeight, inchi, fingerprintEncoded, fingerprintOnes);
+    block.setStamp(getStamp());
+    return block;
   }
 }
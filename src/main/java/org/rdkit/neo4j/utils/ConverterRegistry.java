@@ -0,0 +1,95 @@
+package org.rdkit.neo4j.utils;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.rdkit.fingerprint.DefaultFingerprintSettings;
+import org.rdkit.fingerprint.FingerprintSettings;
+import org.rdkit.fingerprint.FingerprintType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of fingerprint converters shared by procedures, the event handler and batch jobs of a database,
+ * see {@link org.rdkit.neo4j.handlers.DatabaseContext#getConverters()}
+ * A converter (with its fingerprint factory) is created once per distinct fingerprint settings,
+ * settings are matched with {@link FingerprintType#isCompatible(FingerprintSettings, FingerprintSettings)}.
+ *
+ * Converters of the registry are used for fingerprints only, they must not be configured
+ * with {@link Converter#withCache(ConversionCache)} or {@link Converter#withOptionalFields(java.util.Set)}.
+ */
+public final class ConverterRegistry {
+  private final Map<SettingsKey, Converter> converters = new ConcurrentHashMap<>();
+  private final Map<FingerprintType, Converter> defaults = new ConcurrentHashMap<>();
+
+  /**
+   * Return the shared converter of the default settings of a fingerprint type, see {@link Converter#createSettings(FingerprintType)}
+   *
+   * @param type - fingerprint type
+   * @return shared converter
+   */
+  public Converter get(final FingerprintType type) {
+    return defaults.computeIfAbsent(type, t -> get(Converter.createSettings(t)));
+  }
+
+  /**
+   * Return the shared converter of fingerprint settings, the settings are copied when a converter is created
+   *
+   * @param settings - fingerprint settings
+   * @return shared converter
+   */
+  public Converter get(final FingerprintSettings settings) {
+    final Converter converter = converters.get(new SettingsKey(settings));
+    if (converter != null) {
+      return converter;
+    }
+    final SettingsKey key = new SettingsKey(new DefaultFingerprintSettings(settings));
+    return converters.computeIfAbsent(key, k -> Converter.createConverter(k.settings));
+  }
+
+  /**
+   * @return amount of registered converters
+   */
+  public int size() {
+    return converters.size();
+  }
+
+  /**
+   * Release all converters, e.g. when the database is stopped
+   */
+  public void clear() {
+    defaults.clear();
+    converters.clear();
+  }
+
+  private static final class SettingsKey {
+    private final FingerprintSettings settings;
+
+    SettingsKey(FingerprintSettings settings) {
+      this.settings = settings;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof SettingsKey && FingerprintType.isCompatible(settings, ((SettingsKey) o).settings);
+    }
+
+    @Override
+    public int hashCode() {
+      return settings.hashCode();
+    }
+  }
+}
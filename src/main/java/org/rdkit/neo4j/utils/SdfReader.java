@@ -0,0 +1,117 @@
+package org.rdkit.neo4j.utils;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.StructureRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reader of SD files
+ * Molblock of a record is stored as {@link NodeFields#MdlMol}, its title as `name` and data fields under their names
+ */
+public class SdfReader extends StructureReader {
+  public static final String NAME_PROPERTY = "name";
+
+  private static final String RECORD_END = "$$$$";
+  private static final String MOL_END = "M  END";
+
+  public SdfReader(final BufferedReader reader) {
+    super(reader);
+  }
+
+  public static SdfReader open(final Path path) throws IOException {
+    return new SdfReader(openFile(path));
+  }
+
+  @Override
+  protected StructureRecord readRecord(final long index) throws IOException {
+    String line = reader.readLine();
+    if (line == null) {
+      return null;
+    }
+
+    // the first line of a molblock is its title, it may be empty
+    final String title = line.trim();
+    final StringBuilder molBlock = new StringBuilder(2048);
+    while (line != null && !line.equals(RECORD_END)) {
+      molBlock.append(line).append('\n');
+      if (line.startsWith(MOL_END)) {
+        break;
+      }
+      line = reader.readLine();
+    }
+
+    if (line == null && molBlock.toString().isBlank()) {
+      return null; // trailing blank lines
+    }
+
+    final Map<String, Object> properties = new LinkedHashMap<>();
+    if (!title.isEmpty()) {
+      properties.put(NAME_PROPERTY, title);
+    }
+    if (line != null && !line.equals(RECORD_END)) {
+      readDataFields(properties);
+    }
+    return new StructureRecord(index, NodeFields.MdlMol, molBlock.toString(), properties);
+  }
+
+  /**
+   * Data fields have a header `> <name>` followed by value lines and a blank line
+   */
+  private void readDataFields(final Map<String, Object> properties) throws IOException {
+    String line;
+    String field = null;
+    StringBuilder value = null;
+
+    while ((line = reader.readLine()) != null && !line.equals(RECORD_END)) {
+      if (field == null) {
+        if (line.startsWith(">")) {
+          final int start = line.indexOf('<');
+          final int end = line.indexOf('>', start + 1);
+          if (start > 0 && end > start) {
+            field = line.substring(start + 1, end);
+            value = new StringBuilder();
+          }
+        }
+      } else if (line.isEmpty()) {
+        putField(properties, field, value);
+        field = null;
+      } else {
+        if (value.length() > 0) value.append('\n');
+        value.append(line);
+      }
+    }
+
+    if (field != null) {
+      putField(properties, field, value);
+    }
+  }
+
+  private static void putField(final Map<String, Object> properties, final String field, final StringBuilder value) {
+    // properties computed by the plugin are never taken from the file
+    try {
+      NodeFields.from(field);
+    } catch (IllegalArgumentException e) {
+      properties.put(field, value.toString());
+    }
+  }
+}
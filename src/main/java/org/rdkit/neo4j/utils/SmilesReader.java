@@ -0,0 +1,63 @@
+package org.rdkit.neo4j.utils;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.StructureRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Reader of SMILES files
+ * Each line contains a SMILES followed by an optional name separated by whitespace,
+ * empty lines, lines starting with `#` and a `smiles` header line are ignored
+ */
+public class SmilesReader extends StructureReader {
+
+  public SmilesReader(final BufferedReader reader) {
+    super(reader);
+  }
+
+  public static SmilesReader open(final Path path) throws IOException {
+    return new SmilesReader(openFile(path));
+  }
+
+  @Override
+  protected StructureRecord readRecord(final long index) throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+
+      final String[] columns = line.split("\\s+", 2);
+      if (index == 0 && columns[0].equalsIgnoreCase(NodeFields.Smiles.getValue())) {
+        continue; // header
+      }
+
+      final Map<String, Object> properties = columns.length > 1
+          ? Collections.singletonMap(SdfReader.NAME_PROPERTY, columns[1])
+          : Collections.emptyMap();
+      return new StructureRecord(index, NodeFields.Smiles, columns[0], properties);
+    }
+    return null;
+  }
+}
@@ -0,0 +1,122 @@
+package org.rdkit.neo4j.utils;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.rdkit.neo4j.models.StructureRecord;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Sequential reader of structure files, records are read lazily one by one
+ * Files with `.gz` extension are decompressed on the fly
+ */
+public abstract class StructureReader implements Iterator<StructureRecord>, Closeable {
+
+  protected final BufferedReader reader;
+  private long position;
+  private StructureRecord next;
+  private boolean finished;
+
+  protected StructureReader(final BufferedReader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Open a buffered reader of the file
+   *
+   * @param path to the file, `.gz` files are decompressed
+   * @return reader
+   * @throws IOException if the file can not be opened
+   */
+  protected static BufferedReader openFile(final Path path) throws IOException {
+    InputStream stream = Files.newInputStream(path);
+    if (path.getFileName().toString().endsWith(".gz")) {
+      stream = new GZIPInputStream(stream, 1 << 16);
+    }
+    return new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 1 << 16);
+  }
+
+  /**
+   * Read the next record
+   *
+   * @param index of the record
+   * @return record or null if the end of file is reached
+   * @throws IOException on read failure
+   */
+  protected abstract StructureRecord readRecord(long index) throws IOException;
+
+  /**
+   * Skip records, the structures are not converted
+   *
+   * @param amount of records to skip
+   * @return amount of skipped records, less than `amount` if the end of file is reached
+   */
+  public long skip(final long amount) {
+    long skipped = 0;
+    while (skipped < amount && hasNext()) {
+      next();
+      skipped++;
+    }
+    return skipped;
+  }
+
+  /**
+   * @return index of the record returned by the next call of {@link #next()}
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null && !finished) {
+      try {
+        next = readRecord(position);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      finished = next == null;
+    }
+    return next != null;
+  }
+
+  @Override
+  public StructureRecord next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final StructureRecord record = next;
+    next = null;
+    position++;
+    return record;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
@@ -0,0 +1,147 @@
+package org.rdkit.fingerprint;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.RDKit.ExplicitBitVect;
+import org.RDKit.RWMol;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.logging.NullLog;
+import org.rdkit.neo4j.bin.LibraryLoaderLifecycle;
+import org.rdkit.neo4j.models.LuceneQuery;
+import org.rdkit.neo4j.utils.Converter;
+import org.rdkit.neo4j.utils.RWMolCloseable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DefaultFingerprintFactoryTest {
+  private static final String[] SMILES = {
+      "C", "CC(=O)O", "c1ccccc1", "O=S(=O)(Cc1ccccc1)CS(=O)(=O)Cc1ccccc1",
+      "CN1CCC[C@H]1c2cccnc2", "CC(C)Cc1ccc(cc1)[C@@H](C)C(=O)O", "OC[C@H]1OC(O)[C@H](O)[C@@H](O)[C@@H]1O"
+  };
+
+  @BeforeClass
+  public static void initializeLibraries() throws Exception {
+    new LibraryLoaderLifecycle(NullLog.getInstance()).init();
+  }
+
+  @Test
+  public void nullConvertTest() {
+    assertNull(DefaultFingerprintFactory.convert(null));
+  }
+
+  @Test
+  public void bulkConvertTest() {
+    for (FingerprintType type: FingerprintType.values()) {
+      final FingerprintSettings settings = Converter.createConverter(type).getFingerprintSettings();
+      for (String smiles: SMILES) {
+        try (RWMolCloseable mol = RWMolCloseable.from(RWMol.MolFromSmiles(smiles))) {
+          mol.updatePropertyCache(true);
+          final BitSet expected = convertBitwise(type.calculate(mol, settings));
+          final BitSet actual = DefaultFingerprintFactory.convert(type.calculate(mol, settings));
+
+          assertEquals(type + " " + smiles, expected, actual);
+          assertEquals(type + " " + smiles, joinBitwise(expected, " AND "), new LuceneQuery(actual, " AND ").getLuceneQuery());
+          assertEquals(expected.cardinality(), new LuceneQuery(actual, " ").getPositiveBits());
+        }
+      }
+    }
+  }
+
+  /**
+   * Pattern fingerprints computed concurrently without the global lock must be identical to serially computed ones,
+   * this verifies `server.rdkit.fingerprint.pattern_serialized=false` for the RDKit build in use
+   */
+  @Test
+  public void concurrentPatternTest() throws Exception {
+    final FingerprintSettings settings = Converter.createDefault().getFingerprintSettings();
+    final BitSet[] expected = new BitSet[SMILES.length];
+    for (int i = 0; i < SMILES.length; i++) {
+      expected[i] = patternFingerprint(SMILES[i], settings);
+    }
+
+    final int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    final int rounds = 200;
+    final boolean serialized = FingerprintType.PATTERN_FP_LOCK.isSerialized();
+    FingerprintType.PATTERN_FP_LOCK.setSerialized(false);
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<Integer>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          int mismatches = 0;
+          for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < SMILES.length; i++) {
+              if (!expected[i].equals(patternFingerprint(SMILES[i], settings))) {
+                mismatches++;
+              }
+            }
+          }
+          return mismatches;
+        }));
+      }
+      start.countDown();
+      for (Future<Integer> result: results) {
+        assertEquals(0, (int) result.get(5, TimeUnit.MINUTES));
+      }
+    } finally {
+      executor.shutdownNow();
+      FingerprintType.PATTERN_FP_LOCK.setSerialized(serialized);
+    }
+  }
+
+  private static BitSet patternFingerprint(final String smiles, final FingerprintSettings settings) {
+    try (RWMolCloseable mol = RWMolCloseable.from(RWMol.MolFromSmiles(smiles))) {
+      mol.updatePropertyCache(true);
+      return DefaultFingerprintFactory.convert(FingerprintType.pattern.calculate(mol, settings));
+    }
+  }
+
+  /**
+   * Previous conversion with a native call per bit, used as reference
+   */
+  private static BitSet convertBitwise(final ExplicitBitVect vector) {
+    final int length = (int) vector.getNumBits();
+    final BitSet fingerprint = new BitSet(length);
+    for (int i = 0; i < length; i++) {
+      if (vector.getBit(i)) {
+        fingerprint.set(i);
+      }
+    }
+    return fingerprint;
+  }
+
+  private static String joinBitwise(final BitSet fingerprint, final String delimiter) {
+    final StringJoiner joiner = new StringJoiner(delimiter);
+    for (int i = fingerprint.nextSetBit(0); i >= 0; i = fingerprint.nextSetBit(i + 1)) {
+      joiner.add(Integer.toString(i));
+    }
+    return joiner.toString();
+  }
+}
@@ -0,0 +1,99 @@
+package org.rdkit.fingerprint;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FingerprintLockTest {
+
+  @Test
+  public void concurrentAfterWarmUpTest() throws Exception {
+    final FingerprintLock lock = new FingerprintLock("test", false);
+    assertFalse(lock.isInitialized());
+    assertEquals(1, (int) lock.run(() -> 1));
+    assertTrue(lock.isInitialized());
+
+    // both calls have to be inside the function at the same time
+    final CountDownLatch inside = new CountDownLatch(2);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Boolean> first = executor.submit(() -> lock.run(() -> awaitOther(inside)));
+      final Future<Boolean> second = executor.submit(() -> lock.run(() -> awaitOther(inside)));
+
+      assertTrue(first.get(10, TimeUnit.SECONDS));
+      assertTrue(second.get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(3, lock.getCalls());
+    assertEquals(0, lock.getContended());
+  }
+
+  @Test
+  public void serializedTest() throws Exception {
+    final FingerprintLock lock = new FingerprintLock("test", false);
+    lock.setSerialized(true);
+    lock.run(() -> 1);
+
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Integer> holder = executor.submit(() -> lock.run(() -> {
+        entered.countDown();
+        awaitQuietly(release);
+        return 1;
+      }));
+      assertTrue(entered.await(10, TimeUnit.SECONDS));
+      final Future<Integer> waiting = executor.submit(() -> lock.run(() -> 2));
+
+      Thread.sleep(100);
+      assertFalse(waiting.isDone());
+      release.countDown();
+
+      assertEquals(1, (int) holder.get(10, TimeUnit.SECONDS));
+      assertEquals(2, (int) waiting.get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(3, lock.getCalls());
+    assertEquals(1, lock.getContended());
+  }
+
+  private static boolean awaitOther(final CountDownLatch inside) {
+    inside.countDown();
+    return awaitQuietly(inside);
+  }
+
+  private static boolean awaitQuietly(final CountDownLatch latch) {
+    try {
+      return latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
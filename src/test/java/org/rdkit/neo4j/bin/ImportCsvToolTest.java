@@ -0,0 +1,76 @@
+package org.rdkit.neo4j.bin;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.utils.Converter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ImportCsvToolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void loadLibraries() throws Exception {
+        LibraryLoaderLifecycle.loadForTests();
+    }
+
+    @Test
+    public void quoteTest() {
+        assertEquals("", ImportCsvTool.quote(null));
+        assertEquals("\"CC\"", ImportCsvTool.quote("CC"));
+        assertEquals("\"a \"\"b\"\"\nc\"", ImportCsvTool.quote("a \"b\"\nc"));
+    }
+
+    @Test
+    public void smilesFileTest() throws Exception {
+        final Path input = folder.newFile("input.smi").toPath();
+        Files.write(input, Arrays.asList("CC(=O)O acetic_acid", "C1=CC=CN=C1 pyridine", "C1CC1C(=O)OX broken"));
+        final Path output = folder.getRoot().toPath().resolve("csv");
+
+        final ImportCsvTool tool = new ImportCsvTool(Arrays.asList(Constants.Chemical.getValue(), Constants.Structure.getValue()),
+            Collections.emptyList(), 2, 2, true, Converter.createDefault());
+        final long[] counters = tool.run(input, output);
+
+        assertEquals(3, counters[0]);
+        assertEquals(1, counters[1]);
+
+        final List<String> header = Files.readAllLines(output.resolve("nodes-header.csv"));
+        assertEquals(String.join(",", ImportCsvTool.COLUMNS), header.get(0));
+
+        final String nodes = Files.readString(output.resolve("nodes.csv"));
+        assertTrue(nodes.startsWith("0,\"Chemical;Structure\",\"CC(=O)O\","));
+        assertTrue(nodes.contains("\"acetic_acid\""));
+        assertTrue(nodes.contains("\"pyridine\""));
+
+        final List<String> failed = Files.readAllLines(output.resolve("failed.csv"));
+        assertEquals(2, failed.size());
+        assertTrue(failed.get(1).startsWith("2,"));
+    }
+}
@@ -21,7 +21,11 @@ import org.neo4j.configuration.GraphDatabaseSettings;
 import org.neo4j.dbms.api.DatabaseManagementService;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.test.TestDatabaseManagementServiceBuilder;
+import org.rdkit.neo4j.models.TokenEncoding;
 
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -34,6 +38,16 @@ public class RDKitSettingsTest {
 
         Config config = db.getDependencyResolver().resolveDependency(Config.class);
         assertTrue(config.get(RDKitSettings.indexSanitize));
+        assertEquals(Runtime.getRuntime().availableProcessors(), (int) config.get(RDKitSettings.handlerParallelism));
+        assertEquals(1000, (int) config.get(RDKitSettings.handlerParallelThreshold));
+        assertEquals(10_000, (int) config.get(RDKitSettings.conversionCacheSize));
+        assertEquals(List.of("mdlmol", "inchi_key", "formula", "molecular_weight"), config.get(RDKitSettings.optionalFields));
+        assertTrue(config.get(RDKitSettings.patternSerialized));
+        assertEquals(TokenEncoding.decimal, config.get(RDKitSettings.fingerprintEncoding));
+        assertFalse(config.get(RDKitSettings.fingerprintStore));
+        assertFalse(config.get(RDKitSettings.warmupEnabled));
+        assertEquals(3, config.get(RDKitSettings.warmupSmiles).size());
+        assertTrue(config.get(RDKitSettings.warmupPrefetch));
 
         dbms.shutdown();
     }
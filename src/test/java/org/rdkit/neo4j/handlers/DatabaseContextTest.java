@@ -0,0 +1,61 @@
+package org.rdkit.neo4j.handlers;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.neo4j.configuration.GraphDatabaseSettings;
+import org.neo4j.dbms.api.DatabaseManagementService;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.test.TestDatabaseManagementServiceBuilder;
+import org.rdkit.fingerprint.FingerprintType;
+import org.rdkit.neo4j.config.RDKitSettings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DatabaseContextTest {
+
+    @Test
+    public void contextLifecycleTest() {
+        DatabaseManagementService dbms = new TestDatabaseManagementServiceBuilder()
+                .setConfig(RDKitSettings.conversionCacheSize, 100)
+                .impermanent().build();
+        GraphDatabaseService db = dbms.database(GraphDatabaseSettings.DEFAULT_DATABASE_NAME);
+
+        DatabaseContext context = DatabaseContext.of(db);
+        assertSame(context, DatabaseContext.forDatabase(GraphDatabaseSettings.DEFAULT_DATABASE_NAME));
+        assertNull(DatabaseContext.forDatabase(GraphDatabaseSettings.SYSTEM_DATABASE_NAME));
+        assertNotNull(context.getConverter().getCache());
+        assertNull(context.getDeferredWorker());
+        assertNull(context.getStoreManager());
+        assertNotNull(context.getMetrics().getObjectName());
+        assertSame(context.getSearchConverter(), context.getConverters().get(FingerprintType.pattern));
+        // running jobs are registered per database
+        context.getJobs().put("job", new Object());
+
+        dbms.shutdown();
+
+        // stopping the database releases its state
+        assertNull(DatabaseContext.forDatabase(GraphDatabaseSettings.DEFAULT_DATABASE_NAME));
+        assertTrue(context.getJobExecutor().isShutdown());
+        assertTrue(context.getJobs().isEmpty());
+        assertNull(context.getMetrics().getObjectName());
+        assertEquals(0, context.getConverters().size());
+    }
+}
@@ -0,0 +1,136 @@
+package org.rdkit.neo4j.handlers;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.helpers.collection.Iterators;
+import org.neo4j.internal.helpers.collection.MapUtil;
+import org.neo4j.logging.NullLog;
+import org.neo4j.test.TestDatabaseManagementServiceBuilder;
+import org.rdkit.neo4j.bin.LibraryLoaderLifecycle;
+import org.rdkit.neo4j.config.RDKitSettings;
+import org.rdkit.neo4j.index.utils.BaseTest;
+import org.rdkit.neo4j.index.utils.TestUtils;
+import org.rdkit.neo4j.metrics.PluginMetrics;
+import org.rdkit.neo4j.procedures.FingerprintProcedures;
+import org.rdkit.neo4j.procedures.HandlerProcedures;
+import org.rdkit.neo4j.procedures.SubstructureSearch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DatabaseWarmupTest extends BaseTest {
+    private static final List<String> SMILES = List.of("CC(=O)Oc1ccccc1C(=O)O", "Cn1cnc2c1c(=O)n(C)c(=O)n2C", "CC(C)Cc1ccc(cc1)C(C)C(=O)O");
+
+    @BeforeClass
+    public static void loadLibraries() throws Exception {
+        new LibraryLoaderLifecycle(NullLog.getInstance()).init();
+    }
+
+    @Override
+    protected void prepareDatabase(TestDatabaseManagementServiceBuilder builder) {
+        builder.setConfig(RDKitSettings.warmupEnabled, true);
+    }
+
+    @Before
+    public void registerProcedures() {
+        TestUtils.registerProcedures(graphDb, HandlerProcedures.class, SubstructureSearch.class, FingerprintProcedures.class);
+    }
+
+    @Test
+    public void statusTest() throws Exception {
+        final long deadline = System.currentTimeMillis() + 60_000;
+        Map<String, Object> status = status();
+        while (!(Boolean) status.get("ready") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = status();
+        }
+
+        assertEquals(true, status.get("ready"));
+        assertEquals(DatabaseWarmup.State.done.name(), status.get("state"));
+        assertEquals((long) RDKitSettings.warmupSmiles.defaultValue().size(), (long) status.get("queries") + (long) status.get("failedQueries"));
+    }
+
+    @Test
+    public void missingIndexTest() {
+        // without `fp_index` every substructure query fails, the warm-up is finished nevertheless
+        final DatabaseWarmup warmup = new DatabaseWarmup(DatabaseContext.of(graphDb), graphDb, SMILES, true);
+        warmup.run();
+
+        assertEquals(DatabaseWarmup.State.done, warmup.getState());
+        assertEquals(0, warmup.getQueries());
+        assertEquals(SMILES.size(), warmup.getFailedQueries());
+    }
+
+    @Test
+    public void indexLabelsTest() throws Exception {
+        insertChemblRows();
+        // the index covers `Chemical` only, so the labels of the warm-up queries are taken from the index
+        graphDb.executeTransactionally("CALL org.rdkit.search.createIndex($labels)", MapUtil.map("labels", List.of("Chemical")));
+        final long chemicals;
+        try (Transaction tx = graphDb.beginTx()) {
+            tx.schema().awaitIndexesOnline(1, TimeUnit.MINUTES);
+            chemicals = Iterators.count(tx.findNodes(Label.label("Chemical")));
+            tx.commit();
+        }
+
+        final DatabaseWarmup warmup = new DatabaseWarmup(DatabaseContext.of(graphDb), graphDb, SMILES, true);
+        warmup.run();
+
+        assertEquals(DatabaseWarmup.State.done, warmup.getState());
+        assertEquals(SMILES.size(), warmup.getQueries());
+        assertEquals(0, warmup.getFailedQueries());
+        assertEquals(chemicals, warmup.getPrefetched());
+
+        // the warm-up queries are not recorded as user traffic
+        final Set<String> operations = DatabaseContext.of(graphDb).getMetrics().getHistograms().keySet();
+        assertTrue(operations.contains(PluginMetrics.WARMUP + "org.rdkit.search.substructure.smiles:total"));
+        assertFalse(operations.contains("org.rdkit.search.substructure.smiles:total"));
+    }
+
+    @Test
+    public void stopTest() throws Exception {
+        final DatabaseWarmup warmup = new DatabaseWarmup(DatabaseContext.of(graphDb), graphDb, Collections.nCopies(100_000, SMILES.get(0)), true);
+        warmup.start();
+        final long deadline = System.currentTimeMillis() + 60_000;
+        while (warmup.getState() == DatabaseWarmup.State.waiting && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        warmup.stop();
+
+        while (!warmup.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(warmup.isFinished());
+        assertEquals(DatabaseWarmup.State.failed, warmup.getState());
+        assertEquals("stopped", warmup.getError());
+    }
+
+    private Map<String, Object> status() {
+        return graphDb.executeTransactionally("CALL org.rdkit.warmup.status()", Collections.emptyMap(), Iterators::single);
+    }
+}
@@ -0,0 +1,129 @@
+package org.rdkit.neo4j.handlers;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.helpers.collection.Iterators;
+import org.neo4j.logging.NullLog;
+import org.neo4j.test.TestDatabaseManagementServiceBuilder;
+import org.rdkit.neo4j.bin.LibraryLoaderLifecycle;
+import org.rdkit.neo4j.config.HandlerMode;
+import org.rdkit.neo4j.config.RDKitSettings;
+import org.rdkit.neo4j.index.utils.BaseTest;
+import org.rdkit.neo4j.index.utils.TestUtils;
+import org.rdkit.neo4j.procedures.HandlerProcedures;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeferredEventHandlerTest extends BaseTest {
+
+    @BeforeClass
+    public static void loadLibraries() throws Exception {
+        new LibraryLoaderLifecycle(NullLog.getInstance()).init();
+    }
+
+    @Override
+    protected void prepareDatabase(TestDatabaseManagementServiceBuilder builder) {
+        builder.setConfig(RDKitSettings.handlerMode, HandlerMode.deferred)
+                .setConfig(RDKitSettings.deferredInterval, Duration.ofMillis(50));
+    }
+
+    @Before
+    public void registerProcedures() {
+        TestUtils.registerProcedures(graphDb, HandlerProcedures.class);
+    }
+
+    @Test
+    public void deferredPropertiesTest() throws Exception {
+        final String query = "CREATE (c:Chemical:Structure {smiles: $smiles}) RETURN id(c) as id";
+        long id = graphDb.executeTransactionally(query, Collections.singletonMap("smiles", "C(F)(F)F"), result -> (long) Iterators.single(result).get("id"));
+
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline && !hasCanonicalSmiles(id)) {
+            Thread.sleep(50);
+        }
+
+        try (Transaction tx = graphDb.beginTx()) {
+            Node node = tx.getNodeById(id);
+            assertEquals("FC(F)F", node.getProperty("canonical_smiles"));
+            assertTrue(node.hasProperty("fp"));
+            tx.commit();
+        }
+
+        Map<String, Object> status = graphDb.executeTransactionally("CALL org.rdkit.handler.status()", Collections.emptyMap(), Iterators::single);
+        assertEquals(HandlerMode.deferred.name(), status.get("mode"));
+        assertEquals(0L, status.get("queued"));
+        assertEquals(1L, status.get("processed"));
+    }
+
+    @Test
+    public void invalidSmilesDoesNotFailCommitTest() {
+        graphDb.executeTransactionally("CREATE (c:Chemical:Structure {smiles: ''})");
+
+        try (Transaction tx = graphDb.beginTx()) {
+            assertFalse(tx.getNodeById(0).hasProperty("canonical_smiles"));
+            tx.commit();
+        }
+    }
+
+    @Test
+    public void invalidSmilesIsMarkedTest() throws Exception {
+        final String query = "CREATE (c:Chemical:Structure {smiles: $smiles}) RETURN id(c) as id";
+        long id = graphDb.executeTransactionally(query, Collections.singletonMap("smiles", "CC(C"), result -> (long) Iterators.single(result).get("id"));
+        final DeferredPropertyWorker worker = DatabaseContext.of(graphDb).getDeferredWorker();
+
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline && worker.getFailed() == 0) {
+            Thread.sleep(50);
+        }
+        try (Transaction tx = graphDb.beginTx()) {
+            assertEquals("CC(C", tx.getNodeById(id).getProperty("rdkit_failed"));
+            tx.commit();
+        }
+
+        // a failed structure is not queued again on start, a changed structure is
+        worker.rebuild();
+        assertEquals(0, worker.getQueued());
+        try (Transaction tx = graphDb.beginTx()) {
+            tx.getNodeById(id).setProperty("smiles", "CCC");
+            tx.commit();
+        }
+        while (System.currentTimeMillis() < deadline && !hasCanonicalSmiles(id)) {
+            Thread.sleep(50);
+        }
+        try (Transaction tx = graphDb.beginTx()) {
+            assertFalse(tx.getNodeById(id).hasProperty("rdkit_failed"));
+            tx.commit();
+        }
+        assertEquals(1L, worker.getFailed());
+    }
+
+    private boolean hasCanonicalSmiles(long id) {
+        try (Transaction tx = graphDb.beginTx()) {
+            return tx.getNodeById(id).hasProperty("canonical_smiles");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.rdkit.neo4j.handlers;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.RDKit.MolSanitizeException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.NullLog;
+import org.neo4j.test.TestDatabaseManagementServiceBuilder;
+import org.rdkit.neo4j.bin.LibraryLoaderLifecycle;
+import org.rdkit.neo4j.config.RDKitSettings;
+import org.rdkit.neo4j.index.utils.BaseTest;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.NodeParameters;
+import org.rdkit.neo4j.utils.Converter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ParallelEventHandlerTest extends BaseTest {
+
+    @BeforeClass
+    public static void loadLibraries() throws Exception {
+        new LibraryLoaderLifecycle(NullLog.getInstance()).init();
+    }
+
+    @Override
+    protected void prepareDatabase(TestDatabaseManagementServiceBuilder builder) {
+        builder.setConfig(RDKitSettings.indexSanitize, false)
+                .setConfig(RDKitSettings.handlerParallelism, 4)
+                .setConfig(RDKitSettings.handlerParallelThreshold, 2);
+    }
+
+    @Test
+    public void parallelConversionTest() throws Exception {
+        insertChemblRows();
+
+        final Converter converter = Converter.createDefault();
+        try (Transaction tx = graphDb.beginTx()) {
+            List<Node> nodes = tx.findNodes(Label.label(defaultLabels.get(0))).stream().collect(Collectors.toList());
+            assertFalse(nodes.isEmpty());
+
+            for (Node node : nodes) {
+                final String smiles = (String) node.getProperty(NodeFields.Smiles.getValue());
+                NodeParameters expected;
+                try {
+                    expected = converter.convertSmiles(smiles, true);
+                } catch (MolSanitizeException e) {
+                    expected = converter.convertSmiles(smiles, false);
+                }
+                assertEquals(expected.getCanonicalSmiles(), node.getProperty(NodeFields.CanonicalSmiles.getValue()));
+                assertEquals(expected.getFingerprintEncoded(), node.getProperty(NodeFields.FingerprintEncoded.getValue()));
+            }
+            tx.commit();
+        }
+    }
+}
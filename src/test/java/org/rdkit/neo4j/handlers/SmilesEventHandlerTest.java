@@ -31,6 +31,8 @@ import org.rdkit.neo4j.index.utils.BaseTest;
 import java.util.Collections;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class SmilesEventHandlerTest extends BaseTest {
@@ -134,6 +136,77 @@ public class SmilesEventHandlerTest extends BaseTest {
         }
     }
 
+    @Test
+    public void updateSmilesTest() {
+        long id = graphDb.executeTransactionally("CREATE (c:Chemical:Structure {smiles: 'C(F)(F)F'}) RETURN id(c) as id",
+                Collections.emptyMap(), result -> (long) Iterators.single(result).get("id"));
+
+        graphDb.executeTransactionally("MATCH (c) WHERE id(c) = $id SET c.smiles = 'COc1ccccc1'", Collections.singletonMap("id", id));
+
+        try (Transaction tx = graphDb.beginTx()) {
+            Node node = tx.getNodeById(id);
+            assertEquals("COc1ccccc1", node.getProperty("canonical_smiles"));
+            assertEquals("C7H8O", node.getProperty("formula"));
+            assertTrue(((String) node.getProperty("mdlmol")).contains(" O "));
+            tx.commit();
+        }
+    }
+
+    @Test
+    public void removeStructureTest() {
+        long id = graphDb.executeTransactionally("CREATE (c:Chemical:Structure {smiles: 'C(F)(F)F'}) RETURN id(c) as id",
+                Collections.emptyMap(), result -> (long) Iterators.single(result).get("id"));
+
+        graphDb.executeTransactionally("MATCH (c) WHERE id(c) = $id REMOVE c.smiles, c.mdlmol", Collections.singletonMap("id", id));
+
+        try (Transaction tx = graphDb.beginTx()) {
+            Node node = tx.getNodeById(id);
+            assertFalse(node.hasProperty("canonical_smiles"));
+            assertFalse(node.hasProperty("fp"));
+            assertFalse(node.hasProperty("fp_ones"));
+            assertFalse(node.hasProperty("molecular_weight"));
+            tx.commit();
+        }
+    }
+
+    @Test
+    public void removeSmilesTest() {
+        long id = graphDb.executeTransactionally("CREATE (c:Chemical:Structure {smiles: 'C(F)(F)F'}) RETURN id(c) as id",
+                Collections.emptyMap(), result -> (long) Iterators.single(result).get("id"));
+
+        // `mdlmol` was created from `smiles`, it is removed together with the other derived properties
+        graphDb.executeTransactionally("MATCH (c) WHERE id(c) = $id REMOVE c.smiles", Collections.singletonMap("id", id));
+
+        try (Transaction tx = graphDb.beginTx()) {
+            Node node = tx.getNodeById(id);
+            assertFalse(node.hasProperty("mdlmol"));
+            assertFalse(node.hasProperty("canonical_smiles"));
+            assertFalse(node.hasProperty("fp"));
+            assertFalse(node.hasProperty("fp_ones"));
+            assertFalse(node.hasProperty("molecular_weight"));
+            tx.commit();
+        }
+    }
+
+    @Test
+    public void removeSmilesKeepsMolBlockTest() {
+        String molBlock = graphDb.executeTransactionally("CREATE (c:Chemical:Structure {smiles: 'CCO'}) RETURN c.mdlmol as mdlmol",
+                Collections.emptyMap(), result -> (String) Iterators.single(result).get("mdlmol"));
+        long id = graphDb.executeTransactionally("CREATE (c:Chemical:Structure {mdlmol: $mdlmol, smiles: 'C(F)(F)F'}) RETURN id(c) as id",
+                Collections.singletonMap("mdlmol", molBlock), result -> (long) Iterators.single(result).get("id"));
+
+        // `mdlmol` was provided by the user, the properties are kept and computed from it
+        graphDb.executeTransactionally("MATCH (c) WHERE id(c) = $id REMOVE c.smiles", Collections.singletonMap("id", id));
+
+        try (Transaction tx = graphDb.beginTx()) {
+            Node node = tx.getNodeById(id);
+            assertEquals(molBlock, node.getProperty("mdlmol"));
+            assertEquals("CCO", node.getProperty("canonical_smiles"));
+            assertTrue(node.hasProperty("fp"));
+            tx.commit();
+        }
+    }
+
     @Test
     public void testInvalidSmiles() {
         graphDb.executeTransactionally("CREATE (n:Entity:Chemical:Compound:Structure { luri: 'test3', tag:'<test3>', preferred_name: 'aabbcc3', smiles: 'Cl[C](C)(C)(C)Br'})");
@@ -32,7 +32,7 @@ public abstract class BaseTest {
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
     protected List<String> defaultLabels = Arrays.asList("Chemical", "Structure");
-    private DatabaseManagementService dbms;
+    protected DatabaseManagementService dbms;
     protected GraphDatabaseService graphDb;
 
     @Before
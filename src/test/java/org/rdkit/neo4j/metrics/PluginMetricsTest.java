@@ -0,0 +1,92 @@
+package org.rdkit.neo4j.metrics;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PluginMetricsTest {
+
+  @Test
+  public void histogramTest() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getQuantileMillis(0.99), 0);
+
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(5));    // <= 0.01 ms
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(700));  // <= 1 ms
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(3));    // <= 5 ms
+    histogram.record(TimeUnit.SECONDS.toNanos(20));        // above the last bucket
+
+    assertEquals(4, histogram.getCount());
+    assertEquals(20_000, histogram.getMaxMillis(), 0);
+    assertEquals(20_003.705, histogram.getTotalMillis(), 1e-6);
+    assertArrayEquals(new long[]{1, 1, 1, 1, 2, 3, 3, 3, 3, 3, 3, 3, 3}, histogram.getBuckets());
+    assertEquals(1, histogram.getQuantileMillis(0.5), 0);
+    assertEquals(20_000, histogram.getQuantileMillis(0.99), 0);
+  }
+
+  @Test
+  public void recordTest() {
+    final PluginMetrics metrics = new PluginMetrics("metrics-test");
+    final long start = System.nanoTime();
+    final long parsed = metrics.record("org.rdkit.search.exact.smiles", PluginMetrics.Stage.parse, start);
+    metrics.record("org.rdkit.search.exact.smiles", PluginMetrics.Stage.query, parsed);
+    metrics.record(PluginMetrics.HANDLER, PluginMetrics.Stage.write, start);
+
+    assertTrue(parsed >= start);
+    assertEquals(3, metrics.getHistograms().size());
+    assertEquals("handler:write", metrics.getHistograms().keySet().iterator().next());
+    assertEquals(1, metrics.histogram("org.rdkit.search.exact.smiles", PluginMetrics.Stage.parse).getCount());
+  }
+
+  @Test
+  public void recordAsTest() {
+    final PluginMetrics metrics = new PluginMetrics("metrics-warmup");
+    metrics.recordAs(PluginMetrics.WARMUP, () -> metrics.record("org.rdkit.search.exact.smiles", PluginMetrics.Stage.total, System.nanoTime()));
+    metrics.record("org.rdkit.search.exact.smiles", PluginMetrics.Stage.total, System.nanoTime());
+
+    // operations of the warm-up are kept apart from the user traffic
+    assertEquals(1, metrics.histogram("org.rdkit.search.exact.smiles", PluginMetrics.Stage.total).getCount());
+    assertEquals(1, metrics.getHistograms().get("warmup.org.rdkit.search.exact.smiles:total").getCount());
+  }
+
+  @Test
+  public void jmxTest() throws Exception {
+    final PluginMetrics metrics = new PluginMetrics("metrics-jmx");
+    metrics.record(PluginMetrics.HANDLER, PluginMetrics.Stage.total, System.nanoTime());
+    metrics.register();
+
+    final ObjectName name = metrics.getObjectName();
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    assertEquals(new ObjectName("org.rdkit.neo4j:type=Metrics,database=\"metrics-jmx\""), name);
+    assertEquals(1L, server.getAttribute(name, "handler:total.count"));
+    assertEquals(7, server.getMBeanInfo(name).getAttributes().length);
+
+    metrics.unregister();
+    assertFalse(server.isRegistered(name));
+    assertNull(metrics.getObjectName());
+  }
+}
@@ -0,0 +1,62 @@
+package org.rdkit.neo4j.models;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FingerprintDefinitionTest {
+
+  @Test
+  public void bandTest() {
+    assertEquals("0", FingerprintDefinition.band(0));
+    assertEquals("0", FingerprintDefinition.band(FingerprintDefinition.BAND_WIDTH - 1));
+    assertEquals("1", FingerprintDefinition.band(FingerprintDefinition.BAND_WIDTH));
+  }
+
+  @Test
+  public void bandsTest() {
+    // 0.7 * 50 = 35 <= c <= 50 / 0.7 = 71.4
+    assertEquals(List.of("2", "3", "4"), FingerprintDefinition.bands(50, 0.7d, 2048));
+    assertEquals(List.of("3"), FingerprintDefinition.bands(50, 1.0d, 2048));
+    assertNull(FingerprintDefinition.bands(50, 0.0d, 2048));
+    assertNull(FingerprintDefinition.bands(0, 0.7d, 2048));
+
+    // upper bound is limited by the length of the fingerprint
+    final List<String> bands = FingerprintDefinition.bands(10, 0.01d, 256);
+    assertEquals("0", bands.get(0));
+    assertEquals(Integer.toString(256 / FingerprintDefinition.BAND_WIDTH), bands.get(bands.size() - 1));
+  }
+
+  @Test
+  public void bandsContainCandidatesTest() {
+    final double threshold = 0.6d;
+    for (long q = 1; q < 300; q++) {
+      final List<String> bands = FingerprintDefinition.bands(q, threshold, 2048);
+      for (long c = 1; c <= 2048; c++) {
+        final double bound = 1.0d * Math.min(q, c) / Math.max(q, c);
+        if (bound >= threshold) {
+          assertTrue(q + " " + c, bands.contains(FingerprintDefinition.band(c)));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package org.rdkit.neo4j.models;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TokenEncodingTest {
+  private static final Logger logger = LoggerFactory.getLogger(TokenEncodingTest.class);
+
+  @Test
+  public void roundTripTest() {
+    final Set<String> tokens = new HashSet<>();
+    for (int bit = 0; bit < 100_000; bit++) {
+      final String token = TokenEncoding.compact.encode(bit);
+      assertTrue(token, Character.isLowerCase(token.charAt(0)));
+      assertEquals(token, token.toLowerCase());
+      assertEquals(TokenEncoding.compact, TokenEncoding.of(token));
+      assertEquals(bit, TokenEncoding.decode(token));
+      assertEquals(bit, TokenEncoding.decode(TokenEncoding.decimal.encode(bit)));
+      assertTrue(token, tokens.add(token));
+    }
+  }
+
+  @Test
+  public void tokenLengthTest() {
+    assertEquals("a", TokenEncoding.compact.encode(0));
+    assertEquals("z", TokenEncoding.compact.encode(25));
+    assertEquals("a0", TokenEncoding.compact.encode(26));
+    assertEquals("a00", TokenEncoding.compact.encode(26 + 26 * 36));
+    assertEquals(3, TokenEncoding.compact.encode(16_383).length());
+  }
+
+  @Test
+  public void reencodeTest() {
+    assertEquals("d f o", TokenEncoding.compact.reencode("3 5 14", " "));
+    assertEquals("3 5 14", TokenEncoding.decimal.reencode("d f o", " "));
+    assertEquals("d f o", TokenEncoding.compact.reencode("d 5 o", " "));
+    assertNull(TokenEncoding.compact.reencode("d f o", " "));
+    assertNull(TokenEncoding.decimal.reencode("3 5 14", " "));
+    assertNull(TokenEncoding.decimal.reencode("", " "));
+  }
+
+  @Test
+  public void mixedQueryTest() {
+    final BitSet fingerprint = new BitSet();
+    fingerprint.set(3);
+    fingerprint.set(14);
+    final LuceneQuery query = new LuceneQuery(fingerprint, " AND ", TokenEncoding.compact);
+    assertEquals("(d AND o) OR (3 AND 14)", query.getLuceneQuery(TokenEncoding.decimal));
+    assertEquals("d AND o", query.getLuceneQuery(TokenEncoding.compact));
+    assertEquals("", new LuceneQuery(new BitSet(), " OR ").getLuceneQuery(TokenEncoding.compact));
+
+    assertEquals("fp:(0* OR 1* OR 2* OR 3* OR 4* OR 5* OR 6* OR 7* OR 8* OR 9*)", TokenEncoding.decimal.prefixQuery("fp"));
+    assertTrue(TokenEncoding.compact.prefixQuery("fp").startsWith("fp:(a* OR b*"));
+    assertTrue(TokenEncoding.compact.prefixQuery("fp").endsWith(" OR z*)"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidTokenTest() {
+    TokenEncoding.decode("AND");
+  }
+
+  @Test
+  public void encodedSizeTest() {
+    final Random random = new Random(42);
+    long decimal = 0;
+    long compact = 0;
+    for (int i = 0; i < 1_000; i++) {
+      final BitSet fingerprint = new BitSet(2048);
+      for (int j = 0; j < 400; j++) {
+        fingerprint.set(random.nextInt(2048));
+      }
+      final LuceneQuery decimalQuery = new LuceneQuery(fingerprint, " ", TokenEncoding.decimal);
+      final LuceneQuery compactQuery = new LuceneQuery(fingerprint, " ", TokenEncoding.compact);
+      assertEquals(decimalQuery.getPositiveBits(), compactQuery.getPositiveBits());
+      assertEquals(decimalQuery.getLuceneQuery(), TokenEncoding.decimal.reencode(compactQuery.getLuceneQuery(), " "));
+
+      decimal += decimalQuery.getLuceneQuery().length();
+      compact += compactQuery.getLuceneQuery().length();
+    }
+    assertTrue(compact < decimal);
+    logger.info("Fingerprint of 2048 bits: decimal {} chars, compact {} chars per molecule", decimal / 1_000, compact / 1_000);
+  }
+}
@@ -20,15 +20,22 @@ import org.junit.Test;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.QueryExecutionException;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.helpers.collection.Iterators;
 import org.neo4j.internal.helpers.collection.MapUtil;
 import org.rdkit.fingerprint.FingerprintType;
 import org.rdkit.neo4j.index.utils.BaseTest;
 import org.rdkit.neo4j.index.utils.TestUtils;
+import org.rdkit.neo4j.models.FingerprintDefinition;
 import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.TokenEncoding;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -138,4 +145,133 @@ public class FingerprintProcedureTest extends BaseTest {
     graphDb.executeTransactionally("CALL org.rdkit.search.dropIndex()");
     graphDb.executeTransactionally(String.format("DROP INDEX %s", propertyName + "_index"));
   }
+
+  @Test
+  public void registeredFpMaintainedOnWriteTest() {
+    final String propertyName = "torsion_fp";
+    final String fptype = FingerprintType.torsion.toString();
+    graphDb.executeTransactionally("CALL org.rdkit.fingerprint.create($labels, $fptype, $propertyName)", MapUtil.map(
+        "labels", defaultLabels,
+        "propertyName", propertyName,
+        "fptype", fptype
+    ));
+
+    Map<String, Object> definition = graphDb.executeTransactionally("CALL org.rdkit.fingerprint.list()", Collections.emptyMap(), Iterators::single);
+    assertEquals(propertyName, definition.get("propertyName"));
+    assertEquals(fptype, definition.get("fingerprintType"));
+
+    // node created after the batch obtains the fingerprint from the event handler
+    graphDb.executeTransactionally("CREATE (:Chemical:Structure {smiles: 'COc1ccc(C(=O)O)cc1', luri: 'registered'})");
+    Map<String, Object> created = graphDb.executeTransactionally("MATCH (n {luri: 'registered'}) RETURN n[$fp] AS fp, n[$type] AS type, n[$ones] AS ones, n[$band] AS band",
+        MapUtil.map("fp", propertyName, "type", propertyName + "_type", "ones", propertyName + "_ones", "band", propertyName + "_band"), Iterators::single);
+    assertNotNull(created.get("fp"));
+    assertEquals(fptype, created.get("type"));
+    assertEquals(FingerprintDefinition.band((Long) created.get("ones")), created.get("band"));
+
+    graphDb.executeTransactionally("CALL org.rdkit.fingerprint.unregister($propertyName)", MapUtil.map("propertyName", propertyName));
+    graphDb.executeTransactionally("CREATE (:Chemical:Structure {smiles: 'CCO', luri: 'unregistered'})");
+    Map<String, Object> skipped = graphDb.executeTransactionally("MATCH (n {luri: 'unregistered'}) RETURN n[$fp] AS fp",
+        MapUtil.map("fp", propertyName), Iterators::single);
+    assertNull(skipped.get("fp"));
+
+    graphDb.executeTransactionally("CALL org.rdkit.search.dropIndex()");
+    graphDb.executeTransactionally(String.format("DROP INDEX %s", propertyName + "_index"));
+  }
+
+  @Test
+  public void customSettingsTest() throws Exception {
+    insertChemblRows();
+
+    final String propertyName = "morgan3_fp";
+    final String fptype = FingerprintType.morgan.toString();
+    graphDb.executeTransactionally("CALL org.rdkit.fingerprint.create($labels, $fptype, $propertyName, true, 10000, 0, $settings)", MapUtil.map(
+        "labels", defaultLabels,
+        "propertyName", propertyName,
+        "fptype", fptype,
+        "settings", MapUtil.map("numBits", 1024L, "radius", 3L)
+    ));
+
+    Map<String, Object> definition = graphDb.executeTransactionally("CALL org.rdkit.fingerprint.list()", Collections.emptyMap(), Iterators::single);
+    assertEquals(MapUtil.map("numBits", 1024L, "radius", 3L), definition.get("settings"));
+
+    try (Transaction tx = graphDb.beginTx()) {
+      tx.findNodes(Label.label(defaultLabels.get(0))).stream()
+          .filter(node -> node.hasProperty(propertyName))
+          .flatMap(node -> Arrays.stream(((String) node.getProperty(propertyName)).split(" ")))
+          .forEach(bit -> assertTrue(Integer.parseInt(bit) < 1024));
+      tx.commit();
+    }
+
+    // query fingerprint is computed with the registered settings, an identical structure is found
+    final Map<String, Object> best = graphDb.executeTransactionally("CALL org.rdkit.fingerprint.similarity.smiles($labels, $smiles, $fptype, $propertyName, 0.9)", MapUtil.map(
+        "labels", defaultLabels,
+        "smiles", "COc1ccc(C(=O)O)cc1",
+        "fptype", fptype,
+        "propertyName", propertyName
+    ), result -> result.next());
+    assertEquals(1.0d, (Double) best.get("similarity"), 1e-6);
+
+    graphDb.executeTransactionally("CALL org.rdkit.search.dropIndex()");
+    graphDb.executeTransactionally(String.format("DROP INDEX %s", propertyName + "_index"));
+  }
+
+  @Test
+  public void migrateEncodingTest() throws Exception {
+    insertChemblRows();
+    final Map<String, Object> parameters = MapUtil.map("labels", defaultLabels, "smiles", "c1ccccc1");
+    final String search = "CALL org.rdkit.search.substructure.smiles($labels, $smiles) YIELD luri RETURN count(*) AS matches";
+
+    final long decimalSize = fingerprintLength();
+    long start = System.nanoTime();
+    final long decimalMatches = graphDb.executeTransactionally(search, parameters, result -> (Long) Iterators.single(result).get("matches"));
+    final long decimalNanos = System.nanoTime() - start;
+
+    TokenEncoding.use(TokenEncoding.compact);
+    try {
+      // decimal values are found before they are migrated
+      assertEquals(decimalMatches, (long) graphDb.executeTransactionally(search, parameters, result -> (Long) Iterators.single(result).get("matches")));
+
+      graphDb.executeTransactionally("CALL org.rdkit.fingerprint.migrate($labels)", MapUtil.map("labels", defaultLabels));
+
+      try (Transaction tx = graphDb.beginTx()) {
+        tx.findNodes(Label.label(defaultLabels.get(0))).stream()
+            .filter(node -> node.hasProperty(NodeFields.FingerprintEncoded.getValue()))
+            .flatMap(node -> Arrays.stream(((String) node.getProperty(NodeFields.FingerprintEncoded.getValue())).split(" ")))
+            .forEach(token -> assertEquals(TokenEncoding.compact, TokenEncoding.of(token)));
+        tx.commit();
+      }
+
+      final long compactSize = fingerprintLength();
+      start = System.nanoTime();
+      final long compactMatches = graphDb.executeTransactionally(search, parameters, result -> (Long) Iterators.single(result).get("matches"));
+      final long compactNanos = System.nanoTime() - start;
+
+      assertEquals(decimalMatches, compactMatches);
+      assertTrue(compactSize < decimalSize);
+      logger.info("Fingerprint property characters: decimal={}, compact={}; substructure search: decimal={} us, compact={} us",
+          decimalSize, compactSize, decimalNanos / 1000, compactNanos / 1000);
+    } finally {
+      TokenEncoding.use(TokenEncoding.decimal);
+    }
+
+    graphDb.executeTransactionally("CALL org.rdkit.search.dropIndex()");
+  }
+
+  private long fingerprintLength() {
+    return graphDb.executeTransactionally("MATCH (n) WHERE n.fp IS NOT NULL RETURN sum(size(n.fp)) AS length", Collections.emptyMap(),
+        result -> (Long) Iterators.single(result).get("length"));
+  }
+
+  @Test
+  public void invalidSettingsTest() {
+    for (Map<String, Object> settings: Arrays.asList(MapUtil.map("radius", 0L), MapUtil.map("layerFlags", 1L), MapUtil.map("bits", 1024L))) {
+      try {
+        graphDb.executeTransactionally("CALL org.rdkit.fingerprint.create($labels, 'morgan', 'invalid_fp', true, 10000, 0, $settings)",
+            MapUtil.map("labels", defaultLabels, "settings", settings));
+        fail("Settings must be rejected: " + settings);
+      } catch (QueryExecutionException e) {
+        assertTrue(e.getMessage().contains("setting"));
+      }
+    }
+  }
 }
@@ -0,0 +1,251 @@
+package org.rdkit.neo4j.procedures;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.helpers.collection.Iterators;
+import org.neo4j.internal.helpers.collection.MapUtil;
+import org.rdkit.neo4j.handlers.DatabaseContext;
+import org.rdkit.neo4j.index.utils.BaseTest;
+import org.rdkit.neo4j.index.utils.TestUtils;
+import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.NodeParameters;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JobProceduresTest extends BaseTest {
+
+  @Before
+  public void registerProcedures() {
+    TestUtils.registerProcedures(graphDb, ExactSearch.class, JobProcedures.class);
+  }
+
+  @Test
+  public void updateCheckpointTest() throws Exception {
+    insertChemblRows();
+
+    final Map<String, Object> result = graphDb.executeTransactionally("CALL org.rdkit.update($labels, true, 3, 2)",
+        MapUtil.map("labels", defaultLabels), Iterators::single);
+    assertEquals(BatchJob.DONE, result.get("status"));
+
+    try (Transaction tx = graphDb.beginTx()) {
+      final long nodes = tx.findNodes(Label.label(Constants.Chemical.getValue())).stream().count();
+      final long maxId = tx.findNodes(Label.label(Constants.Chemical.getValue())).stream().mapToLong(Node::getId).max().orElseThrow();
+      assertEquals(nodes, result.get("processed"));
+      assertEquals(maxId, result.get("checkpoint"));
+
+      final Node job = tx.findNode(Label.label(Constants.Job.getValue()), BatchJob.ID, result.get("jobId"));
+      assertEquals(maxId, job.getProperty(BatchJob.CHECKPOINT));
+      assertEquals(BatchJob.DONE, job.getProperty(BatchJob.STATUS));
+      tx.commit();
+    }
+  }
+
+  @Test
+  public void resumeFromCheckpointTest() throws Exception {
+    insertChemblRows();
+
+    final String jobId = (String) graphDb.executeTransactionally("CALL org.rdkit.update($labels)",
+        MapUtil.map("labels", defaultLabels), Iterators::single).get("jobId");
+
+    // simulate an interrupted job: nodes after the checkpoint are not processed yet
+    final long checkpoint;
+    try (Transaction tx = graphDb.beginTx()) {
+      final long[] ids = tx.findNodes(Label.label(Constants.Chemical.getValue())).stream().mapToLong(Node::getId).sorted().toArray();
+      checkpoint = ids[ids.length / 2];
+      for (long id: ids) {
+        if (id > checkpoint) {
+          tx.getNodeById(id).removeProperty(NodeFields.FingerprintEncoded.getValue());
+        }
+      }
+      final Node job = tx.findNode(Label.label(Constants.Job.getValue()), BatchJob.ID, jobId);
+      job.setProperty(BatchJob.CHECKPOINT, checkpoint);
+      job.setProperty(BatchJob.STATUS, BatchJob.RUNNING);
+      tx.commit();
+    }
+
+    final Map<String, Object> result = graphDb.executeTransactionally("CALL org.rdkit.jobs.resume($jobId)",
+        MapUtil.map("jobId", jobId), Iterators::single);
+    assertEquals(BatchJob.DONE, result.get("status"));
+
+    try (Transaction tx = graphDb.beginTx()) {
+      tx.findNodes(Label.label(Constants.Chemical.getValue())).stream()
+          .forEach(node -> assertTrue(node.hasProperty(NodeFields.FingerprintEncoded.getValue())));
+      tx.commit();
+    }
+  }
+
+  @Test
+  public void resumeDoneJobTest() throws Exception {
+    insertChemblRows();
+
+    final String jobId = (String) graphDb.executeTransactionally("CALL org.rdkit.update($labels)",
+        MapUtil.map("labels", defaultLabels), Iterators::single).get("jobId");
+    try {
+      graphDb.executeTransactionally("CALL org.rdkit.jobs.resume($jobId)", MapUtil.map("jobId", jobId));
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("already done"));
+    }
+  }
+
+  @Test
+  public void submitAndPollTest() throws Exception {
+    insertChemblRows();
+
+    final Map<String, Object> submitted = graphDb.executeTransactionally("CALL org.rdkit.jobs.submit('org.rdkit.update', $labels, {batchSize: 2})",
+        MapUtil.map("labels", defaultLabels), Iterators::single);
+    final String jobId = (String) submitted.get("jobId");
+
+    Map<String, Object> status = submitted;
+    for (int i = 0; i < 100 && BatchJob.RUNNING.equals(status.get("status")); i++) {
+      Thread.sleep(100);
+      status = graphDb.executeTransactionally("CALL org.rdkit.jobs.status($jobId)", MapUtil.map("jobId", jobId), Iterators::single);
+    }
+
+    assertEquals(BatchJob.DONE, status.get("status"));
+    assertEquals(0L, status.get("failed"));
+    try (Transaction tx = graphDb.beginTx()) {
+      assertEquals(tx.findNodes(Label.label(Constants.Chemical.getValue())).stream().count(), status.get("processed"));
+      tx.commit();
+    }
+  }
+
+  @Test
+  public void cancelNotRunningJobTest() throws Exception {
+    insertChemblRows();
+
+    final String jobId = (String) graphDb.executeTransactionally("CALL org.rdkit.update($labels)",
+        MapUtil.map("labels", defaultLabels), Iterators::single).get("jobId");
+    try {
+      graphDb.executeTransactionally("CALL org.rdkit.jobs.cancel($jobId)", MapUtil.map("jobId", jobId));
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("is not running"));
+    }
+  }
+
+  @Test
+  public void incrementalUpdateTest() throws Exception {
+    insertChemblRows();
+    graphDb.executeTransactionally("CALL org.rdkit.update($labels)", MapUtil.map("labels", defaultLabels));
+
+    // a node with the current stamp is skipped, a node with an outdated stamp is converted again
+    final long skippedId;
+    final long outdatedId;
+    try (Transaction tx = graphDb.beginTx()) {
+      final long[] ids = tx.findNodes(Label.label(Constants.Chemical.getValue())).stream().mapToLong(Node::getId).toArray();
+      skippedId = ids[0];
+      outdatedId = ids[1];
+      tx.getNodeById(skippedId).setProperty(NodeFields.CanonicalSmiles.getValue(), "marker");
+      tx.getNodeById(outdatedId).setProperty(NodeFields.CanonicalSmiles.getValue(), "marker");
+      tx.getNodeById(outdatedId).setProperty(NodeFields.Stamp.getValue(), "outdated");
+      tx.commit();
+    }
+
+    final Map<String, Object> result = graphDb.executeTransactionally("CALL org.rdkit.update($labels, true, 10000, 1, true)",
+        MapUtil.map("labels", defaultLabels), Iterators::single);
+    assertEquals(0L, result.get("failed"));
+
+    try (Transaction tx = graphDb.beginTx()) {
+      assertEquals("marker", tx.getNodeById(skippedId).getProperty(NodeFields.CanonicalSmiles.getValue()));
+      assertNotEquals("marker", tx.getNodeById(outdatedId).getProperty(NodeFields.CanonicalSmiles.getValue()));
+      assertNotEquals("outdated", tx.getNodeById(outdatedId).getProperty(NodeFields.Stamp.getValue()));
+      tx.commit();
+    }
+  }
+
+  @Test
+  public void changedNodeIsNotWrittenTest() throws Exception {
+    insertChemblRows();
+    final NodeTask<Map.Entry<NodeFields, String>, NodeParameters> task =
+        ExactSearch.updateTask(graphDb, true, false, DatabaseContext.of(graphDb).getConverters());
+
+    final long id;
+    final Map.Entry<NodeFields, String> structure;
+    try (Transaction tx = graphDb.beginTx()) {
+      final Node node = tx.findNodes(Label.label(Constants.Chemical.getValue())).next();
+      id = node.getId();
+      structure = task.read(node);
+      tx.commit();
+    }
+    final NodeParameters block = task.createWorker().apply(structure);
+
+    // the structure is edited after it was read, the handler converts it and the outdated result is rejected
+    graphDb.executeTransactionally("MATCH (n) WHERE id(n) = $id SET n.smiles = 'CCO'", MapUtil.map("id", id));
+    try (Transaction tx = graphDb.beginTx()) {
+      final Node node = tx.getNodeById(id);
+      assertFalse(task.write(node, structure, block));
+      assertEquals("CCO", node.getProperty(NodeFields.CanonicalSmiles.getValue()));
+      tx.commit();
+    }
+  }
+
+  @Test
+  public void incrementalUpdateFingerprintTest() throws Exception {
+    insertChemblRows();
+    graphDb.executeTransactionally("CALL org.rdkit.update($labels)", MapUtil.map("labels", defaultLabels));
+    graphDb.executeTransactionally("CALL org.rdkit.fingerprint.create($labels, 'morgan', 'morgan_fp')", MapUtil.map("labels", defaultLabels));
+
+    // a node without the registered fingerprint is converted again, although its stamp is current
+    final long missingId;
+    try (Transaction tx = graphDb.beginTx()) {
+      missingId = tx.findNodes(Label.label(Constants.Chemical.getValue())).next().getId();
+      tx.getNodeById(missingId).removeProperty("morgan_fp");
+      tx.commit();
+    }
+
+    final Map<String, Object> result = graphDb.executeTransactionally("CALL org.rdkit.update($labels, true, 10000, 1, true)",
+        MapUtil.map("labels", defaultLabels), Iterators::single);
+    assertEquals(0L, result.get("failed"));
+
+    try (Transaction tx = graphDb.beginTx()) {
+      assertTrue(tx.getNodeById(missingId).hasProperty("morgan_fp"));
+      tx.commit();
+    }
+  }
+
+  @Test
+  public void failedNodesTest() {
+    // the event handler does not observe `Compound` nodes, so the invalid structure is stored
+    graphDb.executeTransactionally("CREATE (:Compound {mdlmol: $valid}), (:Compound {mdlmol: 'invalid'}), (:Compound {name: 'no structure'})",
+        MapUtil.map("valid", "\n     RDKit          2D\n\n  1  0  0  0  0  0  0  0  0  0999 V2000\n"
+            + "    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\nM  END\n"));
+
+    final Map<String, Object> result = graphDb.executeTransactionally("CALL org.rdkit.update(['Compound'], true, 2, 2)",
+        Collections.emptyMap(), Iterators::single);
+
+    assertEquals(BatchJob.DONE, result.get("status"));
+    assertEquals(3L, result.get("processed"));
+    assertEquals(2L, result.get("failed"));
+    try (Transaction tx = graphDb.beginTx()) {
+      assertEquals("C", tx.findNode(Label.label("Compound"), NodeFields.CanonicalSmiles.getValue(), "C").getProperty(NodeFields.CanonicalSmiles.getValue()));
+      tx.commit();
+    }
+  }
+}
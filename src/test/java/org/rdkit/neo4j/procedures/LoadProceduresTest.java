@@ -0,0 +1,96 @@
+package org.rdkit.neo4j.procedures;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.configuration.GraphDatabaseSettings;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.internal.helpers.collection.Iterators;
+import org.neo4j.internal.helpers.collection.MapUtil;
+import org.neo4j.logging.NullLog;
+import org.neo4j.test.TestDatabaseManagementServiceBuilder;
+import org.rdkit.neo4j.bin.LibraryLoaderLifecycle;
+import org.rdkit.neo4j.index.utils.BaseTest;
+import org.rdkit.neo4j.index.utils.TestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class LoadProceduresTest extends BaseTest {
+
+  @Rule
+  public TemporaryFolder importDirectory = new TemporaryFolder();
+
+  @BeforeClass
+  public static void loadLibraries() throws Exception {
+    new LibraryLoaderLifecycle(NullLog.getInstance()).init();
+  }
+
+  @Override
+  protected void prepareDatabase(TestDatabaseManagementServiceBuilder builder) {
+    builder.setConfig(GraphDatabaseSettings.load_csv_file_url_root, importDirectory.getRoot().toPath());
+  }
+
+  @Before
+  public void registerProcedures() throws IOException {
+    TestUtils.registerProcedures(graphDb, LoadProcedures.class);
+    Files.writeString(importDirectory.getRoot().toPath().resolve("structures.smi"),
+        "CCO ethanol\nc1ccccc1 benzene\nC1CC invalid\nCC(=O)O acetic acid\n");
+  }
+
+  @Test
+  public void loadSmilesTest() {
+    Map<String, Object> result = graphDb.executeTransactionally("CALL org.rdkit.load.smiles($labels, 'structures.smi', 2)",
+        MapUtil.map("labels", defaultLabels), Iterators::single);
+
+    assertEquals(4L, result.get("records"));
+    assertEquals(3L, result.get("created"));
+    assertEquals(1L, result.get("failed"));
+    assertEquals(List.of(2L), result.get("failedRecords"));
+    assertEquals(2L, result.get("batches"));
+    assertEquals(4L, result.get("nextOffset"));
+
+    Map<String, Object> benzene = graphDb.executeTransactionally("MATCH (n:Chemical:Structure {name: 'benzene'}) RETURN n.canonical_smiles AS smiles, n.fp AS fp",
+        Collections.emptyMap(), Iterators::single);
+    assertEquals("c1ccccc1", benzene.get("smiles"));
+    assertEquals(true, benzene.get("fp") != null);
+  }
+
+  @Test
+  public void resumeFromOffsetTest() {
+    Map<String, Object> result = graphDb.executeTransactionally("CALL org.rdkit.load.smiles($labels, 'structures.smi', 10, 3)",
+        MapUtil.map("labels", defaultLabels), Iterators::single);
+
+    assertEquals(3L, result.get("skipped"));
+    assertEquals(1L, result.get("records"));
+    assertEquals(1L, result.get("created"));
+    assertEquals(4L, result.get("nextOffset"));
+  }
+
+  @Test(expected = QueryExecutionException.class)
+  public void fileOutsideImportDirectoryTest() {
+    graphDb.executeTransactionally("CALL org.rdkit.load.sdf($labels, '../structures.sdf')", MapUtil.map("labels", defaultLabels));
+  }
+}
@@ -30,6 +30,8 @@ import org.rdkit.neo4j.index.utils.BaseTest;
 import org.rdkit.neo4j.index.utils.TestUtils;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class SubstructureSearchTest extends BaseTest {
 
@@ -64,6 +66,22 @@ public class SubstructureSearchTest extends BaseTest {
     graphDb.executeTransactionally("CALL org.rdkit.search.dropIndex()");
   }
 
+  @Test
+  public void substructureSearchMetricsTest() {
+    TestUtils.registerProcedures(graphDb, MetricsProcedures.class);
+    graphDb.executeTransactionally("create (n:Structure:Chemical {smiles: 'c1ccccc1O'})");
+    graphDb.executeTransactionally("CALL org.rdkit.search.substructure.smiles($labels, 'c1ccccc1')", MapUtil.map("labels", defaultLabels));
+
+    final Map<String, Long> counts = graphDb.executeTransactionally("CALL org.rdkit.metrics() YIELD operation, stage, count "
+            + "WHERE operation = $operation RETURN stage, count", MapUtil.map("operation", SubstructureSearch.SMILES_PROCEDURE),
+        result -> result.stream().collect(Collectors.toMap(row -> (String) row.get("stage"), row -> (Long) row.get("count"))));
+    Assert.assertEquals(Set.of("parse", "fingerprint", "query", "verify", "total"), counts.keySet());
+    Assert.assertEquals(1L, (long) counts.get("total"));
+    Assert.assertEquals(1L, (long) counts.get("verify"));
+
+    graphDb.executeTransactionally("CALL org.rdkit.search.dropIndex()");
+  }
+
   @Test
   public void fingerprintMatchEqualTest() {
     final String smiles = "c1ccccc1";
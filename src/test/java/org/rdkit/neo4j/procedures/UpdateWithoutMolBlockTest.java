@@ -0,0 +1,99 @@
+package org.rdkit.neo4j.procedures;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.helpers.collection.Iterators;
+import org.neo4j.internal.helpers.collection.MapUtil;
+import org.neo4j.test.TestDatabaseManagementServiceBuilder;
+import org.rdkit.neo4j.config.RDKitSettings;
+import org.rdkit.neo4j.index.utils.BaseTest;
+import org.rdkit.neo4j.index.utils.TestUtils;
+import org.rdkit.neo4j.models.Constants;
+import org.rdkit.neo4j.models.NodeFields;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Nodes created from `smiles` have no `mdlmol`, if it is not an optional field
+ */
+public class UpdateWithoutMolBlockTest extends BaseTest {
+
+  @Override
+  protected void prepareDatabase(TestDatabaseManagementServiceBuilder builder) {
+    builder.setConfig(RDKitSettings.optionalFields, List.of("inchi_key", "formula", "molecular_weight"));
+  }
+
+  @Before
+  public void registerProcedures() {
+    TestUtils.registerProcedures(graphDb, ExactSearch.class, SubstructureSearch.class, JobProcedures.class);
+  }
+
+  @Test
+  public void updateTest() throws Exception {
+    insertChemblRows();
+    final long nodes;
+    try (Transaction tx = graphDb.beginTx()) {
+      nodes = tx.findNodes(Label.label(Constants.Chemical.getValue())).stream().count();
+      tx.findNodes(Label.label(Constants.Chemical.getValue())).forEachRemaining(node -> {
+        assertFalse(node.hasProperty(NodeFields.MdlMol.getValue()));
+        node.setProperty(NodeFields.Stamp.getValue(), "outdated");
+      });
+      tx.commit();
+    }
+
+    // nodes are converted from `smiles`, both in full and incremental mode
+    Map<String, Object> result = graphDb.executeTransactionally("CALL org.rdkit.update($labels)",
+        MapUtil.map("labels", defaultLabels), Iterators::single);
+    assertEquals(nodes, result.get("processed"));
+    assertEquals(0L, result.get("failed"));
+
+    try (Transaction tx = graphDb.beginTx()) {
+      tx.findNodes(Label.label(Constants.Chemical.getValue())).next().setProperty(NodeFields.Stamp.getValue(), "outdated");
+      tx.commit();
+    }
+    result = graphDb.executeTransactionally("CALL org.rdkit.update($labels, true, 10000, 1, true)",
+        MapUtil.map("labels", defaultLabels), Iterators::single);
+    assertEquals(0L, result.get("failed"));
+
+    try (Transaction tx = graphDb.beginTx()) {
+      tx.findNodes(Label.label(Constants.Chemical.getValue())).forEachRemaining(node -> {
+        assertTrue(node.hasProperty(NodeFields.CanonicalSmiles.getValue()));
+        assertFalse(node.hasProperty(NodeFields.MdlMol.getValue()));
+        assertFalse("outdated".equals(node.getProperty(NodeFields.Stamp.getValue())));
+      });
+      tx.commit();
+    }
+  }
+
+  @Test
+  public void substructureSearchTest() throws Exception {
+    insertChemblRows();
+    graphDb.executeTransactionally("CALL org.rdkit.search.createIndex($labels)", MapUtil.map("labels", defaultLabels));
+
+    final long matches = graphDb.executeTransactionally("CALL org.rdkit.search.substructure.smiles($labels, 'CC(=O)N')",
+        MapUtil.map("labels", defaultLabels), result -> result.stream().count());
+    assertTrue(matches > 0);
+  }
+}
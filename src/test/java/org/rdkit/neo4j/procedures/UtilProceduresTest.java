@@ -84,4 +84,18 @@ public class UtilProceduresTest extends BaseTest {
     Assert.assertTrue(svg.contains("<svg"));
     Assert.assertTrue(svg.contains("</svg>"));
   }
+
+  @Test
+  public void functionComputeFieldTest() {
+    graphDb.executeTransactionally("CREATE (c:Chemical:Structure {smiles: 'COc1ccccc1'})");
+    graphDb.executeTransactionally("MATCH (c:Chemical:Structure) REMOVE c.formula, c.inchi_key");
+
+    Map<String, Object> result = graphDb.executeTransactionally("MATCH (c:Chemical:Structure) "
+            + "RETURN org.rdkit.utils.field(c, 'formula') AS formula, org.rdkit.utils.field(c, 'inchi_key') AS inchi, c.formula AS stored",
+        Collections.emptyMap(), Iterators::single);
+
+    Assert.assertEquals("C7H8O", result.get("formula"));
+    Assert.assertEquals("RDOXTESZEPMUJZ-UHFFFAOYSA-N", result.get("inchi"));
+    Assert.assertNull(result.get("stored"));
+  }
 }
@@ -0,0 +1,183 @@
+package org.rdkit.neo4j.store;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.configuration.GraphDatabaseSettings;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventListenerAdapter;
+import org.neo4j.internal.helpers.collection.MapUtil;
+import org.neo4j.test.TestDatabaseManagementServiceBuilder;
+import org.rdkit.neo4j.config.RDKitSettings;
+import org.rdkit.neo4j.handlers.DatabaseContext;
+import org.rdkit.neo4j.index.utils.BaseTest;
+import org.rdkit.neo4j.index.utils.TestUtils;
+import org.rdkit.neo4j.procedures.FingerprintProcedures;
+import org.rdkit.neo4j.procedures.SubstructureSearch;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FingerprintStoreManagerTest extends BaseTest {
+  private static final String PROPERTY = "torsion_fp";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private String querySmiles;
+
+  @Override
+  protected void prepareDatabase(TestDatabaseManagementServiceBuilder builder) {
+    builder.setConfig(RDKitSettings.fingerprintStore, true)
+        .setConfig(GraphDatabaseSettings.data_directory, folder.getRoot().toPath());
+  }
+
+  @Before
+  public void registerFingerprint() throws Exception {
+    TestUtils.registerProcedures(graphDb, SubstructureSearch.class, FingerprintProcedures.class);
+    insertChemblRows();
+    graphDb.executeTransactionally("CALL org.rdkit.fingerprint.create($labels, 'torsion', $property)",
+        MapUtil.map("labels", defaultLabels, "property", PROPERTY));
+    try (Transaction tx = graphDb.beginTx()) {
+      querySmiles = (String) tx.findNodes(Label.label("Chemical")).next().getProperty("canonical_smiles");
+      tx.commit();
+    }
+  }
+
+  @Test
+  public void labelsTest() throws Exception {
+    try (Transaction tx = graphDb.beginTx()) {
+      tx.findNodes(Label.label("Chemical"), "canonical_smiles", querySmiles).next().addLabel(Label.label("Reactant"));
+      tx.commit();
+    }
+    final List<String> labels = List.of("Chemical", "Structure", "Reactant");
+
+    // the first search queries the fulltext index and starts the build of the store
+    final List<String> indexed = search(labels, 0.1);
+    awaitStore();
+    final List<String> stored = search(labels, 0.1);
+
+    assertEquals(List.of(querySmiles), indexed);
+    assertEquals(indexed, stored);
+  }
+
+  @Test
+  public void overlayTest() throws Exception {
+    search(defaultLabels, 0.5);
+    final FingerprintStore store = awaitStore();
+
+    // a structure changed after the store is built is journaled and found with its new fingerprint
+    try (Transaction tx = graphDb.beginTx()) {
+      tx.findNodes(Label.label("Chemical")).stream()
+          .filter(node -> !querySmiles.equals(node.getProperty("canonical_smiles", null)))
+          .findFirst().orElseThrow()
+          .setProperty("smiles", querySmiles);
+      tx.commit();
+    }
+    assertTrue(store.getJournaled() > 0);
+    assertEquals(List.of(querySmiles, querySmiles), search(defaultLabels, 0.99));
+  }
+
+  @Test
+  public void buildAwaitsCommittingTest() throws Exception {
+    final CountDownLatch committing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    // registered after the store manager, it holds the writer between beforeCommit of the manager and the commit
+    dbms.registerTransactionEventListener(graphDb.databaseName(), new TransactionEventListenerAdapter<>() {
+      @Override
+      public Object beforeCommit(TransactionData data, Transaction transaction, GraphDatabaseService databaseService) throws Exception {
+        if ("writer".equals(Thread.currentThread().getName())) {
+          committing.countDown();
+          release.await();
+        }
+        return null;
+      }
+    });
+    final Thread writer = new Thread(() -> {
+      try (Transaction tx = graphDb.beginTx()) {
+        tx.findNodes(Label.label("Chemical")).stream()
+            .filter(node -> !querySmiles.equals(node.getProperty("canonical_smiles", null)))
+            .findFirst().orElseThrow()
+            .setProperty("smiles", querySmiles);
+        tx.commit();
+      }
+    }, "writer");
+    writer.start();
+    assertTrue(committing.await(30, TimeUnit.SECONDS));
+
+    // the writer passed the manager before the build, the scan waits for its commit
+    search(defaultLabels, 0.5);
+    release.countDown();
+    writer.join();
+    awaitStore();
+    assertEquals(List.of(querySmiles, querySmiles), search(defaultLabels, 0.99));
+  }
+
+  @Test
+  public void unregisterTest() throws Exception {
+    search(defaultLabels, 0.5);
+    awaitStore();
+    final FingerprintStoreManager manager = DatabaseContext.of(graphDb).getStoreManager();
+
+    // a rolled back unregistration keeps the store
+    try (Transaction tx = graphDb.beginTx()) {
+      tx.execute("CALL org.rdkit.fingerprint.unregister($property)", MapUtil.map("property", PROPERTY)).close();
+      tx.rollback();
+    }
+    assertNotNull(manager.getStores().get(PROPERTY));
+
+    graphDb.executeTransactionally("CALL org.rdkit.fingerprint.unregister($property)", MapUtil.map("property", PROPERTY));
+    assertNull(manager.getStores().get(PROPERTY));
+    assertFalse(manager.isBuilding(PROPERTY));
+  }
+
+  /**
+   * @return smiles of the matches, sorted by similarity
+   */
+  private List<String> search(final List<String> labels, final double threshold) {
+    return graphDb.executeTransactionally("CALL org.rdkit.fingerprint.similarity.smiles($labels, $smiles, 'torsion', $property, $threshold)",
+        MapUtil.map("labels", labels, "smiles", querySmiles, "property", PROPERTY, "threshold", threshold),
+        result -> result.stream().map(row -> (String) row.get("smiles")).collect(Collectors.toList()));
+  }
+
+  private FingerprintStore awaitStore() throws InterruptedException {
+    final FingerprintStoreManager manager = DatabaseContext.of(graphDb).getStoreManager();
+    final long deadline = System.currentTimeMillis() + 30_000;
+    while (manager.isBuilding(PROPERTY) || manager.getStores().get(PROPERTY) == null) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Fingerprint store is not built");
+      }
+      Thread.sleep(50);
+    }
+    final FingerprintStore store = manager.getStores().get(PROPERTY);
+    assertNotNull(store);
+    return store;
+  }
+}
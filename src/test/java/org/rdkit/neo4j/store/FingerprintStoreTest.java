@@ -0,0 +1,198 @@
+package org.rdkit.neo4j.store;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FingerprintStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void searchTest() throws Exception {
+    final FingerprintStore store = build(folder.getRoot().toPath());
+    assertEquals(3, store.getCount());
+
+    // query {0..9}: node 1 is identical, node 2 shares 5 of its 15 bits (5 / 20), node 3 shares nothing
+    final List<FingerprintStore.Hit> hits = store.search(bits(0, 10).toLongArray(), 10, 0.2d);
+    final Set<Long> nodes = hits.stream().map(FingerprintStore.Hit::getNodeId).collect(Collectors.toSet());
+    assertEquals(Set.of(1L, 2L), nodes);
+    hits.stream().filter(hit -> hit.getNodeId() == 1L).forEach(hit -> assertEquals(1.0d, hit.getSimilarity(), 1e-9));
+    hits.stream().filter(hit -> hit.getNodeId() == 2L).forEach(hit -> assertEquals(5.0d / 20, hit.getSimilarity(), 1e-9));
+
+    // journaled fingerprints replace the stored ones: node 1 is removed, node 3 changed, node 4 added
+    final Map<Long, BitSet> changes = new HashMap<>();
+    changes.put(1L, null);
+    changes.put(3L, bits(0, 5));
+    changes.put(4L, bits(0, 12));
+    commit(store, changes, 1L);
+    assertEquals(3, store.getJournaled());
+    final Map<Long, Double> similarities = search(store, bits(0, 10), 0.2d);
+    assertEquals(Set.of(2L, 3L, 4L), similarities.keySet());
+    assertEquals(5.0d / 10, similarities.get(3L), 1e-9);
+    assertEquals(10.0d / 12, similarities.get(4L), 1e-9);
+
+    // the latest record of a node counts
+    commit(store, Map.of(4L, bits(500, 510)), 2L);
+    assertEquals(Set.of(2L, 3L), search(store, bits(0, 10), 0.2d).keySet());
+    assertFalse(store.isStale());
+    store.close();
+  }
+
+  @Test
+  public void reopenTest() throws Exception {
+    final Path directory = folder.getRoot().toPath();
+    final FingerprintStore store = build(directory);
+    final Map<Long, BitSet> changes = new HashMap<>();
+    changes.put(2L, null);
+    changes.put(7L, bits(0, 10));
+    commit(store, changes, 40L);
+    store.close(42L);
+
+    // transactions committed after a clean close were not journaled
+    assertNull(FingerprintStore.open(directory, "morgan_fp", 43L));
+    final FingerprintStore reopened = FingerprintStore.open(directory, "morgan_fp", 42L);
+    assertNotNull(reopened);
+    assertEquals(3, reopened.getCount());
+    assertEquals(2, reopened.getJournaled());
+    assertEquals(Set.of(1L, 7L), search(reopened, bits(0, 10), 0.2d).keySet());
+    reopened.close(42L);
+  }
+
+  @Test
+  public void replayTest() throws Exception {
+    final Path directory = folder.getRoot().toPath();
+    final FingerprintStore store = build(directory);
+    commit(store, Map.of(7L, bits(0, 10)), 40L);
+    store.getJournal().rollback(store.getJournal().prepare(Map.of(8L, bits(0, 10))));
+    // the process ends without a clean close, the journal is flushed per transaction
+    store.close();
+
+    // the database lost a journaled transaction, e.g. it was restored
+    assertNull(FingerprintStore.open(directory, "morgan_fp", 39L));
+    // transactions committed after the last journaled one did not change fingerprints
+    final FingerprintStore replayed = FingerprintStore.open(directory, "morgan_fp", 45L);
+    assertNotNull(replayed);
+    assertEquals(1, replayed.getJournaled());
+    assertEquals(Set.of(1L, 2L, 7L), search(replayed, bits(0, 10), 0.2d).keySet());
+
+    // a prepared transaction which is not resolved may be committed by the database
+    commit(replayed, Collections.singletonMap(2L, null), 46L);
+    replayed.getJournal().prepare(Map.of(9L, bits(0, 10)));
+    replayed.close();
+    assertNull(FingerprintStore.open(directory, "morgan_fp", 47L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void tooLongFingerprintTest() throws Exception {
+    final FingerprintStore.Builder builder = new FingerprintStore.Builder(folder.getRoot().toPath(), "short_fp", 1);
+    try {
+      builder.add(1L, bits(60, 70));
+    } finally {
+      builder.abort();
+    }
+  }
+
+  @Test
+  public void abortTest() throws Exception {
+    final Path directory = folder.getRoot().toPath();
+    final FingerprintStore.Builder builder = new FingerprintStore.Builder(directory, "morgan_fp", 2048 / Long.SIZE);
+    builder.add(1L, bits(0, 10));
+    builder.abort();
+
+    // an aborted build is never published
+    try {
+      builder.finish();
+      fail("An aborted build must not be finished");
+    } catch (IOException e) {
+      // expected
+    }
+    assertFalse(Files.exists(directory.resolve("morgan_fp" + FingerprintStore.DATA_SUFFIX)));
+
+    // aborting a finished build keeps the store
+    final FingerprintStore.Builder finished = new FingerprintStore.Builder(directory, "morgan_fp", 2048 / Long.SIZE);
+    finished.add(1L, bits(0, 10));
+    final FingerprintStore store = finished.finish();
+    finished.abort();
+    store.close(42L);
+    assertNotNull(FingerprintStore.open(directory, "morgan_fp", 42L));
+  }
+
+  @Test
+  public void decodeTest() {
+    assertEquals(bits(3, 6), FingerprintStoreManager.decode("3 4 5"));
+    assertEquals(bits(3, 6), FingerprintStoreManager.decode("d e f"));
+    assertTrue(FingerprintStoreManager.decode("").isEmpty());
+  }
+
+  @Test
+  public void builderJournalTest() throws Exception {
+    // nodes changed while the store is built replace the scanned fingerprints
+    final FingerprintStore.Builder builder = new FingerprintStore.Builder(folder.getRoot().toPath(), "morgan_fp", 2048 / Long.SIZE);
+    builder.add(1L, bits(0, 10));
+    final FingerprintStore.Journal journal = builder.getJournal();
+    journal.commit(journal.prepare(Map.of(1L, bits(100, 110))), 1L);
+    builder.add(2L, bits(0, 10));
+    final FingerprintStore store = builder.finish();
+    assertEquals(Set.of(2L), search(store, bits(0, 10), 0.2d).keySet());
+    assertEquals(Set.of(1L), search(store, bits(100, 110), 0.2d).keySet());
+    store.close();
+  }
+
+  private static void commit(final FingerprintStore store, final Map<Long, BitSet> changes, final long txId) {
+    store.getJournal().commit(store.getJournal().prepare(changes), txId);
+  }
+
+  private static Map<Long, Double> search(final FingerprintStore store, final BitSet query, final double threshold) {
+    return store.search(query.toLongArray(), query.cardinality(), threshold).stream()
+        .collect(Collectors.toMap(FingerprintStore.Hit::getNodeId, FingerprintStore.Hit::getSimilarity));
+  }
+
+  private static FingerprintStore build(final Path directory) throws Exception {
+    final FingerprintStore.Builder builder = new FingerprintStore.Builder(directory, "morgan_fp", 2048 / Long.SIZE);
+    builder.add(1L, bits(0, 10));
+    builder.add(2L, bits(5, 20));
+    builder.add(3L, bits(1000, 1010));
+    return builder.finish();
+  }
+
+  private static BitSet bits(final int from, final int to) {
+    final BitSet bits = new BitSet();
+    bits.set(from, to);
+    return bits;
+  }
+}
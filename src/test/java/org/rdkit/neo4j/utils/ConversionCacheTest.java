@@ -0,0 +1,88 @@
+package org.rdkit.neo4j.utils;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.NodeParameters;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ConversionCacheTest {
+
+  @Test
+  public void duplicatesAreConvertedOnce() {
+    final ConversionCache cache = new ConversionCache(10);
+    final AtomicInteger conversions = new AtomicInteger();
+    final Supplier<NodeParameters> conversion = () -> {
+      conversions.incrementAndGet();
+      return new NodeParameters("FC(F)F", "CHF3", 70.0, "", "1 2 3", 3);
+    };
+
+    final NodeParameters first = cache.get(NodeFields.Smiles, "C(F)(F)F", true, conversion);
+    final NodeParameters second = cache.get(NodeFields.Smiles, "C(F)(F)F", true, conversion);
+
+    assertSame(first, second);
+    assertEquals(1, conversions.get());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void kindAndSanitizeArePartOfTheKey() {
+    final ConversionCache cache = new ConversionCache(10);
+    final Supplier<NodeParameters> conversion = () -> new NodeParameters("C", "CH4", 16.0, "", "1", 1);
+
+    final NodeParameters smiles = cache.get(NodeFields.Smiles, "C", true, conversion);
+    assertNotSame(smiles, cache.get(NodeFields.Smiles, "C", false, conversion));
+    assertNotSame(smiles, cache.get(NodeFields.MdlMol, "C", true, conversion));
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void leastRecentlyUsedIsEvicted() {
+    final ConversionCache cache = new ConversionCache(2);
+    final Supplier<NodeParameters> conversion = () -> new NodeParameters("C", "CH4", 16.0, "", "1", 1);
+
+    cache.get(NodeFields.Smiles, "C", true, conversion);
+    cache.get(NodeFields.Smiles, "CC", true, conversion);
+    cache.get(NodeFields.Smiles, "C", true, conversion); // `CC` becomes the eldest entry
+    cache.get(NodeFields.Smiles, "CCC", true, conversion);
+
+    assertEquals(2, cache.size());
+    cache.get(NodeFields.Smiles, "C", true, conversion);
+    assertEquals(2, cache.getHits());
+    cache.get(NodeFields.Smiles, "CC", true, conversion);
+    assertEquals(4, cache.getMisses());
+  }
+
+  @Test
+  public void clearDropsEntries() {
+    final ConversionCache cache = new ConversionCache(10);
+    final Supplier<NodeParameters> conversion = () -> new NodeParameters("C", "CH4", 16.0, "", "1", 1);
+
+    cache.get(NodeFields.Smiles, "C", true, conversion);
+    cache.clear();
+    assertEquals(0, cache.size());
+    cache.get(NodeFields.Smiles, "C", true, conversion);
+    assertEquals(2, cache.getMisses());
+  }
+}
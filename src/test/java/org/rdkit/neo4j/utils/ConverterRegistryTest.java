@@ -0,0 +1,76 @@
+package org.rdkit.neo4j.utils;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.logging.NullLog;
+import org.rdkit.fingerprint.DefaultFingerprintSettings;
+import org.rdkit.fingerprint.FingerprintSettings;
+import org.rdkit.fingerprint.FingerprintType;
+import org.rdkit.neo4j.bin.LibraryLoaderLifecycle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConverterRegistryTest {
+
+  private final ConverterRegistry registry = new ConverterRegistry();
+
+  @BeforeClass
+  public static void initializeLibraries() throws Exception {
+    new LibraryLoaderLifecycle(NullLog.getInstance()).init();
+  }
+
+  @Test
+  public void sharedConverterTest() {
+    final Converter morgan = registry.get(FingerprintType.morgan);
+    assertSame(morgan, registry.get(FingerprintType.morgan));
+
+    // equal settings of another object resolve to the same converter
+    assertSame(morgan, registry.get(Converter.createSettings(FingerprintType.morgan)));
+    assertTrue(FingerprintType.isCompatible(morgan.getFingerprintSettings(), Converter.createSettings(FingerprintType.morgan)));
+  }
+
+  @Test
+  public void distinctSettingsTest() {
+    final Converter morgan = registry.get(FingerprintType.morgan);
+    final FingerprintSettings settings = new DefaultFingerprintSettings(FingerprintType.morgan).setNumBits(1024).setRadius(3);
+    final Converter converter = registry.get(settings);
+    final int size = registry.size();
+
+    assertNotSame(morgan, converter);
+    assertEquals(3, converter.getFingerprintSettings().getRadius());
+
+    // the registry keeps a copy, later changes of the passed settings do not affect the converter
+    settings.setRadius(4);
+    assertEquals(3, converter.getFingerprintSettings().getRadius());
+    assertNotSame(converter, registry.get(settings));
+    assertEquals(size + 1, registry.size());
+  }
+
+  @Test
+  public void isolatedRegistryTest() {
+    final Converter morgan = registry.get(FingerprintType.morgan);
+    assertNotSame(morgan, new ConverterRegistry().get(FingerprintType.morgan));
+
+    registry.clear();
+    assertEquals(0, registry.size());
+    assertNotSame(morgan, registry.get(FingerprintType.morgan));
+  }
+}
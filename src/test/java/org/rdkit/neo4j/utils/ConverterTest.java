@@ -15,6 +15,7 @@ package org.rdkit.neo4j.utils;
  * #L%
  */
 
+import org.RDKit.RDKFuncs;
 import org.RDKit.RWMol;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -24,13 +25,19 @@ import org.neo4j.logging.NullLog;
 import org.rdkit.fingerprint.FingerprintType;
 import org.rdkit.neo4j.bin.LibraryLoaderLifecycle;
 import org.rdkit.neo4j.models.LuceneQuery;
+import org.rdkit.neo4j.models.NodeFields;
 import org.rdkit.neo4j.models.NodeParameters;
+import org.rdkit.neo4j.models.TokenEncoding;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.rdkit.neo4j.utils.Converter.DELIMITER_AND;
 import static org.rdkit.neo4j.utils.Converter.DELIMITER_OR;
 import static org.rdkit.neo4j.utils.Converter.DELIMITER_WHITESPACE;
@@ -136,6 +143,39 @@ public class ConverterTest {
     assertEquals(molecularWeight, block.getMolecularWeight(), 1e-4);
   }
 
+  @Test
+  public void optionalFieldsTest() {
+    final Converter restricted = Converter.createDefault().withOptionalFields(EnumSet.of(NodeFields.Formula));
+    final NodeParameters block = restricted.convertSmiles("COc1ccccc1", true);
+
+    assertEquals("COc1ccccc1", block.getCanonicalSmiles());
+    assertEquals("C7H8O", block.getFormula());
+    assertEquals(converter.convertSmiles("COc1ccccc1", true).getFingerprintEncoded(), block.getFingerprintEncoded());
+    assertNull(block.getInchiKey());
+    assertNull(block.getMolecularWeight());
+    assertNull(block.getMolBlock());
+  }
+
+  @Test
+  public void stampTest() {
+    final Converter restricted = Converter.createDefault().withOptionalFields(EnumSet.of(NodeFields.Formula));
+
+    Assert.assertTrue(converter.getStamp().startsWith(RDKFuncs.getRdkitVersion()));
+    assertEquals(Converter.createDefault().getStamp(), converter.getStamp());
+    assertNotEquals(converter.getStamp(), restricted.getStamp());
+    assertNotEquals(converter.getStamp(), Converter.createConverter(FingerprintType.morgan).getStamp());
+    assertEquals(restricted.getStamp(), restricted.convertSmiles("COc1ccccc1", true).getStamp());
+
+    final String decimal = converter.getStamp();
+    TokenEncoding.use(TokenEncoding.compact);
+    try {
+      assertNotEquals(decimal, converter.getStamp());
+    } finally {
+      TokenEncoding.use(TokenEncoding.decimal);
+    }
+    assertEquals(decimal, converter.getStamp());
+  }
+
   @Test
   public void luceneSSSQueryTest() {
     final String expectedLuceneQuery = "1 AND 3 AND 11 AND 32 AND 39 AND 46 AND 54 AND 57 AND 64 AND 84 AND 87 AND 103 AND 106 AND 108 AND 114 AND 149 AND 173 AND 175 AND 178 AND 194 AND 202 AND 203 AND 207 AND 217 AND 224 AND 230 AND 234 AND 249 AND 252 AND 253 AND 257 AND 261 AND 270 AND 283 AND 295 AND 296 AND 337 AND 343 AND 348 AND 360 AND 389 AND 394 AND 410 AND 413 AND 417 AND 424 AND 428 AND 429 AND 434 AND 435 AND 445 AND 447 AND 458 AND 465 AND 466 AND 469 AND 474 AND 475 AND 479 AND 488 AND 490 AND 497 AND 512 AND 513 AND 517 AND 518 AND 523 AND 527 AND 532 AND 533 AND 550 AND 552 AND 565 AND 575 AND 584 AND 587 AND 595 AND 601 AND 616 AND 617 AND 618 AND 622 AND 630 AND 653 AND 661 AND 663 AND 664 AND 673 AND 675 AND 682 AND 683 AND 687 AND 691 AND 692 AND 695 AND 698 AND 699 AND 702 AND 705 AND 725 AND 730 AND 734 AND 737 AND 753 AND 772 AND 773 AND 778 AND 779 AND 789 AND 797 AND 798 AND 809 AND 812 AND 822 AND 833 AND 853 AND 864 AND 865 AND 869 AND 872 AND 875 AND 877 AND 898 AND 904 AND 912 AND 921 AND 923 AND 935 AND 943 AND 944 AND 945 AND 957 AND 963 AND 967 AND 972 AND 998 AND 1001 AND 1003 AND 1007 AND 1008 AND 1022 AND 1033 AND 1035 AND 1051 AND 1052 AND 1060 AND 1061 AND 1064 AND 1065 AND 1066 AND 1069 AND 1072 AND 1084 AND 1092 AND 1093 AND 1102 AND 1106 AND 1110 AND 1113 AND 1124 AND 1130 AND 1132 AND 1133 AND 1148 AND 1155 AND 1159 AND 1163 AND 1164 AND 1165 AND 1172 AND 1179 AND 1182 AND 1185 AND 1189 AND 1203 AND 1205 AND 1208 AND 1214 AND 1222 AND 1236 AND 1257 AND 1265 AND 1272 AND 1281 AND 1289 AND 1295 AND 1299 AND 1323 AND 1328 AND 1329 AND 1364 AND 1369 AND 1383 AND 1385 AND 1386 AND 1387 AND 1388 AND 1389 AND 1394 AND 1397 AND 1399 AND 1403 AND 1408 AND 1412 AND 1414 AND 1416 AND 1417 AND 1440 AND 1444 AND 1447 AND 1449 AND 1455 AND 1460 AND 1465 AND 1473 AND 1475 AND 1494 AND 1499 AND 1508 AND 1512 AND 1513 AND 1524 AND 1526 AND 1531 AND 1534 AND 1536 AND 1538 AND 1560 AND 1562 AND 1565 AND 1570 AND 1573 AND 1576 AND 1598 AND 1607 AND 1608 AND 1637 AND 1647 AND 1654 AND 1656 AND 1702 AND 1713 AND 1715 AND 1732 AND 1733 AND 1735 AND 1764 AND 1782 AND 1792 AND 1819 AND 1839 AND 1887 AND 1889 AND 1899 AND 1902 AND 1906 AND 1912 AND 1931 AND 1946 AND 1947 AND 1952 AND 1961 AND 1966 AND 1980 AND 1981 AND 1982 AND 1985 AND 2017 AND 2019";
@@ -178,6 +218,29 @@ public class ConverterTest {
     assertNotEquals(patternQuery.getPositiveBits(), torsionQuery.getPositiveBits());
   }
 
+  @Test
+  // Proves every fingerprint type can be computed and an identical structure matches all its bits
+  public void allFingerprintTypesTest() {
+    final String smiles = "CC(C)Cc1ccc(cc1)[C@@H](C)C(=O)O";
+    for (FingerprintType type: FingerprintType.values()) {
+      Converter converter = Converter.createConverter(type);
+      LuceneQuery fingerprint = converter.getLuceneFingerprint(smiles, true);
+      LuceneQuery query = converter.getLuceneSimilarityQuery(smiles, true);
+
+      assertTrue(type.toString(), fingerprint.getPositiveBits() > 0);
+      assertEquals(type.toString(), fingerprint.getPositiveBits(), query.getPositiveBits());
+      assertEquals(type.toString(), fingerprint.getLuceneQuery().replace(DELIMITER_WHITESPACE, DELIMITER_OR), query.getLuceneQuery());
+    }
+
+    // MACCS keys have a fixed length of 167 bits
+    LuceneQuery maccs = Converter.createConverter(FingerprintType.maccs).getLuceneFingerprint(smiles, true);
+    assertTrue(Arrays.stream(maccs.getLuceneQuery().split(DELIMITER_WHITESPACE)).mapToInt(Integer::parseInt).allMatch(bit -> bit < 167));
+
+    // feature invariants make FCFP differ from ECFP
+    assertNotEquals(Converter.createConverter(FingerprintType.morgan).getLuceneFingerprint(smiles, true).getLuceneQuery(),
+        Converter.createConverter(FingerprintType.featmorgan).getLuceneFingerprint(smiles, true).getLuceneQuery());
+  }
+
   @Test
   // Proves rwmol can be created from mdlmol, but failures to be created from its canonical_smiles
   public void failureSmilesTest() {
@@ -0,0 +1,93 @@
+package org.rdkit.neo4j.utils;
+
+/*-
+ * #%L
+ * RDKit-Neo4j plugin
+ * %%
+ * Copyright (C) 2019 - 2026 RDKit
+ * %%
+ * Copyright (C) 2019 Evgeny Sorokin
+ * @@ All Rights Reserved @@
+ * This file is part of the RDKit Neo4J integration.
+ * The contents are covered by the terms of the BSD license
+ * which is included in the file LICENSE, found at the root
+ * of the neo4j-rdkit source tree.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rdkit.neo4j.models.NodeFields;
+import org.rdkit.neo4j.models.StructureRecord;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StructureReaderTest {
+  private static final String MOL_BLOCK = "\n"
+      + "     RDKit          2D\n"
+      + "\n"
+      + "  2  1  0  0  0  0  0  0  0  0999 V2000\n"
+      + "    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+      + "    1.2990    0.7500    0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+      + "  1  2  1  0\n"
+      + "M  END\n";
+
+  @Test
+  public void sdfRecordsTest() throws Exception {
+    final String sdf = MOL_BLOCK
+        + "> <supplier_id>\n"
+        + "A-1\n"
+        + "\n"
+        + "> <smiles>\n"
+        + "CO\n"
+        + "\n"
+        + "$$$$\n"
+        + "methanol" + MOL_BLOCK
+        + "$$$$\n"
+        + "\n";
+
+    try (SdfReader reader = new SdfReader(new BufferedReader(new StringReader(sdf)))) {
+      StructureRecord first = reader.next();
+      assertEquals(0, first.getIndex());
+      assertEquals(NodeFields.MdlMol, first.getKind());
+      assertEquals(MOL_BLOCK, first.getStructure());
+      assertEquals("A-1", first.getProperties().get("supplier_id"));
+      assertFalse(first.getProperties().containsKey("smiles")); // protected property is ignored
+      assertFalse(first.getProperties().containsKey(SdfReader.NAME_PROPERTY));
+
+      StructureRecord second = reader.next();
+      assertEquals(1, second.getIndex());
+      assertEquals("methanol", second.getProperties().get(SdfReader.NAME_PROPERTY));
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  public void smilesRecordsTest() throws Exception {
+    final String smi = "SMILES Name\n"
+        + "CCO ethanol\n"
+        + "# comment\n"
+        + "\n"
+        + "c1ccccc1\n"
+        + "CC(=O)O acetic acid\n";
+
+    try (SmilesReader reader = new SmilesReader(new BufferedReader(new StringReader(smi)))) {
+      assertEquals(1, reader.skip(1));
+      assertEquals(1, reader.getPosition());
+
+      StructureRecord benzene = reader.next();
+      assertEquals("c1ccccc1", benzene.getStructure());
+      assertEquals(1, benzene.getIndex());
+      assertTrue(benzene.getProperties().isEmpty());
+
+      StructureRecord acid = reader.next();
+      assertEquals("acetic acid", acid.getProperties().get(SdfReader.NAME_PROPERTY));
+      assertFalse(reader.hasNext());
+      assertEquals(0, reader.skip(5));
+    }
+  }
+}